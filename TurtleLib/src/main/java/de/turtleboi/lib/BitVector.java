@@ -0,0 +1,287 @@
+package de.turtleboi.lib;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size vector of bits that is backed by a {@code long[]}. Unlike {@code boolean[]} (one byte per flag) or
+ * {@link Bits#toBytes(boolean[])} (which needs to be converted back and forth), bits stay packed and are modified in
+ * place. Bulk operations like {@link #and(BitVector)} or {@link #cardinality()} work on 64 bits at a time.
+ * <p> Bit {@code i} is stored in word {@code i / 64} at position {@code i % 64}. {@link #toBytes()} uses the same
+ * order, i.e. bit {@code i} is stored in byte {@code i / 8} at position {@code i % 8}.
+ * <p> This implementation is not thread-safe.
+ * @see java.util.BitSet
+ */
+public class BitVector {
+    private final long[] words;
+    private final int size;
+
+    /** Creates a new vector with {@code size} bits, all of which are initially {@code false}. */
+    public BitVector(int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("Size may not be negative");
+        this.words = new long[wordCount(size)];
+        this.size  = size;
+    }
+
+    private BitVector(long[] words, int size) {
+        this.words = words;
+        this.size  = size;
+    }
+
+    /** Returns the amount of 64-bit words that are needed to store {@code bits} bits. */
+    public static int wordCount(int bits) {
+        return (bits + Long.SIZE - 1) >>> 6;
+    }
+
+    /**
+     * Creates a vector of {@code size} bits that uses a copy of {@code words} as its storage. Bits exceeding
+     * {@code size} are cleared.
+     */
+    public static @NotNull BitVector of(long[] words, int size) {
+        BitVector vector = new BitVector(Arrays.copyOf(words, wordCount(size)), size);
+        vector.clearTail();
+        return vector;
+    }
+
+    /** Creates a vector from a byte array that has been created with {@link #toBytes()}. */
+    public static @NotNull BitVector ofBytes(byte[] bytes, int size) {
+        BitVector vector = new BitVector(size);
+        int length = Math.min(bytes.length, (size + 7) >>> 3);
+        for (int i = 0; i < length; i++)
+            vector.words[i >>> 3] |= (bytes[i] & 0xFFL) << ((i & 7) << 3);
+        vector.clearTail();
+        return vector;
+    }
+
+    public @NotNull BitVector copy() {
+        return new BitVector(words.clone(), size);
+    }
+
+    /* - - - */
+
+    /** Returns the amount of bits in this vector. */
+    public int size() {
+        return size;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+    }
+
+    private void checkSize(@NotNull BitVector other) {
+        if (other.size != size)
+            throw new IllegalArgumentException("Size mismatch: " + size + " and " + other.size);
+    }
+
+    /** Clears all bits of the last word that exceed {@link #size()}. */
+    private void clearTail() {
+        if ((size & 63) != 0)
+            words[words.length - 1] &= -1L >>> -size;
+    }
+
+    /* - - - */
+
+    public boolean get(int index) {
+        checkIndex(index);
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void set(int index) {
+        checkIndex(index);
+        words[index >>> 6] |= 1L << index;
+    }
+
+    public void set(int index, boolean value) {
+        checkIndex(index);
+        words[index >>> 6] = Bits.setBit(words[index >>> 6], index & 63, value);
+    }
+
+    public void clear(int index) {
+        checkIndex(index);
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+    public void flip(int index) {
+        checkIndex(index);
+        words[index >>> 6] ^= 1L << index;
+    }
+
+    /** Sets all bits to {@code false}. */
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    /**
+     * Reads {@code width} bits (up to 64), starting at {@code index}, and returns them as the lowest bits of a long.
+     * This is useful to store small enums or other values that fit in {@code width} bits.
+     */
+    public long getBits(int index, int width) {
+        if (width == 0) return 0;
+        checkIndex(index);
+        checkIndex(index + width - 1);
+
+        int  word  = index >>> 6;
+        int  shift = index & 63;
+        long mask  = -1L >>> -width;
+
+        long value = words[word] >>> shift;
+        if (shift + width > Long.SIZE)
+            value |= words[word + 1] << -shift;
+        return value & mask;
+    }
+
+    /** Writes the lowest {@code width} bits (up to 64) of {@code value}, starting at {@code index}. */
+    public void setBits(int index, int width, long value) {
+        if (width == 0) return;
+        checkIndex(index);
+        checkIndex(index + width - 1);
+
+        int  word  = index >>> 6;
+        int  shift = index & 63;
+        long mask  = -1L >>> -width;
+        value &= mask;
+
+        words[word] = (words[word] & ~(mask << shift)) | (value << shift);
+        if (shift + width > Long.SIZE)
+            words[word + 1] = (words[word + 1] & ~(mask >>> -shift)) | (value >>> -shift);
+    }
+
+    /* - - - */
+
+    /** Performs a logical AND of this vector with another vector of the same size. */
+    public void and(@NotNull BitVector other) {
+        checkSize(other);
+        for (int i = 0; i < words.length; i++)
+            words[i] &= other.words[i];
+    }
+
+    /** Performs a logical OR of this vector with another vector of the same size. */
+    public void or(@NotNull BitVector other) {
+        checkSize(other);
+        for (int i = 0; i < words.length; i++)
+            words[i] |= other.words[i];
+    }
+
+    /** Performs a logical XOR of this vector with another vector of the same size. */
+    public void xor(@NotNull BitVector other) {
+        checkSize(other);
+        for (int i = 0; i < words.length; i++)
+            words[i] ^= other.words[i];
+    }
+
+    /** Clears all bits of this vector that are set in another vector of the same size. */
+    public void andNot(@NotNull BitVector other) {
+        checkSize(other);
+        for (int i = 0; i < words.length; i++)
+            words[i] &= ~other.words[i];
+    }
+
+    /** Returns {@code true} if this vector and another vector of the same size have at least one common set bit. */
+    public boolean intersects(@NotNull BitVector other) {
+        checkSize(other);
+        for (int i = 0; i < words.length; i++)
+            if ((words[i] & other.words[i]) != 0)
+                return true;
+        return false;
+    }
+
+    /** Returns the amount of bits that are set to {@code true}. */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words)
+            if (word != 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the index of the first bit that is set to {@code true} and occurs on or after {@code fromIndex}, or
+     * {@code -1} if there is no such bit.
+     * <p> To iterate over all set bits use:
+     * <pre> {@code
+     * for (int i = vector.nextSetBit(0); i >= 0; i = vector.nextSetBit(i + 1)) {
+     *     // ...
+     * }
+     * } </pre>
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("Index may not be negative: " + fromIndex);
+        if (fromIndex >= size)
+            return -1;
+
+        int  i    = fromIndex >>> 6;
+        long word = words[i] & (-1L << fromIndex);
+        while (word == 0) {
+            if (++i == words.length)
+                return -1;
+            word = words[i];
+        }
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Returns the index of the first bit that is set to {@code false} and occurs on or after {@code fromIndex}, or
+     * {@code -1} if there is no such bit.
+     */
+    public int nextClearBit(int fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("Index may not be negative: " + fromIndex);
+        if (fromIndex >= size)
+            return -1;
+
+        int  i    = fromIndex >>> 6;
+        long word = ~words[i] & (-1L << fromIndex);
+        while (word == 0) {
+            if (++i == words.length)
+                return -1;
+            word = ~words[i];
+        }
+        int index = (i << 6) + Long.numberOfTrailingZeros(word);
+        return index < size ? index : -1;
+    }
+
+    /* - - - */
+
+    /** Returns a copy of the underlying words. */
+    public long[] toLongArray() {
+        return words.clone();
+    }
+
+    /** Returns the bits of this vector as a byte array. Bit {@code i} is stored in byte {@code i / 8}. */
+    public byte[] toBytes() {
+        byte[] bytes = new byte[(size + 7) >>> 3];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = (byte) (words[i >>> 3] >>> ((i & 7) << 3));
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof BitVector other)) return false;
+        return size == other.size && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * size + Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(size);
+        for (int i = 0; i < size; i++)
+            builder.append(get(i) ? '1' : '0');
+        return builder.toString();
+    }
+}
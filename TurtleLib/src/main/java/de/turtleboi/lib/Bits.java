@@ -3,6 +3,8 @@ package de.turtleboi.lib;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Range;
 
+import java.util.Arrays;
+
 /** Some utilities for bitwise operations, mostly focused on compression. */
 public class Bits {
     private Bits() { }
@@ -81,4 +83,143 @@ public class Bits {
         else
             return n & ~(1L << bit);
     }
+
+    /* - - - */
+
+    // Fixed-width bit-packing stores each value with exactly as many bits as the largest value needs. Values are
+    // stored consecutively (lowest bits first) and may span two words.
+
+    /** Returns the amount of bits that are needed to represent {@code v} as an unsigned int (0 for 0). */
+    public static int bitWidth(int v) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(v);
+    }
+
+    /** Returns the amount of bits that are needed to represent the largest of the first {@code count} values. */
+    public static int maxBitWidth(int[] v, int count) {
+        int or = 0;
+        for (int i = 0; i < count; i++)
+            or |= v[i];
+        return bitWidth(or);
+    }
+
+    /** Returns the amount of longs needed to pack {@code count} values with {@code bitWidth} bits each. */
+    public static int packedLength(int count, @Range(from = 0, to = Integer.SIZE) int bitWidth) {
+        return (int) (((long) count * bitWidth + Long.SIZE - 1) >>> 6);
+    }
+
+    /**
+     * Packs the first {@code count} values of {@code src} into {@code dst}, using {@code bitWidth} bits for each value.
+     * Any higher bits of the values are dropped.
+     * @param src Source array.
+     * @param count Amount of values to pack.
+     * @param bitWidth Amount of bits per value.
+     * @param dst Destination array. Must be able to hold {@link #packedLength(int, int)} longs.
+     */
+    public static void pack(int[] src, int count, @Range(from = 0, to = Integer.SIZE) int bitWidth, long[] dst) {
+        if (bitWidth == 0) return;
+        final long mask = -1L >>> (Long.SIZE - bitWidth);
+
+        int  word  = 0;
+        int  shift = 0;
+        long acc   = 0;
+        for (int i = 0; i < count; i++) {
+            long v = src[i] & mask;
+            acc |= v << shift;
+            shift += bitWidth;
+
+            if (shift >= Long.SIZE) {
+                dst[word++] = acc;
+                shift -= Long.SIZE;
+                // remaining high bits of the value that did not fit into the previous word
+                acc = shift == 0 ? 0 : v >>> (bitWidth - shift);
+            }
+        }
+        if (shift > 0)
+            dst[word] = acc;
+    }
+
+    /**
+     * Unpacks {@code count} values with {@code bitWidth} bits each from {@code src} into {@code dst}.
+     * @param src Source array, created by {@link #pack(int[], int, int, long[])}.
+     * @param bitWidth Amount of bits per value.
+     * @param dst Destination array.
+     * @param count Amount of values to unpack.
+     */
+    public static void unpack(long[] src, @Range(from = 0, to = Integer.SIZE) int bitWidth, int[] dst, int count) {
+        if (bitWidth == 0) {
+            Arrays.fill(dst, 0, count, 0);
+            return;
+        }
+        final long mask = -1L >>> (Long.SIZE - bitWidth);
+
+        long bit = 0;
+        for (int i = 0; i < count; i++, bit += bitWidth) {
+            int word  = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+
+            long v = src[word] >>> shift;
+            if (shift + bitWidth > Long.SIZE)
+                v |= src[word + 1] << (Long.SIZE - shift);
+            dst[i] = (int) (v & mask);
+        }
+    }
+
+    /**
+     * Encodes an array of integers with frame-of-reference bit-packing: The smallest value is subtracted from all
+     * values, which are then packed with the bit width of the largest remaining value.
+     * <p> The result consists of the amount of values (varint), the smallest value (ZigZag varint), the bit width
+     * (1 byte) and the packed values (little endian, only as many bytes as needed).
+     * @see #unpackFrameOfReference(byte[])
+     */
+    public static byte[] packFrameOfReference(int[] v) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i : v) {
+            min = Math.min(min, i);
+            max = Math.max(max, i);
+        }
+        if (v.length == 0)
+            min = max = 0;
+
+        // the difference may overflow but is still correct as an unsigned int
+        int width = bitWidth(max - min);
+        int[] deltas = new int[v.length];
+        for (int i = 0; i < v.length; i++)
+            deltas[i] = v[i] - min;
+
+        long[] packed = new long[packedLength(v.length, width)];
+        pack(deltas, v.length, width, packed);
+
+        int dataBytes = (int) (((long) v.length * width + 7) >>> 3);
+        byte[] bytes = new byte[VarInts.varIntSize(v.length) + VarInts.signedVarIntSize(min) + 1 + dataBytes];
+
+        int offset = VarInts.putVarInt(v.length, bytes, 0);
+        offset = VarInts.putSignedVarInt(min, bytes, offset);
+        bytes[offset++] = (byte) width;
+        for (int i = 0; i < dataBytes; i++)
+            bytes[offset++] = (byte) (packed[i >>> 3] >>> ((i & 7) << 3));
+
+        return bytes;
+    }
+
+    /** Decodes an array of integers that has been encoded with {@link #packFrameOfReference(int[])}. */
+    public static int[] unpackFrameOfReference(byte[] bytes) {
+        int[] buffer = new int[1];
+
+        int offset = VarInts.getVarInt(bytes, 0, buffer);
+        int count = buffer[0];
+        offset = VarInts.getSignedVarInt(bytes, offset, buffer);
+        int min = buffer[0];
+        int width = bytes[offset++];
+
+        long[] packed = new long[packedLength(count, width)];
+        for (int i = 0; offset < bytes.length; i++)
+            packed[i >>> 3] |= (bytes[offset++] & 0xFFL) << ((i & 7) << 3);
+
+        int[] data = new int[count];
+        unpack(packed, width, data, count);
+        for (int i = 0; i < count; i++)
+            data[i] += min;
+        return data;
+    }
 }
@@ -0,0 +1,258 @@
+package de.turtleboi.lib;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A bulk integer codec using the <i>Stream VByte</i> layout.
+ * <p> Like {@link VarInts}, each integer is stored with as few bytes as possible. But instead of marking the length
+ * with a continuation bit in each byte, the length (1 to 4 bytes) is stored as a 2-bit code in a separate control
+ * stream. One control byte describes a group of 4 integers, and all control bytes are stored in front of the data
+ * bytes:
+ * <pre> {@code
+ * // 4 integers: 1, 300, 70000, 5
+ * 00 10 01 00                      // control byte (lengths - 1, lowest bits first)
+ * 01 | 2C 01 | 70 11 01 | 05       // data bytes (little endian)
+ * } </pre>
+ * <p> This allows decoding without checking every single byte: The control byte is used to look up the offsets of
+ * all 4 integers in a table, which are then read independently of each other. Encoded data is never larger than
+ * {@link #maxEncodedSize(int)}.
+ * <p> The amount of integers is not part of the encoding and has to be stored separately, unless
+ * {@link #intsToBytes(int[])} and {@link #bytesToInts(byte[])} are used, which prefix the data with a varint.
+ * @see VarInts
+ */
+public class StreamVByte {
+    /** Utility class */
+    private StreamVByte() { }
+
+    /** Reads 4 bytes of a byte array as a single little endian int. */
+    private static final VarHandle INT_VIEW = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /** Maps a 2-bit length code to the mask that drops all bytes behind the value. */
+    private static final int[] MASKS = { 0xFF, 0xFFFF, 0xFFFFFF, 0xFFFFFFFF };
+
+    /**
+     * Maps a control byte to the offsets of the 2nd, 3rd and 4th value inside the group and the total length of the
+     * group (in this order, 8 bits each, lowest bits first).
+     */
+    private static final int[] OFFSETS = new int[256];
+
+    static {
+        for (int ctrl = 0; ctrl < 256; ctrl++) {
+            int offsets = 0;
+            int length  = 0;
+            for (int i = 0; i < 4; i++) {
+                length += ((ctrl >>> (i * 2)) & 3) + 1;
+                offsets |= length << (i * 8);
+            }
+            OFFSETS[ctrl] = offsets;
+        }
+    }
+
+    /** Returns the 2-bit length code (amount of bytes - 1) of an integer. */
+    private static int code(int v) {
+        return (31 - Integer.numberOfLeadingZeros(v | 1)) >>> 3;
+    }
+
+    /** Returns the maximum size in bytes that {@code count} integers can take up when encoded. */
+    public static int maxEncodedSize(int count) {
+        return ((count + 3) >>> 2) + count * Integer.BYTES;
+    }
+
+    /** Returns the exact size in bytes that the first {@code count} integers of {@code src} take up when encoded. */
+    public static int encodedSize(int[] src, int count) {
+        int size = (count + 3) >>> 2;
+        for (int i = 0; i < count; i++)
+            size += code(src[i]) + 1;
+        return size;
+    }
+
+    /**
+     * Encodes {@code count} integers of {@code src}, starting at index 0, and writes them to a byte array at a given
+     * offset.
+     * @param src Source array.
+     * @param count Amount of integers to encode.
+     * @param dst Destination array. Must be able to hold at least {@link #maxEncodedSize(int)} bytes. Up to 3 bytes
+     *            behind the returned offset may be overwritten.
+     * @param offset Current offset to write to.
+     * @return Updated offset, after all integers have been written.
+     */
+    public static int encode(int[] src, int count, byte[] dst, int offset) {
+        return encode(src, count, dst, offset, dst.length);
+    }
+
+    private static int encode(int[] src, int count, byte[] dst, int offset, int limit) {
+        int ctrlOffset = offset;
+        int dataOffset = offset + ((count + 3) >>> 2);
+
+        // the data stream is always written 4 bytes at a time, which is only safe if the array is large enough
+        final int wordLimit = limit - Integer.BYTES;
+
+        for (int i = 0; i < count; i += 4) {
+            int ctrl = 0;
+            int end  = Math.min(i + 4, count);
+            for (int j = i; j < end; j++) {
+                int v    = src[j];
+                int code = code(v);
+                ctrl |= code << ((j - i) * 2);
+
+                if (dataOffset <= wordLimit) {
+                    INT_VIEW.set(dst, dataOffset, v);
+                    dataOffset += code + 1;
+                } else {
+                    for (int k = 0; k <= code; k++)
+                        dst[dataOffset++] = (byte) (v >>> (k * 8));
+                }
+            }
+            dst[ctrlOffset++] = (byte) ctrl;
+        }
+
+        return dataOffset;
+    }
+
+    /**
+     * Reads {@code count} integers from {@code src}, starting at a provided offset, and writes them to {@code dst},
+     * starting at index 0.
+     * @param src Source array.
+     * @param offset Current offset to start reading.
+     * @param dst Destination array.
+     * @param count Amount of integers to read.
+     * @return Updated offset, after all integers have been read.
+     */
+    public static int decode(byte[] src, int offset, int[] dst, int count) {
+        return decode(src, offset, src.length, dst, count);
+    }
+
+    private static int decode(byte[] src, int offset, int limit, int[] dst, int count) {
+        int ctrlOffset = offset;
+        int dataOffset = offset + ((count + 3) >>> 2);
+
+        // a group takes up at most 16 bytes
+        final int groupLimit = limit - 4 * Integer.BYTES;
+
+        int i = 0;
+        for (; i + 4 <= count && dataOffset <= groupLimit; i += 4) {
+            int ctrl    = src[ctrlOffset++] & 0xFF;
+            int offsets = OFFSETS[ctrl];
+
+            // all 4 reads are independent of each other
+            dst[i    ] = (int) INT_VIEW.get(src, dataOffset)                           & MASKS[ ctrl         & 3];
+            dst[i + 1] = (int) INT_VIEW.get(src, dataOffset + ( offsets         & 0xFF)) & MASKS[(ctrl >>> 2) & 3];
+            dst[i + 2] = (int) INT_VIEW.get(src, dataOffset + ((offsets >>>  8) & 0xFF)) & MASKS[(ctrl >>> 4) & 3];
+            dst[i + 3] = (int) INT_VIEW.get(src, dataOffset + ((offsets >>> 16) & 0xFF)) & MASKS[(ctrl >>> 6) & 3];
+
+            dataOffset += offsets >>> 24;
+        }
+
+        // remaining values near the end of the array are read byte by byte
+        for (; i < count; i += 4) {
+            int ctrl = src[ctrlOffset++] & 0xFF;
+            int end  = Math.min(i + 4, count);
+            for (int j = i; j < end; j++) {
+                int code = (ctrl >>> ((j - i) * 2)) & 3;
+                int v = 0;
+                for (int k = 0; k <= code; k++)
+                    v |= (src[dataOffset++] & 0xFF) << (k * 8);
+                dst[j] = v;
+            }
+        }
+
+        return dataOffset;
+    }
+
+    /**
+     * Encodes {@code count} integers of {@code src}, starting at index 0, and writes them to a {@link ByteBuffer} at
+     * its current position. The position is incremented by the amount of bytes written.
+     * @param src Source array.
+     * @param count Amount of integers to encode.
+     * @param dst Destination buffer.
+     * @throws BufferOverflowException if there is not enough space remaining in the buffer.
+     */
+    public static void encode(int[] src, int count, @NotNull ByteBuffer dst) {
+        final int size = encodedSize(src, count);
+        if (dst.remaining() < size)
+            throw new BufferOverflowException();
+
+        if (dst.hasArray()) {
+            int start = dst.arrayOffset() + dst.position();
+            int end   = encode(src, count, dst.array(), start, start + size);
+            dst.position(dst.position() + (end - start));
+            return;
+        }
+
+        int ctrlOffset = dst.position();
+        int dataOffset = ctrlOffset + ((count + 3) >>> 2);
+
+        for (int i = 0; i < count; i += 4) {
+            int ctrl = 0;
+            int end  = Math.min(i + 4, count);
+            for (int j = i; j < end; j++) {
+                int v    = src[j];
+                int code = code(v);
+                ctrl |= code << ((j - i) * 2);
+                for (int k = 0; k <= code; k++)
+                    dst.put(dataOffset++, (byte) (v >>> (k * 8)));
+            }
+            dst.put(ctrlOffset++, (byte) ctrl);
+        }
+
+        dst.position(dataOffset);
+    }
+
+    /**
+     * Reads {@code count} integers from a {@link ByteBuffer} at its current position and writes them to {@code dst},
+     * starting at index 0. The position is incremented by the amount of bytes read.
+     * @param src Source buffer.
+     * @param dst Destination array.
+     * @param count Amount of integers to read.
+     */
+    public static void decode(@NotNull ByteBuffer src, int[] dst, int count) {
+        if (src.hasArray()) {
+            int start = src.arrayOffset() + src.position();
+            int end   = decode(src.array(), start, src.arrayOffset() + src.limit(), dst, count);
+            src.position(src.position() + (end - start));
+            return;
+        }
+
+        int ctrlOffset = src.position();
+        int dataOffset = ctrlOffset + ((count + 3) >>> 2);
+
+        for (int i = 0; i < count; i += 4) {
+            int ctrl = src.get(ctrlOffset++) & 0xFF;
+            int end  = Math.min(i + 4, count);
+            for (int j = i; j < end; j++) {
+                int code = (ctrl >>> ((j - i) * 2)) & 3;
+                int v = 0;
+                for (int k = 0; k <= code; k++)
+                    v |= (src.get(dataOffset++) & 0xFF) << (k * 8);
+                dst[j] = v;
+            }
+        }
+
+        src.position(dataOffset);
+    }
+
+    /* - - - */
+
+    /** Encodes an array of integers, prefixed with its length as a varint. */
+    public static byte[] intsToBytes(int[] v) {
+        byte[] bytes = new byte[VarInts.varIntSize(v.length) + maxEncodedSize(v.length)];
+        int offset = VarInts.putVarInt(v.length, bytes, 0);
+        return Arrays.copyOf(bytes, encode(v, v.length, bytes, offset));
+    }
+
+    /** Decodes an array of integers that has been encoded with {@link #intsToBytes(int[])}. */
+    public static int[] bytesToInts(byte[] bytes) {
+        int[] length = new int[1];
+        int offset = VarInts.getVarInt(bytes, 0, length);
+        int[] data = new int[length[0]];
+        decode(bytes, offset, data, data.length);
+        return data;
+    }
+}
@@ -2,34 +2,207 @@ package de.turtleboi.lib;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 /** Some basic utilities for {@link UUID UUIDs}. */
 public class UUIDUtils {
+    /** Utility class */
+    private UUIDUtils() { }
+
+    /** The amount of bytes needed to store a UUID. */
+    public static final int BYTES = 2 * Long.BYTES;
+
+    private static final VarHandle ARRAY_VIEW  = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BUFFER_VIEW = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final TimeBasedGenerator GENERATOR = new TimeBasedGenerator(ThreadLocalRandom.current().nextInt(1 << 16));
+
+    /**
+     * Creates a new time-based (version 7) UUID with the default {@link TimeBasedGenerator}, which uses a random node
+     * id. UUIDs created by this method are ordered by their creation time.
+     * @see TimeBasedGenerator#next()
+     */
+    public static @NotNull UUID timeBasedUUID() {
+        return GENERATOR.next();
+    }
+
+    /**
+     * Returns the creation time of a time-based (version 7) UUID in milliseconds since the unix epoch.
+     * @throws IllegalArgumentException if the UUID is not a version 7 UUID.
+     */
+    public static long getTimestamp(@NotNull UUID uuid) throws IllegalArgumentException {
+        if (uuid.version() != 7)
+            throw new IllegalArgumentException("Not a time-based (version 7) UUID: " + uuid);
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+
     /**
      * Parses a UUID from an array of bytes.
-     * @param bytes The UUID bytes in little endian order.
+     * @param bytes The UUID bytes in big endian order.
      * @return Parsed UUID
      * @see #toBytes(UUID)
      */
     public static @NotNull UUID fromBytes(byte[] bytes) {
-        ByteBuffer bb = ByteBuffer.wrap(bytes);
-        long msb = bb.getLong();
-        long lsb = bb.getLong();
-        return new UUID(msb, lsb);
+        return getUUID(bytes, 0);
     }
 
     /**
-     * Creates a new byte array that contains the UUID's bytes in little endian order.
+     * Creates a new byte array that contains the UUID's bytes in big endian order.
      * @param uuid The UUID.
      * @return New byte array
      * @see #fromBytes(byte[])
      */
     public static byte[] toBytes(@NotNull UUID uuid) {
-        ByteBuffer bb = ByteBuffer.wrap(new byte[16]);
-        bb.putLong(uuid.getMostSignificantBits());
-        bb.putLong(uuid.getLeastSignificantBits());
-        return bb.array();
+        byte[] bytes = new byte[BYTES];
+        putUUID(uuid, bytes, 0);
+        return bytes;
+    }
+
+    /* - - - */
+
+    /**
+     * Writes the bytes of a UUID to a byte array at a given offset, in the same order as {@link #toBytes(UUID)}.
+     * @param uuid The UUID.
+     * @param dst Destination array.
+     * @param offset Current offset to write to.
+     * @return Updated offset, after the UUID has been written.
+     */
+    public static int putUUID(@NotNull UUID uuid, byte[] dst, int offset) {
+        return putUUID(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), dst, offset);
+    }
+
+    /**
+     * Writes the bytes of a UUID, given by its most and least significant bits, to a byte array at a given offset.
+     * @return Updated offset, after the UUID has been written.
+     * @see #putUUID(UUID, byte[], int)
+     */
+    public static int putUUID(long msb, long lsb, byte[] dst, int offset) {
+        ARRAY_VIEW.set(dst, offset, msb);
+        ARRAY_VIEW.set(dst, offset + Long.BYTES, lsb);
+        return offset + BYTES;
+    }
+
+    /**
+     * Reads a UUID from a byte array at a given offset.
+     * @param src Source array.
+     * @param offset Current offset to start reading.
+     * @return Parsed UUID
+     * @see #putUUID(UUID, byte[], int)
+     */
+    public static @NotNull UUID getUUID(byte[] src, int offset) {
+        return new UUID(getMostSignificantBits(src, offset), getLeastSignificantBits(src, offset));
+    }
+
+    /** Reads the most significant bits of a UUID from a byte array at a given offset, without creating a UUID. */
+    public static long getMostSignificantBits(byte[] src, int offset) {
+        return (long) ARRAY_VIEW.get(src, offset);
+    }
+
+    /** Reads the least significant bits of a UUID from a byte array at a given offset, without creating a UUID. */
+    public static long getLeastSignificantBits(byte[] src, int offset) {
+        return (long) ARRAY_VIEW.get(src, offset + Long.BYTES);
+    }
+
+    /**
+     * Writes the bytes of a UUID to a {@link ByteBuffer} at its current position, in the same order as
+     * {@link #toBytes(UUID)} (regardless of the buffer's byte order). The position is incremented by {@link #BYTES}.
+     * @throws BufferOverflowException if there are less than {@link #BYTES} bytes remaining.
+     */
+    public static void putUUID(@NotNull UUID uuid, @NotNull ByteBuffer dst) {
+        int position = dst.position();
+        if (dst.limit() - position < BYTES)
+            throw new BufferOverflowException();
+        BUFFER_VIEW.set(dst, position, uuid.getMostSignificantBits());
+        BUFFER_VIEW.set(dst, position + Long.BYTES, uuid.getLeastSignificantBits());
+        dst.position(position + BYTES);
+    }
+
+    /**
+     * Reads a UUID from a {@link ByteBuffer} at its current position. The position is incremented by {@link #BYTES}.
+     * @throws BufferUnderflowException if there are less than {@link #BYTES} bytes remaining.
+     * @see #putUUID(UUID, ByteBuffer)
+     */
+    public static @NotNull UUID getUUID(@NotNull ByteBuffer src) {
+        int position = src.position();
+        if (src.limit() - position < BYTES)
+            throw new BufferUnderflowException();
+        long msb = (long) BUFFER_VIEW.get(src, position);
+        long lsb = (long) BUFFER_VIEW.get(src, position + Long.BYTES);
+        src.position(position + BYTES);
+        return new UUID(msb, lsb);
+    }
+
+    /* - - - */
+
+    /**
+     * Creates time-based UUIDs (version 7, as specified in
+     * <a href="https://www.rfc-editor.org/rfc/rfc9562#section-5.7">RFC 9562</a>). Unlike {@link UUID#randomUUID()}
+     * this does not use {@link java.security.SecureRandom}, and the created UUIDs are ordered by their creation time,
+     * which keeps storage indices local.
+     * <p> Layout (most significant bits first):
+     * <pre> {@code
+     * 48 bits  unix timestamp in milliseconds
+     *  4 bits  version (7)
+     * 12 bits  counter
+     *  2 bits  variant (0b10)
+     * 16 bits  node id
+     * 46 bits  random
+     * } </pre>
+     * Each thread has its own timestamp and counter, so generating does not require any synchronization. The counter
+     * starts at a random value below 2048 each millisecond and is incremented for each UUID created in the same
+     * millisecond. If it overflows, or the clock moves backwards, the timestamp of the thread is advanced instead.
+     * Therefore, UUIDs created by the same thread are strictly increasing, and UUIDs created by different threads are
+     * ordered by their millisecond. The node id distinguishes UUIDs of different generators (e.g. different servers),
+     * and the random bits distinguish UUIDs created by different threads at the same time.
+     * <p> As the timestamp will not use the most significant bit until the year 6429, {@link UUID#compareTo(UUID)} and
+     * the byte order of {@link #toBytes(UUID)} both reflect the creation order.
+     */
+    public static final class TimeBasedGenerator {
+        private static final long VERSION = 7L << 12;
+        private static final long VARIANT = 2L << 62;
+
+        private final long node;
+        private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+        /**
+         * Creates a new generator.
+         * @param node Node id (lowest 16 bits are used), which should be unique across all generators that create
+         *             UUIDs for the same purpose.
+         */
+        public TimeBasedGenerator(int node) {
+            this.node = (node & 0xFFFFL) << 46;
+        }
+
+        /** Creates a new time-based UUID. */
+        public @NotNull UUID next() {
+            final State state = this.state.get();
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+            long now = System.currentTimeMillis();
+            if (now > state.millis) {
+                state.millis  = now;
+                state.counter = random.nextInt(1 << 11);
+            } else if (++state.counter > 0xFFF) {
+                // counter overflow: borrow the next millisecond
+                state.millis++;
+                state.counter = 0;
+            }
+
+            long msb = (state.millis << 16) | VERSION | state.counter;
+            long lsb = VARIANT | node | (random.nextLong() & 0x3FFFFFFFFFFFL);
+            return new UUID(msb, lsb);
+        }
+
+        private static final class State {
+            private long millis = -1;
+            private int counter;
+        }
     }
 }
@@ -2,6 +2,11 @@ package de.turtleboi.lib;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 /**
@@ -36,11 +41,26 @@ import java.util.Arrays;
  * way to store integers in byte arrays. Integers that make use of the most significant bits of their respective data
  * type will take up more space when represented as a varint, as the leading continuation-bits will take up 1/8 of each
  * byte. If such values are suspected then it is recommended not to use varints, if possible.
+ * <p> This is especially true for negative values, as their sign bit is the most significant bit. Signed values that
+ * are close to 0 should be written with {@link #putSignedVarInt(int, byte[], int)}, which uses ZigZag encoding to map
+ * them to small unsigned values first. Sorted sequences (like timestamps or ids) can be written as deltas with
+ * {@link #putDeltaInts(int[], byte[], int)}.
  */
 public class VarInts {
     /** Utility class */
     private VarInts() { }
 
+    /** Reads 8 bytes of a byte array as a single little endian long. */
+    private static final VarHandle LONG_VIEW =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /** The continuation bit of each byte in a little endian 8-byte word. */
+    private static final long CONTINUATION_BITS = 0x8080808080808080L;
+    /** The terminating bytes of a word that starts with four 2-byte varints. */
+    private static final long TWO_BYTE_STOPS    = 0x8000800080008000L;
+    /** The terminating bytes of a word that starts with two 3-byte varints (and the first 2 bytes of another one). */
+    private static final long THREE_BYTE_STOPS  = 0x0000800000800000L;
+
     /** Returns the necessary encoding size in bytes to represent a 32-bit varint. */
     public static int varIntSize(int i) {
         int result = 0;
@@ -82,38 +102,232 @@ public class VarInts {
     /**
      * Reads a 32-bit varint from {@code src} at a provided offset and stores it in {@code val}. This will return the
      * new offset, after the int was read.
+     * <p> The loop is unrolled, so small values (1 or 2 bytes) are returned without any further checks.
      * @param src Source array.
      * @param offset Current offset to start reading.
      * @param val The value of the varint will be written to the first index (0).
      * @return Updated offset, after the varint has been read.
      */
     public static int getVarInt(byte[] src, int offset, int[] val) {
-        // result value, will be written 7 bits at a time
-        int result = 0;
-        // current shift for result, so new bits are properly read
-        int shift = 0;
-        // payload buffer for the 7 bits
-        int b;
+        return getVarInt(src, offset, val, 0);
+    }
 
-        do {
-            if (shift >= 32)
-                throw new IndexOutOfBoundsException("Varint-32 too long");
+    /** Reads a 32-bit varint from {@code src} at a provided offset and stores it in {@code dst} at {@code index}. */
+    private static int getVarInt(byte[] src, int offset, int[] dst, int index) {
+        // a non-negative byte does not have the continuation bit set
+        int b = src[offset++];
+        if (b >= 0) {
+            dst[index] = b;
+            return offset;
+        }
+        int result = b & 0x7F;
 
-            // read 7 bits + continuation bit
-            b = src[offset++];
+        if ((b = src[offset++]) >= 0) {
+            dst[index] = result | (b << 7);
+            return offset;
+        }
+        result |= (b & 0x7F) << 7;
 
-            // write bits to result int
-            result |= (b & 0x7F) << shift;
-            // increment, so bits are shifted properly in the next iteration
-            shift += 7;
-        } while (/* check continuation bit */ (b & 0x80) != 0);
+        if ((b = src[offset++]) >= 0) {
+            dst[index] = result | (b << 14);
+            return offset;
+        }
+        result |= (b & 0x7F) << 14;
+
+        if ((b = src[offset++]) >= 0) {
+            dst[index] = result | (b << 21);
+            return offset;
+        }
+        result |= (b & 0x7F) << 21;
+
+        // the 5th byte may only contribute the 4 most significant bits and must not have a continuation bit
+        if ((b = src[offset++]) < 0)
+            throw new IndexOutOfBoundsException("Varint-32 too long");
+
+        dst[index] = result | (b << 28);
+        return offset;
+    }
+
+    /**
+     * Reads {@code count} 32-bit varints from {@code src}, starting at a provided offset, and writes them to
+     * {@code dst}, starting at index 0. This will return the new offset, after all ints have been read.
+     * <p> As long as at least 8 bytes are remaining, they are read as a single 8-byte word and the bytes that terminate
+     * a varint are located by masking the continuation bits. Words that consist of 1-, 2- or 3-byte varints only are
+     * decoded by straight-line code. In any other word, every varint that ends within the word is decoded by
+     * concatenating the 7-bit groups in front of its terminating byte without branching, so mixed lengths do not cause
+     * branch mispredictions. The remaining bytes are decoded one at a time.
+     * @param src Source array.
+     * @param offset Current offset to start reading.
+     * @param dst Destination array.
+     * @param count Amount of varints to read.
+     * @return Updated offset, after all varints have been read.
+     */
+    public static int getVarInts(byte[] src, int offset, int[] dst, int count) {
+        final int wordLimit = src.length - Long.BYTES;
+
+        int i = 0;
+        while (offset <= wordLimit) {
+            long word = (long) LONG_VIEW.get(src, offset);
+
+            // each set bit marks a byte that terminates a varint
+            long stops = ~word & CONTINUATION_BITS;
 
-        // basically "return" int value
-        val[0] = result;
-        // actually return updated offset
+            // fast paths for words of equally long varints, their offset does not depend on the decoded word
+            if (stops == CONTINUATION_BITS) {
+                if (i + 8 > count) break;
+                for (int j = 0; j < 8; j++)
+                    dst[i + j] = (int) (word >>> (j << 3)) & 0x7F;
+                i += 8;
+                offset += 8;
+                continue;
+            }
+            if (stops == TWO_BYTE_STOPS) {
+                if (i + 4 > count) break;
+                for (int j = 0; j < 4; j++) {
+                    int x = (int) (word >>> (j << 4));
+                    dst[i + j] = (x & 0x7F) | ((x >>> 1) & 0x3F80);
+                }
+                i += 4;
+                offset += 8;
+                continue;
+            }
+            if (stops == THREE_BYTE_STOPS) {
+                if (i + 2 > count) break;
+                for (int j = 0; j < 2; j++) {
+                    int x = (int) (word >>> (j * 24));
+                    dst[i + j] = (x & 0x7F) | ((x >>> 1) & 0x3F80) | ((x >>> 2) & 0x1FC000);
+                }
+                i += 2;
+                offset += 6;
+                continue;
+            }
+
+            // a word without any terminating byte contains a varint that is too long, which the scalar decoder reports
+            int varints = Long.bitCount(stops);
+            if (varints == 0 || i + varints > count) break;
+
+            // the next word starts behind the last terminating byte, which is known before any varint is decoded
+            int next = offset + ((Long.SIZE - Long.numberOfLeadingZeros(stops)) >>> 3);
+
+            int start = 0;
+            for (int j = 0; j < varints; j++) {
+                int end = Long.numberOfTrailingZeros(stops);
+                if (end - start > 39)
+                    throw new IndexOutOfBoundsException("Varint-32 too long");
+
+                // drop all bytes behind the terminating byte and in front of the first byte
+                long x = (word & (stops ^ (stops - 1))) >>> start;
+
+                dst[i + j] = (int) ((x & 0x7FL)
+                        | ((x >>> 1) & 0x3F80L)
+                        | ((x >>> 2) & 0x1FC000L)
+                        | ((x >>> 3) & 0xFE00000L)
+                        | ((x >>> 4) & 0xF0000000L));
+
+                start = end + 1;
+                stops &= stops - 1;
+            }
+            i += varints;
+            offset = next;
+        }
+
+        // not enough bytes or varints left to read whole words
+        for (; i < count; i++)
+            offset = getVarInt(src, offset, dst, i);
         return offset;
     }
 
+    /**
+     * Counts the varints in {@code src} by counting bytes without a continuation bit. This is done 8 bytes at a time.
+     * @param src Source array.
+     * @return Amount of terminating bytes in the array.
+     */
+    public static int countVarInts(byte[] src) {
+        int count = 0;
+        int i = 0;
+        for (; i <= src.length - Long.BYTES; i += Long.BYTES)
+            count += Long.bitCount(~(long) LONG_VIEW.get(src, i) & CONTINUATION_BITS);
+        for (; i < src.length; i++)
+            if (src[i] >= 0)
+                count++;
+        return count;
+    }
+
+    /* - - - */
+
+    /**
+     * Encodes an int into a 32-bit varint and writes it to a buffer at its current position, which is advanced.
+     * @param v varint value.
+     * @param dst Destination buffer.
+     * @throws java.nio.BufferOverflowException if the buffer does not have enough space.
+     */
+    public static void putVarInt(int v, @NotNull ByteBuffer dst) {
+        while ((v & ~0x7F) != 0) {
+            dst.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        dst.put((byte) v);
+    }
+
+    /**
+     * Encodes an int into a 32-bit varint and writes it to a buffer at a given index. The position of the buffer is not
+     * changed.
+     * @param v varint value.
+     * @param dst Destination buffer.
+     * @param index Current index to write to.
+     * @return Updated index, after the varint has been written.
+     */
+    public static int putVarInt(int v, @NotNull ByteBuffer dst, int index) {
+        while ((v & ~0x7F) != 0) {
+            dst.put(index++, (byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        dst.put(index++, (byte) v);
+        return index;
+    }
+
+    /**
+     * Reads a 32-bit varint from a buffer at its current position, which is advanced.
+     * @param src Source buffer.
+     * @return The value of the varint.
+     * @throws BufferUnderflowException if the buffer ends before the varint does.
+     * @throws IndexOutOfBoundsException if the varint is longer than 5 bytes.
+     */
+    public static int getVarInt(@NotNull ByteBuffer src) {
+        int b = src.get();
+        if (b >= 0) return b;
+        int result = b & 0x7F;
+
+        for (int shift = 7; shift < 28; shift += 7) {
+            if ((b = src.get()) >= 0)
+                return result | (b << shift);
+            result |= (b & 0x7F) << shift;
+        }
+
+        if ((b = src.get()) < 0)
+            throw new IndexOutOfBoundsException("Varint-32 too long");
+        return result | (b << 28);
+    }
+
+    /**
+     * Returns the length of the 32-bit varint at a given index of a buffer, without reading it. This allows to check
+     * whether a varint has been received completely before reading it.
+     * @param src Source buffer.
+     * @param index Index of the first byte of the varint.
+     * @return The length of the varint in bytes, or {@code 0} if the buffer (its limit) ends before the varint does.
+     * @throws IndexOutOfBoundsException if the varint is longer than 5 bytes.
+     */
+    public static int varIntLength(@NotNull ByteBuffer src, int index) {
+        int limit = Math.min(src.limit(), index + 5);
+        for (int i = index; i < limit; i++)
+            if (src.get(i) >= 0)
+                return i - index + 1;
+
+        if (limit - index == 5)
+            throw new IndexOutOfBoundsException("Varint-32 too long");
+        return 0;
+    }
+
     public static byte[] intToBytes(int v) {
         byte[] bytes = new byte[Integer.BYTES];
         putVarInt(v, bytes, 0);
@@ -121,9 +335,15 @@ public class VarInts {
     }
 
     public static int bytesToInt(byte[] bytes) {
-        int[] val = new int[1];
-        getVarInt(bytes, 0, val);
-        return val[0];
+        int result = 0;
+        for (int i = 0, shift = 0; ; i++, shift += 7) {
+            if (shift >= 35)
+                throw new IndexOutOfBoundsException("Varint-32 too long");
+            int b = bytes[i];
+            result |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return result;
+        }
     }
 
     public static byte[] intsToBytes(int[] v) {
@@ -145,32 +365,16 @@ public class VarInts {
     }
 
     public static int[] bytesToInts(byte[] bytes) {
-        int length = 0;
-        for (byte b : bytes)
-            if ((b & 0x80) == 0)
-                length++;
-        int[] data = new int[length];
-        int offset = 0;
-        int[] buffer = new int[1];
-        for (int i = 0; i < data.length; i++) {
-            offset = getVarInt(bytes, offset, buffer);
-            data[i] = buffer[0];
-        }
+        int[] data = new int[countVarInts(bytes)];
+        getVarInts(bytes, 0, data, data.length);
         return data;
     }
 
     public static Integer[] bytesToIntegers(byte[] bytes) {
-        int length = 0;
-        for (byte b : bytes)
-            if ((b & 0x80) == 0)
-                length++;
-        Integer[] data = new Integer[length];
-        int offset = 0;
-        int[] buffer = new int[1];
-        for (int i = 0; i < data.length; i++) {
-            offset = getVarInt(bytes, offset, buffer);
-            data[i] = buffer[0];
-        }
+        int[] values = bytesToInts(bytes);
+        Integer[] data = new Integer[values.length];
+        for (int i = 0; i < data.length; i++)
+            data[i] = values[i];
         return data;
     }
 
@@ -208,15 +412,106 @@ public class VarInts {
      * @return Updated offset, after the varint has been read.
      */
     public static int getVarLong(byte[] src, int offset, long[] val) {
-        long result = 0;
-        int shift = 0, b;
+        return getVarLong(src, offset, val, 0);
+    }
+
+    /** Reads a 64-bit varint from {@code src} at a provided offset and stores it in {@code dst} at {@code index}. */
+    private static int getVarLong(byte[] src, int offset, long[] dst, int index) {
+        long b = src[offset++];
+        if (b >= 0) {
+            dst[index] = b;
+            return offset;
+        }
+        long result = b & 0x7F;
+        if ((b = src[offset++]) >= 0) {
+            dst[index] = result | (b << 7);
+            return offset;
+        }
+        result |= (b & 0x7F) << 7;
+
+        int shift = 14;
         do {
             if (shift >= 64)
                 throw new IndexOutOfBoundsException("Varint-64 too long");
-            result |= (long) ((b = src[offset++]) & 0x7F) << shift;
+            result |= ((b = src[offset++]) & 0x7F) << shift;
             shift += 7;
-        } while ((b & 0x80) != 0);
-        val[0] = result;
+        } while (b < 0);
+        dst[index] = result;
+        return offset;
+    }
+
+    /**
+     * Reads {@code count} 64-bit varints from {@code src}, starting at a provided offset, and writes them to
+     * {@code dst}, starting at index 0. This will return the new offset, after all longs have been read.
+     * <p> Words of 1-, 2- or 3-byte varints are decoded by straight-line code, like by
+     * {@link #getVarInts(byte[], int, int[], int)}. Any other word only yields its first varint: 64-bit values rarely
+     * share a word with more than one other varint, so decoding all varints of the word (as the 32-bit variant does)
+     * costs more in bit counting and loop overhead than it saves in loads. Varints of 9 or 10 bytes are decoded one byte
+     * at a time.
+     * @param src Source array.
+     * @param offset Current offset to start reading.
+     * @param dst Destination array.
+     * @param count Amount of varints to read.
+     * @return Updated offset, after all varints have been read.
+     * @see #getVarInts(byte[], int, int[], int)
+     */
+    public static int getVarLongs(byte[] src, int offset, long[] dst, int count) {
+        final int wordLimit = src.length - Long.BYTES;
+
+        int i = 0;
+        for (; i < count && offset <= wordLimit; i++) {
+            long word  = (long) LONG_VIEW.get(src, offset);
+            long stops = ~word & CONTINUATION_BITS;
+
+            // fast paths for words of equally long varints, the loop increments i once more
+            if (stops == CONTINUATION_BITS && i + Long.BYTES <= count) {
+                for (int j = 0; j < Long.BYTES; j++)
+                    dst[i + j] = (word >>> (j << 3)) & 0x7F;
+                i += Long.BYTES - 1;
+                offset += Long.BYTES;
+                continue;
+            }
+            if (stops == TWO_BYTE_STOPS && i + 4 <= count) {
+                for (int j = 0; j < 4; j++) {
+                    long x = word >>> (j << 4);
+                    dst[i + j] = (x & 0x7F) | ((x >>> 1) & 0x3F80);
+                }
+                i += 3;
+                offset += 8;
+                continue;
+            }
+            if (stops == THREE_BYTE_STOPS && i + 2 <= count) {
+                for (int j = 0; j < 2; j++) {
+                    long x = word >>> (j * 24);
+                    dst[i + j] = (x & 0x7F) | ((x >>> 1) & 0x3F80) | ((x >>> 2) & 0x1FC000);
+                }
+                i += 1;
+                offset += 6;
+                continue;
+            }
+
+            // more than 8 bytes
+            if (stops == 0) {
+                offset = getVarLong(src, offset, dst, i);
+                continue;
+            }
+
+            int  bit = Long.numberOfTrailingZeros(stops);
+            long x   = word & (stops ^ (stops - 1));
+
+            dst[i] = (x & 0x7FL)
+                    | ((x >>> 1) & 0x3F80L)
+                    | ((x >>> 2) & 0x1FC000L)
+                    | ((x >>> 3) & 0xFE00000L)
+                    | ((x >>> 4) & 0x7F0000000L)
+                    | ((x >>> 5) & 0x3F800000000L)
+                    | ((x >>> 6) & 0x1FC0000000000L)
+                    | ((x >>> 7) & 0xFE000000000000L);
+            offset += (bit >>> 3) + 1;
+        }
+
+        for (; i < count; i++)
+            offset = getVarLong(src, offset, dst, i);
         return offset;
     }
 
@@ -227,9 +522,15 @@ public class VarInts {
     }
 
     public static long bytesToLong(byte[] bytes) {
-        long[] val = new long[1];
-        getVarLong(bytes, 0, val);
-        return val[0];
+        long result = 0;
+        for (int i = 0, shift = 0; ; i++, shift += 7) {
+            if (shift >= 64)
+                throw new IndexOutOfBoundsException("Varint-64 too long");
+            long b = bytes[i];
+            result |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return result;
+        }
     }
 
     public static byte[] longsToBytes(long[] v) {
@@ -251,32 +552,204 @@ public class VarInts {
     }
 
     public static long[] bytesToLongs(byte[] bytes) {
-        int length = 0;
-        for (byte b : bytes)
-            if ((b & 0x80) == 0)
-                length++;
-        long[] data = new long[length];
-        int offset = 0;
-        long[] buffer = new long[1];
-        for (int i = 0; i < data.length; i++) {
-            offset = getVarLong(bytes, offset, buffer);
-            data[i] = buffer[0];
-        }
+        long[] data = new long[countVarInts(bytes)];
+        getVarLongs(bytes, 0, data, data.length);
         return data;
     }
 
     public static Long[] bytesToBoxedLongs(byte[] bytes) {
-        int length = 0;
-        for (byte b : bytes)
-            if ((b & 0x80) == 0)
-                length++;
-        Long[] data = new Long[length];
-        int offset = 0;
-        long[] buffer = new long[1];
-        for (int i = 0; i < data.length; i++) {
-            offset = getVarLong(bytes, offset, buffer);
-            data[i] = buffer[0];
+        long[] values = bytesToLongs(bytes);
+        Long[] data = new Long[values.length];
+        for (int i = 0; i < data.length; i++)
+            data[i] = values[i];
+        return data;
+    }
+
+    /* - - - */
+
+    // ZigZag encoding maps signed integers to unsigned integers, so that values with a small absolute value also have
+    // a small varint encoding: 0 -> 0, -1 -> 1, 1 -> 2, -2 -> 3, 2 -> 4, ...
+
+    /** Maps a signed 32-bit integer to an unsigned one, so that values close to 0 result in small varints. */
+    public static int zigZagEncode(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+
+    /** Reverts {@link #zigZagEncode(int)}. */
+    public static int zigZagDecode(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /** Maps a signed 64-bit integer to an unsigned one, so that values close to 0 result in small varints. */
+    public static long zigZagEncode(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    /** Reverts {@link #zigZagEncode(long)}. */
+    public static long zigZagDecode(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /** Returns the necessary encoding size in bytes to represent a ZigZag-encoded 32-bit varint. */
+    public static int signedVarIntSize(int i) {
+        return varIntSize(zigZagEncode(i));
+    }
+
+    /** Returns the necessary encoding size in bytes to represent a ZigZag-encoded 64-bit varint. */
+    public static int signedVarLongSize(long l) {
+        return varLongSize(zigZagEncode(l));
+    }
+
+    /**
+     * Encodes a signed int into a ZigZag-encoded 32-bit varint and writes it to a byte array at a given offset.
+     * @param v varint value.
+     * @param dst Destination array.
+     * @param offset Current offset to write to.
+     * @return Updated offset, after the varint has been written.
+     * @see #zigZagEncode(int)
+     */
+    public static int putSignedVarInt(int v, byte[] dst, int offset) {
+        return putVarInt(zigZagEncode(v), dst, offset);
+    }
+
+    /**
+     * Reads a ZigZag-encoded 32-bit varint from {@code src} at a provided offset and stores it in {@code val}.
+     * @param src Source array.
+     * @param offset Current offset to start reading.
+     * @param val The value of the varint will be written to the first index (0).
+     * @return Updated offset, after the varint has been read.
+     * @see #zigZagDecode(int)
+     */
+    public static int getSignedVarInt(byte[] src, int offset, int[] val) {
+        offset = getVarInt(src, offset, val);
+        val[0] = zigZagDecode(val[0]);
+        return offset;
+    }
+
+    /**
+     * Encodes a signed long into a ZigZag-encoded 64-bit varint and writes it to a byte array at a given offset.
+     * @param v varint value.
+     * @param dst Destination array.
+     * @param offset Current offset to write to.
+     * @return Updated offset, after the varint has been written.
+     * @see #zigZagEncode(long)
+     */
+    public static int putSignedVarLong(long v, byte[] dst, int offset) {
+        return putVarLong(zigZagEncode(v), dst, offset);
+    }
+
+    /**
+     * Reads a ZigZag-encoded 64-bit varint from {@code src} at a provided offset and stores it in {@code val}.
+     * @param src Source array.
+     * @param offset Current offset to start reading.
+     * @param val The value of the varint will be written to the first index (0).
+     * @return Updated offset, after the varint has been read.
+     * @see #zigZagDecode(long)
+     */
+    public static int getSignedVarLong(byte[] src, int offset, long[] val) {
+        offset = getVarLong(src, offset, val);
+        val[0] = zigZagDecode(val[0]);
+        return offset;
+    }
+
+    /* - - - */
+
+    // Delta encoding stores the difference of each value to its predecessor (the first value is stored as is). For
+    // sorted or nearly sorted sequences these differences are a lot smaller than the values themselves. Differences
+    // are ZigZag-encoded, so an unsorted sequence is still encoded correctly, just less compact.
+
+    /**
+     * Encodes a sequence of ints as ZigZag-encoded deltas and writes them to a byte array at a given offset.
+     * <p> {@code dst} must be able to hold up to {@code 5} bytes per value.
+     * @param v Values, ideally sorted.
+     * @param dst Destination array.
+     * @param offset Current offset to write to.
+     * @return Updated offset, after all values have been written.
+     */
+    public static int putDeltaInts(int[] v, byte[] dst, int offset) {
+        int prev = 0;
+        for (int i : v) {
+            // overflows are fine, as they are reverted by the same overflow when decoding
+            offset = putVarInt(zigZagEncode(i - prev), dst, offset);
+            prev = i;
         }
+        return offset;
+    }
+
+    /**
+     * Reads {@code count} delta-encoded ints from {@code src}, starting at a provided offset, and writes the restored
+     * values to {@code dst}, starting at index 0.
+     * @param src Source array.
+     * @param offset Current offset to start reading.
+     * @param dst Destination array.
+     * @param count Amount of values to read.
+     * @return Updated offset, after all values have been read.
+     * @see #putDeltaInts(int[], byte[], int)
+     */
+    public static int getDeltaInts(byte[] src, int offset, int[] dst, int count) {
+        offset = getVarInts(src, offset, dst, count);
+        int prev = 0;
+        for (int i = 0; i < count; i++)
+            dst[i] = prev += zigZagDecode(dst[i]);
+        return offset;
+    }
+
+    public static byte[] deltaIntsToBytes(int[] v) {
+        // maximum array size
+        byte[] bytes = new byte[v.length * 5];
+        return Arrays.copyOf(bytes, putDeltaInts(v, bytes, 0));
+    }
+
+    public static int[] bytesToDeltaInts(byte[] bytes) {
+        int[] data = new int[countVarInts(bytes)];
+        getDeltaInts(bytes, 0, data, data.length);
+        return data;
+    }
+
+    /**
+     * Encodes a sequence of longs as ZigZag-encoded deltas and writes them to a byte array at a given offset.
+     * <p> {@code dst} must be able to hold up to {@code 10} bytes per value.
+     * @param v Values, ideally sorted.
+     * @param dst Destination array.
+     * @param offset Current offset to write to.
+     * @return Updated offset, after all values have been written.
+     */
+    public static int putDeltaLongs(long[] v, byte[] dst, int offset) {
+        long prev = 0;
+        for (long l : v) {
+            offset = putVarLong(zigZagEncode(l - prev), dst, offset);
+            prev = l;
+        }
+        return offset;
+    }
+
+    /**
+     * Reads {@code count} delta-encoded longs from {@code src}, starting at a provided offset, and writes the restored
+     * values to {@code dst}, starting at index 0.
+     * @param src Source array.
+     * @param offset Current offset to start reading.
+     * @param dst Destination array.
+     * @param count Amount of values to read.
+     * @return Updated offset, after all values have been read.
+     * @see #putDeltaLongs(long[], byte[], int)
+     */
+    public static int getDeltaLongs(byte[] src, int offset, long[] dst, int count) {
+        offset = getVarLongs(src, offset, dst, count);
+        long prev = 0;
+        for (int i = 0; i < count; i++)
+            dst[i] = prev += zigZagDecode(dst[i]);
+        return offset;
+    }
+
+    public static byte[] deltaLongsToBytes(long[] v) {
+        // maximum array size
+        byte[] bytes = new byte[v.length * 10];
+        return Arrays.copyOf(bytes, putDeltaLongs(v, bytes, 0));
+    }
+
+    public static long[] bytesToDeltaLongs(byte[] bytes) {
+        long[] data = new long[countVarInts(bytes)];
+        getDeltaLongs(bytes, 0, data, data.length);
         return data;
     }
 }
\ No newline at end of file
@@ -0,0 +1,231 @@
+package de.turtleboi.lib.bitmap;
+
+import de.turtleboi.lib.VarInts;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/** A container that stores its values in a sorted {@code char[]}. Used for sparse sets. */
+final class ArrayContainer extends Container {
+    /** Above this size a {@link BitmapContainer} takes up less memory. */
+    static final int MAX_SIZE = 4096;
+
+    char[] content;
+    int cardinality;
+
+    ArrayContainer() {
+        this(new char[4], 0);
+    }
+
+    ArrayContainer(char[] content, int cardinality) {
+        this.content = content;
+        this.cardinality = cardinality;
+    }
+
+    @Override
+    @NotNull Container add(char x) {
+        int index = Arrays.binarySearch(content, 0, cardinality, x);
+        if (index >= 0)
+            return this;
+
+        if (cardinality >= MAX_SIZE)
+            return toBitmap().add(x);
+
+        index = -index - 1;
+        if (cardinality == content.length)
+            content = Arrays.copyOf(content, Math.min(MAX_SIZE, cardinality * 2));
+        System.arraycopy(content, index, content, index + 1, cardinality - index);
+        content[index] = x;
+        cardinality++;
+        return this;
+    }
+
+    @Override
+    @NotNull Container remove(char x) {
+        int index = Arrays.binarySearch(content, 0, cardinality, x);
+        if (index < 0)
+            return this;
+
+        System.arraycopy(content, index + 1, content, index, cardinality - index - 1);
+        cardinality--;
+        return this;
+    }
+
+    @Override
+    boolean contains(char x) {
+        return Arrays.binarySearch(content, 0, cardinality, x) >= 0;
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    int nextValue(int from) {
+        if (from >= BitmapContainer.SIZE)
+            return -1;
+        int index = Arrays.binarySearch(content, 0, cardinality, (char) from);
+        if (index < 0)
+            index = -index - 1;
+        return index < cardinality ? content[index] : -1;
+    }
+
+    @Override
+    void forEach(int high, @NotNull IntConsumer consumer) {
+        for (int i = 0; i < cardinality; i++)
+            consumer.accept(high | content[i]);
+    }
+
+    @Override
+    @NotNull ArrayContainer copy() {
+        return new ArrayContainer(Arrays.copyOf(content, Math.max(cardinality, 1)), cardinality);
+    }
+
+    @Override
+    int sizeInBytes() {
+        return cardinality * Character.BYTES;
+    }
+
+    @NotNull BitmapContainer toBitmap() {
+        BitmapContainer bitmap = new BitmapContainer();
+        for (int i = 0; i < cardinality; i++)
+            bitmap.bits.set(content[i]);
+        bitmap.cardinality = cardinality;
+        return bitmap;
+    }
+
+    /* - - - */
+
+    @NotNull ArrayContainer and(@NotNull ArrayContainer other) {
+        char[] result = new char[Math.min(cardinality, other.cardinality)];
+        int size = 0;
+        int i = 0, j = 0;
+        while (i < cardinality && j < other.cardinality) {
+            char a = content[i];
+            char b = other.content[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                result[size++] = a;
+                i++;
+                j++;
+            }
+        }
+        return new ArrayContainer(result, size);
+    }
+
+    @NotNull Container or(@NotNull ArrayContainer other) {
+        char[] result = new char[cardinality + other.cardinality];
+        int size = 0;
+        int i = 0, j = 0;
+        while (i < cardinality && j < other.cardinality) {
+            char a = content[i];
+            char b = other.content[j];
+            if (a <= b) {
+                result[size++] = a;
+                i++;
+                if (a == b) j++;
+            } else {
+                result[size++] = b;
+                j++;
+            }
+        }
+        while (i < cardinality)
+            result[size++] = content[i++];
+        while (j < other.cardinality)
+            result[size++] = other.content[j++];
+
+        ArrayContainer union = new ArrayContainer(result, size);
+        return size > MAX_SIZE ? union.toBitmap() : union;
+    }
+
+    @NotNull ArrayContainer andNot(@NotNull ArrayContainer other) {
+        char[] result = new char[cardinality];
+        int size = 0;
+        int i = 0, j = 0;
+        while (i < cardinality) {
+            char a = content[i];
+            while (j < other.cardinality && other.content[j] < a)
+                j++;
+            if (j == other.cardinality || other.content[j] != a)
+                result[size++] = a;
+            i++;
+        }
+        return new ArrayContainer(result, size);
+    }
+
+    boolean intersects(@NotNull ArrayContainer other) {
+        int i = 0, j = 0;
+        while (i < cardinality && j < other.cardinality) {
+            char a = content[i];
+            char b = other.content[j];
+            if (a < b)
+                i++;
+            else if (a > b)
+                j++;
+            else
+                return true;
+        }
+        return false;
+    }
+
+    boolean intersects(@NotNull BitmapContainer bitmap) {
+        for (int i = 0; i < cardinality; i++)
+            if (bitmap.bits.get(content[i]))
+                return true;
+        return false;
+    }
+
+    /** Returns all values that are ({@code keep == true}) or are not ({@code keep == false}) in the bitmap. */
+    @NotNull ArrayContainer filter(@NotNull BitmapContainer bitmap, boolean keep) {
+        char[] result = new char[cardinality];
+        int size = 0;
+        for (int i = 0; i < cardinality; i++)
+            if (bitmap.bits.get(content[i]) == keep)
+                result[size++] = content[i];
+        return new ArrayContainer(result, size);
+    }
+
+    /* - - - */
+
+    @Override
+    int maxSerializedSize() {
+        return 1 + 5 + cardinality * 3;
+    }
+
+    @Override
+    int write(byte[] dst, int offset) {
+        dst[offset++] = TYPE_ARRAY;
+        offset = VarInts.putVarInt(cardinality, dst, offset);
+
+        // values are sorted, so only the (positive) differences are written
+        int prev = 0;
+        for (int i = 0; i < cardinality; i++) {
+            offset = VarInts.putVarInt(content[i] - prev, dst, offset);
+            prev = content[i];
+        }
+        return offset;
+    }
+
+    static @NotNull ArrayContainer read(byte[] src, int[] offset) {
+        int[] buffer = new int[1];
+        offset[0] = VarInts.getVarInt(src, offset[0], buffer);
+
+        // each value takes at least one byte
+        int cardinality = buffer[0];
+        if (cardinality < 0 || cardinality > MAX_SIZE || cardinality > src.length - offset[0])
+            throw new IllegalArgumentException("Invalid array container size: " + cardinality);
+        char[] content = new char[Math.max(cardinality, 1)];
+
+        int prev = 0;
+        for (int i = 0; i < cardinality; i++) {
+            offset[0] = VarInts.getVarInt(src, offset[0], buffer);
+            content[i] = (char) (prev += buffer[0]);
+        }
+        return new ArrayContainer(content, cardinality);
+    }
+}
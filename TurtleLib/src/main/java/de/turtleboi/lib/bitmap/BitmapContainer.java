@@ -0,0 +1,150 @@
+package de.turtleboi.lib.bitmap;
+
+import de.turtleboi.lib.BitVector;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.IntConsumer;
+
+/** A container that stores one bit for each of the 65536 possible values. Used for dense sets. */
+final class BitmapContainer extends Container {
+    static final int SIZE = 1 << 16;
+
+    final BitVector bits;
+    int cardinality;
+
+    BitmapContainer() {
+        this(new BitVector(SIZE), 0);
+    }
+
+    BitmapContainer(@NotNull BitVector bits, int cardinality) {
+        this.bits = bits;
+        this.cardinality = cardinality;
+    }
+
+    @Override
+    @NotNull Container add(char x) {
+        if (!bits.get(x)) {
+            bits.set(x);
+            cardinality++;
+        }
+        return this;
+    }
+
+    @Override
+    @NotNull Container remove(char x) {
+        if (bits.get(x)) {
+            bits.clear(x);
+            cardinality--;
+            if (cardinality <= ArrayContainer.MAX_SIZE)
+                return toArray();
+        }
+        return this;
+    }
+
+    @Override
+    boolean contains(char x) {
+        return bits.get(x);
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    int nextValue(int from) {
+        return from < SIZE ? bits.nextSetBit(from) : -1;
+    }
+
+    @Override
+    void forEach(int high, @NotNull IntConsumer consumer) {
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1))
+            consumer.accept(high | i);
+    }
+
+    @Override
+    @NotNull BitmapContainer copy() {
+        return new BitmapContainer(bits.copy(), cardinality);
+    }
+
+    @Override
+    int sizeInBytes() {
+        return SIZE / Byte.SIZE;
+    }
+
+    @NotNull ArrayContainer toArray() {
+        char[] content = new char[Math.max(cardinality, 1)];
+        int size = 0;
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1))
+            content[size++] = (char) i;
+        return new ArrayContainer(content, size);
+    }
+
+    /** Returns an array container if the cardinality is low enough, otherwise this container. */
+    private @NotNull Container shrink() {
+        return cardinality <= ArrayContainer.MAX_SIZE ? toArray() : this;
+    }
+
+    /* - - - */
+
+    @NotNull Container and(@NotNull BitmapContainer other) {
+        BitVector result = bits.copy();
+        result.and(other.bits);
+        return new BitmapContainer(result, result.cardinality()).shrink();
+    }
+
+    @NotNull Container or(@NotNull BitmapContainer other) {
+        BitVector result = bits.copy();
+        result.or(other.bits);
+        return new BitmapContainer(result, result.cardinality());
+    }
+
+    @NotNull Container or(@NotNull ArrayContainer other) {
+        BitmapContainer result = copy();
+        for (int i = 0; i < other.cardinality; i++)
+            result.add(other.content[i]);
+        return result;
+    }
+
+    @NotNull Container andNot(@NotNull BitmapContainer other) {
+        BitVector result = bits.copy();
+        result.andNot(other.bits);
+        return new BitmapContainer(result, result.cardinality()).shrink();
+    }
+
+    @NotNull Container andNot(@NotNull ArrayContainer other) {
+        BitmapContainer result = copy();
+        for (int i = 0; i < other.cardinality; i++) {
+            char x = other.content[i];
+            if (result.bits.get(x)) {
+                result.bits.clear(x);
+                result.cardinality--;
+            }
+        }
+        return result.shrink();
+    }
+
+    /* - - - */
+
+    @Override
+    int maxSerializedSize() {
+        return 1 + SIZE / Byte.SIZE;
+    }
+
+    @Override
+    int write(byte[] dst, int offset) {
+        dst[offset++] = TYPE_BITMAP;
+        byte[] bytes = bits.toBytes();
+        System.arraycopy(bytes, 0, dst, offset, bytes.length);
+        return offset + bytes.length;
+    }
+
+    static @NotNull BitmapContainer read(byte[] src, int[] offset) {
+        byte[] bytes = new byte[SIZE / Byte.SIZE];
+        System.arraycopy(src, offset[0], bytes, 0, bytes.length);
+        offset[0] += bytes.length;
+
+        BitVector bits = BitVector.ofBytes(bytes, SIZE);
+        return new BitmapContainer(bits, bits.cardinality());
+    }
+}
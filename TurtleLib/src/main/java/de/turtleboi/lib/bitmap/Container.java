@@ -0,0 +1,138 @@
+package de.turtleboi.lib.bitmap;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A set of 16-bit values (the lower 16 bits of the values in a {@link RoaringBitmap}), stored as unsigned
+ * {@code char}s. Depending on the density of the set, a different implementation is used:
+ * <ul>
+ *     <li>{@link ArrayContainer}: Sorted array of up to {@link ArrayContainer#MAX_SIZE} values.</li>
+ *     <li>{@link BitmapContainer}: One bit for each of the 65536 possible values.</li>
+ *     <li>{@link RunContainer}: Sorted list of ranges. Only created by {@link #optimize()}.</li>
+ * </ul>
+ * Modifying operations return the container that should be used afterwards, which may be a different one if the
+ * container had to be converted to another type.
+ */
+abstract class Container {
+    static final byte TYPE_ARRAY  = 0;
+    static final byte TYPE_BITMAP = 1;
+    static final byte TYPE_RUN    = 2;
+
+    abstract @NotNull Container add(char x);
+
+    abstract @NotNull Container remove(char x);
+
+    abstract boolean contains(char x);
+
+    abstract int cardinality();
+
+    /** Returns the smallest value that is greater than or equal to {@code from}, or {@code -1} if there is none. */
+    abstract int nextValue(int from);
+
+    /** Passes each value of this container (combined with the high 16 bits) to the consumer, in ascending order. */
+    abstract void forEach(int high, @NotNull IntConsumer consumer);
+
+    abstract @NotNull Container copy();
+
+    /** Returns the memory footprint of the values in bytes, used to determine the most compact representation. */
+    abstract int sizeInBytes();
+
+    /** Returns an upper bound for the amount of bytes written by {@link #write(byte[], int)}. */
+    abstract int maxSerializedSize();
+
+    /** Writes the type and content of this container to {@code dst} and returns the updated offset. */
+    abstract int write(byte[] dst, int offset);
+
+    /* - - - */
+
+    /** Returns this container, or the equivalent array or bitmap container if this is a run container. */
+    @NotNull Container unrun() {
+        return this;
+    }
+
+    /** Returns a run container if that representation is the most compact one, otherwise this container. */
+    @NotNull Container optimize() {
+        RunContainer runs = RunContainer.of(this);
+        return runs.sizeInBytes() < this.sizeInBytes() ? runs : this;
+    }
+
+    /* - - - */
+
+    static @NotNull Container and(@NotNull Container a, @NotNull Container b) {
+        a = a.unrun();
+        b = b.unrun();
+
+        if (a instanceof ArrayContainer x) {
+            if (b instanceof ArrayContainer y)
+                return x.and(y);
+            return x.filter((BitmapContainer) b, true);
+        }
+        if (b instanceof ArrayContainer y)
+            return y.filter((BitmapContainer) a, true);
+        return ((BitmapContainer) a).and((BitmapContainer) b);
+    }
+
+    /** Returns {@code true} if the containers have at least one common value. Stops at the first one. */
+    static boolean intersects(@NotNull Container a, @NotNull Container b) {
+        if (a instanceof RunContainer x)
+            return x.intersects(b);
+        if (b instanceof RunContainer y)
+            return y.intersects(a);
+
+        if (a instanceof ArrayContainer x) {
+            if (b instanceof ArrayContainer y)
+                return x.intersects(y);
+            return x.intersects((BitmapContainer) b);
+        }
+        if (b instanceof ArrayContainer y)
+            return y.intersects((BitmapContainer) a);
+        return ((BitmapContainer) a).bits.intersects(((BitmapContainer) b).bits);
+    }
+
+    static @NotNull Container or(@NotNull Container a, @NotNull Container b) {
+        a = a.unrun();
+        b = b.unrun();
+
+        if (a instanceof ArrayContainer x) {
+            if (b instanceof ArrayContainer y)
+                return x.or(y);
+            return ((BitmapContainer) b).or(x);
+        }
+        if (b instanceof ArrayContainer y)
+            return ((BitmapContainer) a).or(y);
+        return ((BitmapContainer) a).or((BitmapContainer) b);
+    }
+
+    static @NotNull Container andNot(@NotNull Container a, @NotNull Container b) {
+        a = a.unrun();
+        b = b.unrun();
+
+        if (a instanceof ArrayContainer x) {
+            if (b instanceof ArrayContainer y)
+                return x.andNot(y);
+            return x.filter((BitmapContainer) b, false);
+        }
+        if (b instanceof ArrayContainer y)
+            return ((BitmapContainer) a).andNot(y);
+        return ((BitmapContainer) a).andNot((BitmapContainer) b);
+    }
+
+    /**
+     * Reads a container that has been written with {@link #write(byte[], int)}.
+     * @param src Source array.
+     * @param offset The offset to start reading at is read from the first index (0), and the updated offset is
+     *               written back to it.
+     * @return The container.
+     */
+    static @NotNull Container read(byte[] src, int[] offset) {
+        byte type = src[offset[0]++];
+        return switch (type) {
+            case TYPE_ARRAY  -> ArrayContainer.read(src, offset);
+            case TYPE_BITMAP -> BitmapContainer.read(src, offset);
+            case TYPE_RUN    -> RunContainer.read(src, offset);
+            default -> throw new IllegalArgumentException("Unknown container type: " + type);
+        };
+    }
+}
@@ -0,0 +1,352 @@
+package de.turtleboi.lib.bitmap;
+
+import de.turtleboi.lib.VarInts;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of 32-bit integers, based on <a href="https://roaringbitmap.org/">Roaring Bitmaps</a>.
+ * <p> Values are grouped by their high 16 bits into chunks of 65536 values. Each chunk is stored in a container that
+ * fits its density: A sorted array for sparse chunks, a bitmap (see {@link de.turtleboi.lib.BitVector}) for dense
+ * chunks and, after calling {@link #runOptimize()}, a list of ranges for chunks with long consecutive runs. Set
+ * operations ({@link #and(RoaringBitmap, RoaringBitmap)}, {@link #or(RoaringBitmap, RoaringBitmap)},
+ * {@link #andNot(RoaringBitmap, RoaringBitmap)}) only ever compare chunks with the same key, and dense chunks are
+ * combined 64 bits at a time.
+ * <p> Values are treated as unsigned, i.e. negative values are ordered after all positive values.
+ * <p> This implementation is not thread-safe.
+ */
+public class RoaringBitmap {
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    public RoaringBitmap() {
+        this(4);
+    }
+
+    private RoaringBitmap(int capacity) {
+        this.keys = new char[capacity];
+        this.containers = new Container[capacity];
+        this.size = 0;
+    }
+
+    /** Creates a new bitmap that contains all provided values. */
+    public static @NotNull RoaringBitmap of(int... values) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int value : values)
+            bitmap.add(value);
+        return bitmap;
+    }
+
+    private static char high(int x) {
+        return (char) (x >>> 16);
+    }
+
+    private static char low(int x) {
+        return (char) x;
+    }
+
+    /** Returns the index of the container with the provided key, or {@code -(insertion point) - 1}. */
+    private int index(char key) {
+        // fast path for appending values in ascending order
+        if (size > 0 && keys[size - 1] == key)
+            return size - 1;
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int index, char key, @NotNull Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void delete(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    /** Appends a container to the end, used when building results in ascending key order. */
+    private void append(char key, @NotNull Container container) {
+        if (container.cardinality() == 0) return;
+        insert(size, key, container);
+    }
+
+    /* - - - */
+
+    /**
+     * Adds a value to this set.
+     * @return {@code true} if the set did not already contain the value.
+     */
+    public boolean add(int x) {
+        char key = high(x);
+        int index = index(key);
+
+        if (index < 0) {
+            insert(-index - 1, key, new ArrayContainer().add(low(x)));
+            return true;
+        }
+
+        Container container = containers[index];
+        int cardinality = container.cardinality();
+        containers[index] = container.add(low(x));
+        return containers[index].cardinality() != cardinality;
+    }
+
+    /**
+     * Removes a value from this set.
+     * @return {@code true} if the set contained the value.
+     */
+    public boolean remove(int x) {
+        int index = index(high(x));
+        if (index < 0)
+            return false;
+
+        Container container = containers[index];
+        int cardinality = container.cardinality();
+        Container updated = container.remove(low(x));
+
+        if (updated.cardinality() == 0)
+            delete(index);
+        else
+            containers[index] = updated;
+        return updated.cardinality() != cardinality;
+    }
+
+    public boolean contains(int x) {
+        int index = index(high(x));
+        return index >= 0 && containers[index].contains(low(x));
+    }
+
+    /** Returns the amount of values in this set. */
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++)
+            cardinality += containers[i].cardinality();
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+    }
+
+    public @NotNull RoaringBitmap copy() {
+        RoaringBitmap copy = new RoaringBitmap(Math.max(size, 4));
+        for (int i = 0; i < size; i++)
+            copy.append(keys[i], containers[i].copy());
+        return copy;
+    }
+
+    /**
+     * Converts each container to a run container, if that is the most compact representation. This should be called
+     * after sets with long consecutive ranges of values have been built. Run containers are converted back when they
+     * are modified.
+     */
+    public void runOptimize() {
+        for (int i = 0; i < size; i++)
+            containers[i] = containers[i].optimize();
+    }
+
+    /* - - - */
+
+    /** Returns a new set with all values that are contained in both {@code a} and {@code b}. */
+    public static @NotNull RoaringBitmap and(@NotNull RoaringBitmap a, @NotNull RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap(Math.max(Math.min(a.size, b.size), 4));
+        int i = 0, j = 0;
+        while (i < a.size && j < b.size) {
+            char keyA = a.keys[i];
+            char keyB = b.keys[j];
+            if (keyA < keyB) {
+                i++;
+            } else if (keyA > keyB) {
+                j++;
+            } else {
+                result.append(keyA, Container.and(a.containers[i], b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /** Returns a new set with all values that are contained in {@code a}, {@code b} or both. */
+    public static @NotNull RoaringBitmap or(@NotNull RoaringBitmap a, @NotNull RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap(Math.max(a.size + b.size, 4));
+        int i = 0, j = 0;
+        while (i < a.size && j < b.size) {
+            char keyA = a.keys[i];
+            char keyB = b.keys[j];
+            if (keyA < keyB) {
+                result.append(keyA, a.containers[i++].copy());
+            } else if (keyA > keyB) {
+                result.append(keyB, b.containers[j++].copy());
+            } else {
+                result.append(keyA, Container.or(a.containers[i], b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        for (; i < a.size; i++)
+            result.append(a.keys[i], a.containers[i].copy());
+        for (; j < b.size; j++)
+            result.append(b.keys[j], b.containers[j].copy());
+        return result;
+    }
+
+    /** Returns a new set with all values that are contained in {@code a} but not in {@code b}. */
+    public static @NotNull RoaringBitmap andNot(@NotNull RoaringBitmap a, @NotNull RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap(Math.max(a.size, 4));
+        int i = 0, j = 0;
+        while (i < a.size) {
+            char keyA = a.keys[i];
+            while (j < b.size && b.keys[j] < keyA)
+                j++;
+
+            if (j < b.size && b.keys[j] == keyA)
+                result.append(keyA, Container.andNot(a.containers[i], b.containers[j]));
+            else
+                result.append(keyA, a.containers[i].copy());
+            i++;
+        }
+        return result;
+    }
+
+    /** Returns {@code true} if {@code a} and {@code b} have at least one common value. */
+    public static boolean intersects(@NotNull RoaringBitmap a, @NotNull RoaringBitmap b) {
+        int i = 0, j = 0;
+        while (i < a.size && j < b.size) {
+            char keyA = a.keys[i];
+            char keyB = b.keys[j];
+            if (keyA < keyB) {
+                i++;
+            } else if (keyA > keyB) {
+                j++;
+            } else {
+                if (Container.intersects(a.containers[i], b.containers[j]))
+                    return true;
+                i++;
+                j++;
+            }
+        }
+        return false;
+    }
+
+    /* - - - */
+
+    /** Passes each value of this set to the consumer, in ascending (unsigned) order. */
+    public void forEach(@NotNull IntConsumer consumer) {
+        for (int i = 0; i < size; i++)
+            containers[i].forEach(keys[i] << 16, consumer);
+    }
+
+    /** Returns an iterator over all values of this set, in ascending (unsigned) order. */
+    public @NotNull PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int index = 0;
+            private int next = size > 0 ? containers[0].nextValue(0) : -1;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next < 0)
+                    throw new NoSuchElementException();
+
+                int value = (keys[index] << 16) | next;
+
+                next = containers[index].nextValue(next + 1);
+                if (next < 0 && ++index < size)
+                    next = containers[index].nextValue(0);
+                return value;
+            }
+        };
+    }
+
+    public int[] toArray() {
+        int[] values = new int[Math.toIntExact(cardinality())];
+        int[] index = { 0 };
+        forEach(x -> values[index[0]++] = x);
+        return values;
+    }
+
+    /* - - - */
+
+    /**
+     * Serializes this set. The result consists of the amount of containers (varint), followed by the key (varint) and
+     * content of each container. Values in array and run containers are delta-encoded varints, bitmap containers are
+     * written as is.
+     * @see #ofBytes(byte[])
+     */
+    public byte[] toBytes() {
+        int maxSize = 5;
+        for (int i = 0; i < size; i++)
+            maxSize += 5 + containers[i].maxSerializedSize();
+
+        byte[] bytes = new byte[maxSize];
+        int offset = VarInts.putVarInt(size, bytes, 0);
+        for (int i = 0; i < size; i++) {
+            offset = VarInts.putVarInt(keys[i], bytes, offset);
+            offset = containers[i].write(bytes, offset);
+        }
+        return Arrays.copyOf(bytes, offset);
+    }
+
+    /**
+     * Deserializes a set that has been serialized with {@link #toBytes()}.
+     * @throws IllegalArgumentException if the data is invalid. Sizes are checked against the length of the data before
+     *                                  anything is allocated, so invalid data cannot cause large allocations.
+     */
+    public static @NotNull RoaringBitmap ofBytes(byte[] bytes) {
+        int[] buffer = new int[1];
+        int[] offset = { VarInts.getVarInt(bytes, 0, buffer) };
+
+        // each container takes at least two bytes (key and type)
+        int count = buffer[0];
+        if (count < 0 || count > (bytes.length - offset[0]) / 2)
+            throw new IllegalArgumentException("Invalid container count: " + count);
+
+        RoaringBitmap bitmap = new RoaringBitmap(Math.max(count, 4));
+        for (int i = 0; i < count; i++) {
+            offset[0] = VarInts.getVarInt(bytes, offset[0], buffer);
+            bitmap.append((char) buffer[0], Container.read(bytes, offset));
+        }
+        return bitmap;
+    }
+
+    /* - - - */
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof RoaringBitmap other)) return false;
+        if (size != other.size) return false;
+        for (int i = 0; i < size; i++) {
+            if (keys[i] != other.keys[i]) return false;
+            if (containers[i].cardinality() != other.containers[i].cardinality()) return false;
+        }
+        return Arrays.equals(toArray(), other.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+}
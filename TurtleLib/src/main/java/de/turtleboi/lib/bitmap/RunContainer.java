@@ -0,0 +1,211 @@
+package de.turtleboi.lib.bitmap;
+
+import de.turtleboi.lib.VarInts;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A container that stores its values as sorted, non-overlapping ranges. Used for sets with long consecutive runs of
+ * values. Run containers are only created by {@link Container#optimize()} and are converted to an array or bitmap
+ * container when they are modified.
+ */
+final class RunContainer extends Container {
+    /** Start and length - 1 of each run, alternating. */
+    final char[] runs;
+    final int runCount;
+    final int cardinality;
+
+    RunContainer(char[] runs, int runCount) {
+        this.runs = runs;
+        this.runCount = runCount;
+
+        int cardinality = 0;
+        for (int i = 0; i < runCount; i++)
+            cardinality += runs[2 * i + 1] + 1;
+        this.cardinality = cardinality;
+    }
+
+    /** Creates a run container with the values of another container. */
+    static @NotNull RunContainer of(@NotNull Container container) {
+        if (container instanceof RunContainer runContainer)
+            return runContainer;
+
+        char[] runs = new char[2 * countRuns(container)];
+        int n = 0;
+        int last = -2;
+        for (int x = container.nextValue(0); x >= 0; x = container.nextValue(x + 1)) {
+            if (x == last + 1) {
+                // extend current run
+                runs[2 * n - 1]++;
+            } else {
+                runs[2 * n] = (char) x;
+                n++;
+            }
+            last = x;
+        }
+        return new RunContainer(runs, n);
+    }
+
+    private static int countRuns(@NotNull Container container) {
+        int count = 0;
+        int last = -2;
+        for (int x = container.nextValue(0); x >= 0; x = container.nextValue(x + 1)) {
+            if (x != last + 1)
+                count++;
+            last = x;
+        }
+        return count;
+    }
+
+    private int start(int run) {
+        return runs[2 * run];
+    }
+
+    private int end(int run) {
+        return runs[2 * run] + runs[2 * run + 1];
+    }
+
+    /** Returns the index of the last run that starts at or before {@code x}, or {@code -1} if there is none. */
+    private int search(int x) {
+        int low = 0;
+        int high = runCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (start(mid) <= x)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        return high;
+    }
+
+    @Override
+    @NotNull Container add(char x) {
+        return contains(x) ? this : unrun().add(x);
+    }
+
+    @Override
+    @NotNull Container remove(char x) {
+        return contains(x) ? unrun().remove(x) : this;
+    }
+
+    @Override
+    boolean contains(char x) {
+        int run = search(x);
+        return run >= 0 && x <= end(run);
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    int nextValue(int from) {
+        if (from >= BitmapContainer.SIZE)
+            return -1;
+        int run = search(from);
+        if (run >= 0 && from <= end(run))
+            return from;
+        return run + 1 < runCount ? start(run + 1) : -1;
+    }
+
+    @Override
+    void forEach(int high, @NotNull IntConsumer consumer) {
+        for (int run = 0; run < runCount; run++)
+            for (int x = start(run), end = end(run); x <= end; x++)
+                consumer.accept(high | x);
+    }
+
+    @Override
+    @NotNull RunContainer copy() {
+        // run containers are never modified
+        return this;
+    }
+
+    @Override
+    int sizeInBytes() {
+        return runCount * 2 * Character.BYTES;
+    }
+
+    @Override
+    @NotNull Container unrun() {
+        if (cardinality > ArrayContainer.MAX_SIZE) {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int run = 0; run < runCount; run++)
+                for (int x = start(run), end = end(run); x <= end; x++)
+                    bitmap.bits.set(x);
+            bitmap.cardinality = cardinality;
+            return bitmap;
+        }
+
+        char[] content = new char[Math.max(cardinality, 1)];
+        int size = 0;
+        for (int run = 0; run < runCount; run++)
+            for (int x = start(run), end = end(run); x <= end; x++)
+                content[size++] = (char) x;
+        return new ArrayContainer(content, size);
+    }
+
+    @Override
+    @NotNull Container optimize() {
+        return this;
+    }
+
+    /* - - - */
+
+    /** Returns {@code true} if any run contains a value of the other container. */
+    boolean intersects(@NotNull Container other) {
+        for (int run = 0; run < runCount; run++) {
+            int next = other.nextValue(start(run));
+            if (next < 0) return false;
+            if (next <= end(run)) return true;
+        }
+        return false;
+    }
+
+    /* - - - */
+
+    @Override
+    int maxSerializedSize() {
+        return 1 + 5 + runCount * 6;
+    }
+
+    @Override
+    int write(byte[] dst, int offset) {
+        dst[offset++] = TYPE_RUN;
+        offset = VarInts.putVarInt(runCount, dst, offset);
+
+        // gap to the previous run and length of each run
+        int prev = -1;
+        for (int run = 0; run < runCount; run++) {
+            offset = VarInts.putVarInt(start(run) - prev - 1, dst, offset);
+            offset = VarInts.putVarInt(runs[2 * run + 1], dst, offset);
+            prev = end(run);
+        }
+        return offset;
+    }
+
+    static @NotNull RunContainer read(byte[] src, int[] offset) {
+        int[] buffer = new int[1];
+        offset[0] = VarInts.getVarInt(src, offset[0], buffer);
+
+        // each run takes at least two bytes
+        int runCount = buffer[0];
+        if (runCount < 0 || runCount > BitmapContainer.SIZE / 2 || runCount > (src.length - offset[0]) / 2)
+            throw new IllegalArgumentException("Invalid run container size: " + runCount);
+        char[] runs = new char[2 * runCount];
+
+        int prev = -1;
+        for (int run = 0; run < runCount; run++) {
+            offset[0] = VarInts.getVarInt(src, offset[0], buffer);
+            int start = prev + 1 + buffer[0];
+            offset[0] = VarInts.getVarInt(src, offset[0], buffer);
+            runs[2 * run] = (char) start;
+            runs[2 * run + 1] = (char) buffer[0];
+            prev = start + buffer[0];
+        }
+        return new RunContainer(runs, runCount);
+    }
+}
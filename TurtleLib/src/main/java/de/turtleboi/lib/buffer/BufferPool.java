@@ -0,0 +1,400 @@
+package de.turtleboi.lib.buffer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A pool of direct {@link ByteBuffer ByteBuffers}.
+ * <p> Buffers are grouped into power-of-two size classes from {@link #MIN_SIZE} to {@link #MAX_SIZE}. Each request is
+ * rounded up to the next size class; larger requests are not pooled. Buffers of all size classes are sliced from
+ * chunks of {@link #CHUNK_SIZE} bytes, so native memory is reserved in few large blocks instead of many small ones.
+ * The total size of all chunks is limited. Once the limit is reached, a chunk of another size class whose buffers are
+ * all free in the arena is reclaimed (its native memory is freed once the garbage collector has collected it), so
+ * memory that a size class no longer needs can move to the classes that do. If there is no such chunk, requests that
+ * cannot be served from the pool are allocated without pooling.
+ * <p> Released buffers are kept in a small cache of the releasing thread first and in a shared arena (one synchronized
+ * stack per size class) once that cache is full. Allocating takes from the cache of the calling thread before the
+ * arena, so a thread that allocates and releases buffers of the same size does not touch any shared state. The caches
+ * of terminated threads are returned to the arena once the thread has been garbage collected.
+ * <p> Leak detection: Every n-th allocation (on average) records the stack trace of its caller. If such a buffer is
+ * garbage collected without having been released, a warning with that stack trace is logged.
+ * @see PooledBuffer
+ */
+public final class BufferPool {
+    /** Smallest size class. Smaller requests are rounded up to this size. */
+    public static final int MIN_SIZE = 256;
+    /** Largest size class. Larger requests are not pooled. */
+    public static final int MAX_SIZE = 1024 * 1024;
+    /** Size of the blocks of native memory that buffers are sliced from. */
+    public static final int CHUNK_SIZE = MAX_SIZE;
+
+    /** Default limit of the native memory that is reserved for pooled buffers. */
+    public static final long DEFAULT_MAX_POOLED_BYTES = 64L * 1024 * 1024;
+
+    private static final int MIN_SHIFT    = Integer.numberOfTrailingZeros(MIN_SIZE);
+    private static final int SIZE_CLASSES = Integer.numberOfTrailingZeros(MAX_SIZE) - MIN_SHIFT + 1;
+
+    /** Maximum amount of bytes (per size class) in the cache of a thread. */
+    private static final int THREAD_CACHE_BYTES = 512 * 1024;
+    /** Maximum amount of buffers (per size class) in the cache of a thread. */
+    private static final int THREAD_CACHE_BUFFERS = 64;
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final SizeClass[] sizeClasses = new SizeClass[SIZE_CLASSES];
+    private final ThreadLocal<ThreadCacheHandle> threadCache = ThreadLocal.withInitial(this::newThreadCache);
+
+    private final long maxPooledBytes;
+    private final int leakSampleInterval;
+    private final Logger logger;
+
+    // stats
+    private final LongAdder allocations     = new LongAdder();
+    private final LongAdder threadCacheHits = new LongAdder();
+    private final LongAdder arenaHits       = new LongAdder();
+    private final LongAdder misses          = new LongAdder();
+    private final LongAdder unpooled        = new LongAdder();
+    private final LongAdder leaks           = new LongAdder();
+    private final LongAdder reclaimedChunks = new LongAdder();
+    private final LongAdder usedBytes       = new LongAdder();
+    private final AtomicLong reservedBytes  = new AtomicLong();
+
+    /** Creates a new pool with a limit of {@link #DEFAULT_MAX_POOLED_BYTES} and without leak detection. */
+    public BufferPool() {
+        this(DEFAULT_MAX_POOLED_BYTES, 0, null);
+    }
+
+    /**
+     * Creates a new pool.
+     * @param maxPooledBytes Limit of the native memory that is reserved for pooled buffers.
+     * @param leakSampleInterval Average amount of allocations per allocation that is tracked for leak detection;
+     *                           {@code 1} tracks all allocations and {@code 0} disables leak detection. Tracked
+     *                           allocations are considerably slower, as they record a stack trace.
+     * @param logger Logger for detected leaks. If {@code null}, the logger of this class is used.
+     */
+    public BufferPool(long maxPooledBytes, int leakSampleInterval, @Nullable Logger logger) {
+        if (maxPooledBytes < 0)
+            throw new IllegalArgumentException("maxPooledBytes must not be negative");
+        if (leakSampleInterval < 0)
+            throw new IllegalArgumentException("leakSampleInterval must not be negative");
+
+        this.maxPooledBytes     = maxPooledBytes;
+        this.leakSampleInterval = leakSampleInterval;
+        this.logger             = logger != null ? logger : Logger.getLogger(BufferPool.class.getName());
+
+        for (int i = 0; i < SIZE_CLASSES; i++)
+            sizeClasses[i] = new SizeClass(i, MIN_SIZE << i);
+    }
+
+    /* - - - */
+
+    /**
+     * Allocates a buffer with a capacity of at least {@code size} bytes.
+     * @return A buffer with a reference count of 1 that must be {@link PooledBuffer#release() released}.
+     */
+    public @NotNull PooledBuffer allocate(int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("size must not be negative");
+        allocations.increment();
+
+        int index = sizeClassIndex(size);
+        if (index < 0)
+            return allocateUnpooled(size);
+
+        PooledBuffer buffer = threadCache.get().cache.pop(index);
+        if (buffer != null) {
+            threadCacheHits.increment();
+        } else if ((buffer = sizeClasses[index].pop()) != null) {
+            arenaHits.increment();
+        } else {
+            misses.increment();
+            if ((buffer = sizeClasses[index].allocateChunk()) == null)
+                return allocateUnpooled(MIN_SIZE << index);
+        }
+
+        usedBytes.add(buffer.capacity());
+        init(buffer);
+        return buffer;
+    }
+
+    private @NotNull PooledBuffer allocateUnpooled(int size) {
+        unpooled.increment();
+        PooledBuffer buffer = new PooledBuffer(this, ByteBuffer.allocateDirect(size), -1, null);
+        init(buffer);
+        return buffer;
+    }
+
+    private void init(@NotNull PooledBuffer buffer) {
+        if (leakSampleInterval == 0 || ThreadLocalRandom.current().nextInt(leakSampleInterval) != 0) {
+            buffer.init(null, null);
+            return;
+        }
+
+        LeakRecord leak = new LeakRecord(this, buffer.capacity(), new Throwable("Allocation site"));
+        buffer.init(leak, CLEANER.register(buffer, leak));
+    }
+
+    /** Called by {@link PooledBuffer#release()} once the reference count has reached 0. */
+    void recycle(@NotNull PooledBuffer buffer) {
+        int index = buffer.sizeClass;
+        if (index < 0) return;
+
+        usedBytes.add(-buffer.capacity());
+        if (!threadCache.get().cache.push(buffer))
+            sizeClasses[index].push(buffer);
+    }
+
+    /**
+     * Returns all buffers in the cache of the calling thread to the shared arena. Threads that stop allocating
+     * should call this, so their cached buffers can be used by other threads.
+     */
+    public void trimThreadCache() {
+        threadCache.get().cache.drain();
+    }
+
+    /**
+     * Reclaims a chunk of a size class other than {@code except} whose buffers are all in the arena.
+     * @return {@code true} if a chunk has been reclaimed.
+     */
+    private boolean reclaimChunk(int except) {
+        for (int i = SIZE_CLASSES - 1; i >= 0; i--)
+            if (i != except && sizeClasses[i].reclaim())
+                return true;
+        return false;
+    }
+
+    /** Returns the size class index of a size, or -1 if it is too large to be pooled. */
+    private static int sizeClassIndex(int size) {
+        if (size <= MIN_SIZE) return 0;
+        int index = 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+        return index < SIZE_CLASSES ? index : -1;
+    }
+
+    /* - - - */
+
+    /** Statistics of a {@link BufferPool}. */
+    public record Stats(
+            long allocations,
+            long threadCacheHits,
+            long arenaHits,
+            long misses,
+            long unpooledAllocations,
+            long leaks,
+            long reclaimedChunks,
+            long reservedBytes,
+            long usedBytes
+    ) {
+        /** Returns the fraction of allocations that have been served from a thread cache or the arena. */
+        public double hitRate() {
+            return allocations == 0 ? 0 : (double) (threadCacheHits + arenaHits) / allocations;
+        }
+
+        /** Returns the fraction of reserved native memory that is in use by unreleased buffers. */
+        public double utilization() {
+            return reservedBytes == 0 ? 0 : (double) usedBytes / reservedBytes;
+        }
+    }
+
+    public @NotNull Stats getStats() {
+        return new Stats(
+                allocations.sum(),
+                threadCacheHits.sum(),
+                arenaHits.sum(),
+                misses.sum(),
+                unpooled.sum(),
+                leaks.sum(),
+                reclaimedChunks.sum(),
+                reservedBytes.get(),
+                usedBytes.sum()
+        );
+    }
+
+    public long getMaxPooledBytes() {
+        return maxPooledBytes;
+    }
+
+    public int getLeakSampleInterval() {
+        return leakSampleInterval;
+    }
+
+    /* - - - */
+
+    /** A block of native memory that the buffers of one size class are sliced from. */
+    static final class Chunk {
+        /** Amount of buffers of this chunk in the arena of its size class. Guarded by the size class. */
+        private int free = 0;
+    }
+
+    /** The shared arena of one size class. */
+    private final class SizeClass {
+        private final int index;
+        private final int size;
+        private final int buffersPerChunk;
+        private PooledBuffer[] free = new PooledBuffer[16];
+        private int count = 0;
+
+        SizeClass(int index, int size) {
+            this.index           = index;
+            this.size            = size;
+            this.buffersPerChunk = CHUNK_SIZE / size;
+        }
+
+        synchronized @Nullable PooledBuffer pop() {
+            if (count == 0) return null;
+            PooledBuffer buffer = free[--count];
+            free[count] = null;
+            buffer.chunk.free--;
+            return buffer;
+        }
+
+        synchronized void push(@NotNull PooledBuffer buffer) {
+            if (count == free.length)
+                free = Arrays.copyOf(free, count * 2);
+            free[count++] = buffer;
+            buffer.chunk.free++;
+        }
+
+        /**
+         * Reserves a new chunk, slices it into buffers of this size class and keeps all but one of them. If the pool
+         * limit has been reached, a free chunk of another size class is reclaimed first.
+         * @return The remaining buffer, or {@code null} if the pool limit has been reached and no chunk was free.
+         */
+        @Nullable PooledBuffer allocateChunk() {
+            while (true) {
+                long reserved = reservedBytes.get();
+                if (reserved + CHUNK_SIZE <= maxPooledBytes) {
+                    if (reservedBytes.compareAndSet(reserved, reserved + CHUNK_SIZE)) break;
+                } else if (!reclaimChunk(index)) {
+                    return null;
+                }
+            }
+
+            ByteBuffer memory = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            Chunk chunk = new Chunk();
+            for (int i = 1; i < buffersPerChunk; i++)
+                push(new PooledBuffer(BufferPool.this, memory.slice(i * size, size), index, chunk));
+            return new PooledBuffer(BufferPool.this, memory.slice(0, size), index, chunk);
+        }
+
+        /**
+         * Removes the buffers of a chunk whose buffers are all in this arena and releases its reservation. The buffers
+         * are not referenced by anything else, so the chunk is freed by the garbage collector.
+         * @return {@code true} if a chunk has been reclaimed.
+         */
+        synchronized boolean reclaim() {
+            if (count < buffersPerChunk) return false;
+
+            Chunk chunk = null;
+            for (int i = 0; i < count && chunk == null; i++)
+                if (free[i].chunk.free == buffersPerChunk)
+                    chunk = free[i].chunk;
+            if (chunk == null) return false;
+
+            int remaining = 0;
+            for (int i = 0; i < count; i++)
+                if (free[i].chunk != chunk)
+                    free[remaining++] = free[i];
+            Arrays.fill(free, remaining, count, null);
+            count      = remaining;
+            chunk.free = 0;
+
+            reservedBytes.addAndGet(-CHUNK_SIZE);
+            reclaimedChunks.increment();
+            return true;
+        }
+    }
+
+    /** The cache of one thread. Only accessed by that thread, until it has terminated. */
+    private final class ThreadCache implements Runnable {
+        private final PooledBuffer[][] stacks = new PooledBuffer[SIZE_CLASSES][];
+        private final int[] counts = new int[SIZE_CLASSES];
+
+        ThreadCache() {
+            for (int i = 0; i < SIZE_CLASSES; i++)
+                stacks[i] = new PooledBuffer[Math.min(THREAD_CACHE_BUFFERS, THREAD_CACHE_BYTES / (MIN_SIZE << i))];
+        }
+
+        @Nullable PooledBuffer pop(int index) {
+            int count = counts[index];
+            if (count == 0) return null;
+
+            PooledBuffer[] stack = stacks[index];
+            PooledBuffer buffer = stack[--count];
+            stack[count]  = null;
+            counts[index] = count;
+            return buffer;
+        }
+
+        boolean push(@NotNull PooledBuffer buffer) {
+            int index = buffer.sizeClass;
+            PooledBuffer[] stack = stacks[index];
+            if (counts[index] == stack.length) return false;
+            stack[counts[index]++] = buffer;
+            return true;
+        }
+
+        void drain() {
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                PooledBuffer buffer;
+                while ((buffer = pop(i)) != null)
+                    sizeClasses[i].push(buffer);
+            }
+        }
+
+        /** Called by the {@link Cleaner} once the thread has terminated. */
+        @Override
+        public void run() {
+            drain();
+        }
+    }
+
+    /**
+     * The value of {@link #threadCache}. Once it is unreachable (because its thread has terminated), the cache is
+     * drained to the arena. The cache itself must not reference this handle, or it would never become unreachable.
+     */
+    private static final class ThreadCacheHandle {
+        private final ThreadCache cache;
+
+        ThreadCacheHandle(@NotNull ThreadCache cache) {
+            this.cache = cache;
+        }
+    }
+
+    private @NotNull ThreadCacheHandle newThreadCache() {
+        ThreadCache cache = new ThreadCache();
+        ThreadCacheHandle handle = new ThreadCacheHandle(cache);
+        CLEANER.register(handle, cache);
+        return handle;
+    }
+
+    /** Leak detection state of a sampled allocation. Must not reference the buffer, so it can become unreachable. */
+    static final class LeakRecord implements Runnable {
+        private final BufferPool pool;
+        private final int capacity;
+        private final Throwable site;
+        volatile boolean released = false;
+
+        LeakRecord(@NotNull BufferPool pool, int capacity, @NotNull Throwable site) {
+            this.pool     = pool;
+            this.capacity = capacity;
+            this.site     = site;
+        }
+
+        /** Called by the {@link Cleaner}, either when the buffer is released or when it has been garbage collected. */
+        @Override
+        public void run() {
+            if (released) return;
+            pool.leaks.increment();
+            pool.logger.log(Level.WARNING, "A pooled buffer of " + capacity + " bytes has been garbage collected without being released", site);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package de.turtleboi.lib.buffer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reference-counted {@link ByteBuffer} of a {@link BufferPool}.
+ * <p> A buffer starts with a reference count of 1. Each holder that needs the buffer beyond the scope of its owner
+ * calls {@link #retain()}, and every holder calls {@link #release()} exactly once when it is done. Once the count
+ * drops to 0, the buffer is returned to its pool and must not be used anymore, as it will be handed out again.
+ * <p> Handles are re-used along with their buffer, so allocating from a pool does not create any objects.
+ */
+public final class PooledBuffer {
+    private final BufferPool pool;
+    private final ByteBuffer buffer;
+    /** Index of the size class in the pool, or -1 if the buffer is not pooled. */
+    final int sizeClass;
+    /** Chunk the buffer has been sliced from, or {@code null} if the buffer is not pooled. */
+    final BufferPool.Chunk chunk;
+
+    private final AtomicInteger refCnt = new AtomicInteger();
+
+    // only set for allocations that are sampled for leak detection
+    private BufferPool.LeakRecord leak;
+    private Cleaner.Cleanable cleanable;
+
+    PooledBuffer(@Nullable BufferPool pool, @NotNull ByteBuffer buffer, int sizeClass, @Nullable BufferPool.Chunk chunk) {
+        this.pool      = pool;
+        this.buffer    = buffer;
+        this.sizeClass = sizeClass;
+        this.chunk     = chunk;
+    }
+
+    /**
+     * Wraps a buffer that does not belong to any pool. Releasing it has no effect other than updating the reference
+     * count.
+     */
+    public static @NotNull PooledBuffer wrap(@NotNull ByteBuffer buffer) {
+        PooledBuffer pooled = new PooledBuffer(null, buffer, -1, null);
+        pooled.refCnt.set(1);
+        return pooled;
+    }
+
+    /** Called by the pool when this buffer is handed out. */
+    void init(@Nullable BufferPool.LeakRecord leak, @Nullable Cleaner.Cleanable cleanable) {
+        this.leak      = leak;
+        this.cleanable = cleanable;
+        buffer.clear();
+        refCnt.set(1);
+    }
+
+    /* - - - */
+
+    /**
+     * Returns the buffer. Its position is 0 and its limit is its capacity when it is allocated; the capacity is the
+     * requested size rounded up to the size class.
+     * @throws IllegalStateException if this buffer has already been released.
+     */
+    public @NotNull ByteBuffer buffer() {
+        if (refCnt.get() <= 0)
+            throw new IllegalStateException("Buffer has already been released");
+        return buffer;
+    }
+
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    /** Returns {@code true} if this buffer is returned to a pool when it is released. */
+    public boolean isPooled() {
+        return pool != null && sizeClass >= 0;
+    }
+
+    public int refCnt() {
+        return refCnt.get();
+    }
+
+    /**
+     * Increments the reference count.
+     * @throws IllegalStateException if this buffer has already been released.
+     */
+    public @NotNull PooledBuffer retain() {
+        while (true) {
+            int count = refCnt.get();
+            if (count <= 0)
+                throw new IllegalStateException("Buffer has already been released");
+            if (refCnt.compareAndSet(count, count + 1))
+                return this;
+        }
+    }
+
+    /**
+     * Decrements the reference count and returns the buffer to its pool once it reaches 0.
+     * @return {@code true} if the buffer has been returned to its pool.
+     * @throws IllegalStateException if this buffer has already been released.
+     */
+    public boolean release() {
+        while (true) {
+            int count = refCnt.get();
+            if (count <= 0)
+                throw new IllegalStateException("Buffer has already been released");
+            if (!refCnt.compareAndSet(count, count - 1)) continue;
+
+            if (count > 1) return false;
+            deallocate();
+            return true;
+        }
+    }
+
+    private void deallocate() {
+        if (leak != null) {
+            leak.released = true;
+            cleanable.clean();
+            leak      = null;
+            cleanable = null;
+        }
+        if (pool != null)
+            pool.recycle(this);
+    }
+
+    @Override
+    public String toString() {
+        return "PooledBuffer{capacity=" + buffer.capacity() + ", refCnt=" + refCnt.get() + "}";
+    }
+}
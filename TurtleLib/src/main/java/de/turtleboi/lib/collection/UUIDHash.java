@@ -0,0 +1,40 @@
+package de.turtleboi.lib.collection;
+
+/** Hashing and sizing shared by {@link UUIDMap} and {@link UUIDLongMap}. */
+final class UUIDHash {
+    /** Utility class */
+    private UUIDHash() { }
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    /**
+     * Mixes both halves of a UUID. Random (version 4) UUIDs would not need this, but time-based UUIDs have mostly
+     * equal high bits.
+     */
+    static int hash(long msb, long lsb) {
+        long h = (msb ^ Long.rotateLeft(lsb, 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /** Returns the power-of-two capacity that can hold {@code expectedSize} entries without resizing. */
+    static int capacityFor(int expectedSize) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Size may not be negative");
+        long capacity = Math.max(4, (long) expectedSize * 2);
+        if (capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("Size too large: " + expectedSize);
+        return Integer.highestOneBit((int) capacity - 1) << 1;
+    }
+
+    /** Returns the maximum amount of entries for a capacity (load factor 0.5, as linear probing degrades above). */
+    static int maxSize(int capacity) {
+        return capacity >>> 1;
+    }
+
+    /** Returns the next capacity when a map with the provided capacity is full. */
+    static int grow(int capacity) {
+        if (capacity >= MAX_CAPACITY)
+            throw new IllegalStateException("Map is full");
+        return capacity << 1;
+    }
+}
@@ -0,0 +1,250 @@
+package de.turtleboi.lib.collection;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * A hash map with {@link UUID} keys and primitive {@code long} values. Like {@link UUIDMap}, keys are stored as two
+ * parallel {@code long[]} arrays, so neither lookups nor insertions allocate (except when resizing).
+ * <p> Since there is no {@code null} value, missing keys are represented by a configurable {@link #noEntryValue()}.
+ * <p> This implementation is not thread-safe.
+ * @see UUIDMap
+ */
+public class UUIDLongMap {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final long noEntryValue;
+
+    /** A slot is empty if both halves of its key are 0. The nil UUID itself is stored separately. */
+    private long[] msbs;
+    private long[] lsbs;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    private boolean hasNilKey;
+    private long nilValue;
+
+    /** Creates a new map that returns {@code 0} for missing keys. */
+    public UUIDLongMap() {
+        this(DEFAULT_CAPACITY, 0L);
+    }
+
+    /**
+     * Creates a new map.
+     * @param expectedSize Amount of entries the map can hold without resizing.
+     * @param noEntryValue Value that is returned for missing keys.
+     */
+    public UUIDLongMap(int expectedSize, long noEntryValue) {
+        this.noEntryValue = noEntryValue;
+        this.allocate(UUIDHash.capacityFor(expectedSize));
+    }
+
+    private void allocate(int capacity) {
+        this.msbs   = new long[capacity];
+        this.lsbs   = new long[capacity];
+        this.values = new long[capacity];
+        this.mask   = capacity - 1;
+    }
+
+    private static boolean isNil(long msb, long lsb) {
+        return msb == 0 && lsb == 0;
+    }
+
+    private boolean isEmpty(int slot) {
+        return msbs[slot] == 0 && lsbs[slot] == 0;
+    }
+
+    /** Returns the slot of the key, or the empty slot it would be inserted at. The key must not be nil. */
+    private int slot(long msb, long lsb) {
+        int slot = UUIDHash.hash(msb, lsb) & mask;
+        while (!isEmpty(slot) && (msbs[slot] != msb || lsbs[slot] != lsb))
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /* - - - */
+
+    /** Returns the value that is returned for missing keys. */
+    public long noEntryValue() {
+        return noEntryValue;
+    }
+
+    public int size() {
+        return size + (hasNilKey ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /** Returns the value of a key, or {@link #noEntryValue()} if there is none. */
+    public long get(long msb, long lsb) {
+        if (isNil(msb, lsb))
+            return hasNilKey ? nilValue : noEntryValue;
+        int slot = slot(msb, lsb);
+        return isEmpty(slot) ? noEntryValue : values[slot];
+    }
+
+    /** @see #get(long, long) */
+    public long get(@NotNull UUID key) {
+        return get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    public boolean containsKey(long msb, long lsb) {
+        if (isNil(msb, lsb))
+            return hasNilKey;
+        return !isEmpty(slot(msb, lsb));
+    }
+
+    public boolean containsKey(@NotNull UUID key) {
+        return containsKey(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    /**
+     * Associates a value with a key.
+     * @return The previous value, or {@link #noEntryValue()} if there was none.
+     */
+    public long put(long msb, long lsb, long value) {
+        if (isNil(msb, lsb)) {
+            long previous = hasNilKey ? nilValue : noEntryValue;
+            hasNilKey = true;
+            nilValue  = value;
+            return previous;
+        }
+
+        int slot = slot(msb, lsb);
+        if (isEmpty(slot)) {
+            msbs[slot]   = msb;
+            lsbs[slot]   = lsb;
+            values[slot] = value;
+            if (++size > UUIDHash.maxSize(values.length))
+                resize();
+            return noEntryValue;
+        }
+
+        long previous = values[slot];
+        values[slot] = value;
+        return previous;
+    }
+
+    /** @see #put(long, long, long) */
+    public long put(@NotNull UUID key, long value) {
+        return put(key.getMostSignificantBits(), key.getLeastSignificantBits(), value);
+    }
+
+    /**
+     * Adds {@code delta} to the value of a key. If there is no value, {@code delta} is added to
+     * {@link #noEntryValue()}.
+     * @return The updated value.
+     */
+    public long addTo(long msb, long lsb, long delta) {
+        if (isNil(msb, lsb)) {
+            nilValue  = (hasNilKey ? nilValue : noEntryValue) + delta;
+            hasNilKey = true;
+            return nilValue;
+        }
+
+        int slot = slot(msb, lsb);
+        if (isEmpty(slot)) {
+            long value = noEntryValue + delta;
+            put(msb, lsb, value);
+            return value;
+        }
+        return values[slot] += delta;
+    }
+
+    /** @see #addTo(long, long, long) */
+    public long addTo(@NotNull UUID key, long delta) {
+        return addTo(key.getMostSignificantBits(), key.getLeastSignificantBits(), delta);
+    }
+
+    /**
+     * Removes a key and its value.
+     * @return The removed value, or {@link #noEntryValue()} if there was none.
+     */
+    public long remove(long msb, long lsb) {
+        if (isNil(msb, lsb)) {
+            long previous = hasNilKey ? nilValue : noEntryValue;
+            hasNilKey = false;
+            return previous;
+        }
+
+        int slot = slot(msb, lsb);
+        if (isEmpty(slot))
+            return noEntryValue;
+
+        long previous = values[slot];
+        removeAt(slot);
+        size--;
+        return previous;
+    }
+
+    /** @see #remove(long, long) */
+    public long remove(@NotNull UUID key) {
+        return remove(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    public void clear() {
+        Arrays.fill(msbs, 0L);
+        Arrays.fill(lsbs, 0L);
+        size = 0;
+        hasNilKey = false;
+    }
+
+    /** Passes each entry to the consumer. The map must not be modified while iterating. */
+    public void forEach(@NotNull EntryConsumer consumer) {
+        if (hasNilKey)
+            consumer.accept(0L, 0L, nilValue);
+        for (int i = 0; i < values.length; i++)
+            if (!isEmpty(i))
+                consumer.accept(msbs[i], lsbs[i], values[i]);
+    }
+
+    /* - - - */
+
+    /** Empties a slot and shifts back following entries that would otherwise not be found anymore. */
+    private void removeAt(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (isEmpty(slot))
+                break;
+
+            int ideal = UUIDHash.hash(msbs[slot], lsbs[slot]) & mask;
+            // move the entry if its ideal slot is not between the gap and its current slot
+            if (((slot - ideal) & mask) >= ((slot - gap) & mask)) {
+                msbs[gap]   = msbs[slot];
+                lsbs[gap]   = lsbs[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        msbs[gap] = 0;
+        lsbs[gap] = 0;
+    }
+
+    private void resize() {
+        long[] oldMsbs   = msbs;
+        long[] oldLsbs   = lsbs;
+        long[] oldValues = values;
+
+        allocate(UUIDHash.grow(oldValues.length));
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldMsbs[i] == 0 && oldLsbs[i] == 0) continue;
+
+            int slot = slot(oldMsbs[i], oldLsbs[i]);
+            msbs[slot]   = oldMsbs[i];
+            lsbs[slot]   = oldLsbs[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    /** Consumes the entries of a {@link UUIDLongMap} without creating {@link UUID} objects. */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long msb, long lsb, long value);
+    }
+}
@@ -0,0 +1,201 @@
+package de.turtleboi.lib.collection;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * A hash map with {@link UUID} keys that stores the most and least significant bits of each key in two parallel
+ * {@code long[]} arrays, instead of storing {@link UUID} objects. Lookups via {@link #get(long, long)} therefore never
+ * allocate, and lookups via {@link #get(UUID)} never need to call {@link UUID#hashCode()} or {@link UUID#equals(Object)}.
+ * <p> Collisions are resolved with open addressing (linear probing). Removed entries do not leave tombstones, instead
+ * following entries are shifted back.
+ * <p> {@code null} values are not permitted. This implementation is not thread-safe.
+ * @param <V> Value type.
+ * @see UUIDLongMap
+ */
+public class UUIDMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] msbs;
+    private long[] lsbs;
+    /** A slot is empty if its value is {@code null}. */
+    private V[] values;
+    private int mask;
+    private int size;
+
+    public UUIDMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** Creates a new map that can hold {@code expectedSize} entries without resizing. */
+    public UUIDMap(int expectedSize) {
+        this.allocate(UUIDHash.capacityFor(expectedSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        this.msbs   = new long[capacity];
+        this.lsbs   = new long[capacity];
+        this.values = (V[]) new Object[capacity];
+        this.mask   = capacity - 1;
+    }
+
+    /** Returns the slot of the key, or the empty slot it would be inserted at. */
+    private int slot(long msb, long lsb) {
+        int slot = UUIDHash.hash(msb, lsb) & mask;
+        while (values[slot] != null && (msbs[slot] != msb || lsbs[slot] != lsb))
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /* - - - */
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public @Nullable V get(long msb, long lsb) {
+        return values[slot(msb, lsb)];
+    }
+
+    public @Nullable V get(@NotNull UUID key) {
+        return get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    public @NotNull V getOrDefault(@NotNull UUID key, @NotNull V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public boolean containsKey(long msb, long lsb) {
+        return values[slot(msb, lsb)] != null;
+    }
+
+    public boolean containsKey(@NotNull UUID key) {
+        return containsKey(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    /**
+     * Associates a value with a key.
+     * @return The previous value, or {@code null} if there was none.
+     * @throws NullPointerException if the value is {@code null}.
+     */
+    public @Nullable V put(long msb, long lsb, @NotNull V value) {
+        Objects.requireNonNull(value, "value");
+        int slot = slot(msb, lsb);
+        V previous = values[slot];
+        if (previous == null) {
+            msbs[slot] = msb;
+            lsbs[slot] = lsb;
+            values[slot] = value;
+            if (++size > UUIDHash.maxSize(values.length))
+                resize();
+            return null;
+        }
+        values[slot] = value;
+        return previous;
+    }
+
+    /** @see #put(long, long, Object) */
+    public @Nullable V put(@NotNull UUID key, @NotNull V value) {
+        return put(key.getMostSignificantBits(), key.getLeastSignificantBits(), value);
+    }
+
+    /**
+     * Returns the value of a key. If there is none, a value is computed with {@code mapping} and associated with the
+     * key. If {@code mapping} returns {@code null}, nothing is associated and {@code null} is returned.
+     */
+    public @Nullable V computeIfAbsent(@NotNull UUID key, @NotNull Function<? super UUID, ? extends V> mapping) {
+        V value = get(key);
+        if (value == null) {
+            value = mapping.apply(key);
+            if (value != null)
+                put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Removes a key and its value.
+     * @return The removed value, or {@code null} if there was none.
+     */
+    public @Nullable V remove(long msb, long lsb) {
+        int slot = slot(msb, lsb);
+        V previous = values[slot];
+        if (previous != null) {
+            removeAt(slot);
+            size--;
+        }
+        return previous;
+    }
+
+    /** @see #remove(long, long) */
+    public @Nullable V remove(@NotNull UUID key) {
+        return remove(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /** Passes each entry to the consumer. The map must not be modified while iterating. */
+    public void forEach(@NotNull EntryConsumer<? super V> consumer) {
+        for (int i = 0; i < values.length; i++)
+            if (values[i] != null)
+                consumer.accept(msbs[i], lsbs[i], values[i]);
+    }
+
+    /* - - - */
+
+    /** Empties a slot and shifts back following entries that would otherwise not be found anymore. */
+    private void removeAt(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null)
+                break;
+
+            int ideal = UUIDHash.hash(msbs[slot], lsbs[slot]) & mask;
+            // move the entry if its ideal slot is not between the gap and its current slot
+            if (((slot - ideal) & mask) >= ((slot - gap) & mask)) {
+                msbs[gap]   = msbs[slot];
+                lsbs[gap]   = lsbs[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        values[gap] = null;
+    }
+
+    private void resize() {
+        long[] oldMsbs = msbs;
+        long[] oldLsbs = lsbs;
+        V[] oldValues  = values;
+
+        allocate(UUIDHash.grow(oldValues.length));
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null) continue;
+
+            int slot = slot(oldMsbs[i], oldLsbs[i]);
+            msbs[slot]   = oldMsbs[i];
+            lsbs[slot]   = oldLsbs[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    /** Consumes the entries of a {@link UUIDMap} without creating {@link UUID} objects. */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long msb, long lsb, V value);
+    }
+}
@@ -252,9 +252,9 @@ public class JSONArray implements JSONToken, List<JSONToken> {
 
     @Override
     public @NotNull Iterator<JSONToken> iterator() {
-        LinkedList<JSONToken> copy = new LinkedList<>();
+        LinkedList<JSONToken> copy;
         synchronized (lock) {
-            Collections.copy(copy, elements);
+            copy = new LinkedList<>(elements);
         }
         return copy.iterator();
     }
@@ -468,9 +468,9 @@ public class JSONArray implements JSONToken, List<JSONToken> {
 
     @Override
     public @NotNull ListIterator<JSONToken> listIterator(int index) {
-        LinkedList<JSONToken> copy = new LinkedList<>();
+        LinkedList<JSONToken> copy;
         synchronized (lock) {
-            Collections.copy(copy, elements);
+            copy = new LinkedList<>(elements);
         }
         return copy.listIterator(index);
     }
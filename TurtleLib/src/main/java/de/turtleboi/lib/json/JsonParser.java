@@ -34,6 +34,43 @@ public class JsonParser {
 
     private JsonParser() { }
 
+    /**
+     * Escapes a String as specified in RFC4627 2.5, so it can be used as the content of a {@link JSONValue}. Strings in
+     * this library are stored as they appear in JSON (i.e. escaped), which is why {@link JSONValue#toJson()} does not
+     * escape them again.
+     * @return The escaped String, or the same String if nothing had to be escaped.
+     */
+    public static @NotNull String escape(@NotNull String string) {
+        int i = 0;
+        for (; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x20 || c == QUOTATION_MARK || c == ESCAPE) break;
+        }
+        if (i == string.length())
+            return string;
+
+        StringBuilder builder = new StringBuilder(string.length() + 16).append(string, 0, i);
+        for (; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case QUOTATION_MARK -> builder.append(ESCAPE).append(QUOTATION_MARK);
+                case ESCAPE -> builder.append(ESCAPE).append(ESCAPE);
+                case '\n' -> builder.append(ESCAPE).append('n');
+                case '\r' -> builder.append(ESCAPE).append('r');
+                case '\t' -> builder.append(ESCAPE).append('t');
+                case '\b' -> builder.append(ESCAPE).append('b');
+                case '\f' -> builder.append(ESCAPE).append('f');
+                default -> {
+                    if (c < 0x20)
+                        builder.append(ESCAPE).append('u').append(String.format("%04x", (int) c));
+                    else
+                        builder.append(c);
+                }
+            }
+        }
+        return builder.toString();
+    }
+
     public static JSONToken parse(String json) throws IllegalArgumentException {
         if (json == null)
             return new JSONValue();
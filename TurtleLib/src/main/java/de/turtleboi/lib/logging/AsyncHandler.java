@@ -0,0 +1,316 @@
+package de.turtleboi.lib.logging;
+
+import de.turtleboi.lib.thread.BatchEventProcessor;
+import de.turtleboi.lib.thread.IdleStrategy;
+import de.turtleboi.lib.thread.RingBuffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * A {@link Handler} that formats and writes records on a background thread, so logging does not block the calling
+ * thread (e.g. a server main thread) with formatting or I/O.
+ * <p> Records are passed to the background thread through a bounded {@link RingBuffer}. The background thread formats
+ * them into a re-used {@link StringBuilder} (with {@link SimpleFormatter#format(LogRecord, StringBuilder)} if the
+ * formatter is a {@link SimpleFormatter}), encodes them into a re-used buffer and writes each batch of records with as
+ * few writes as possible. What happens if records are published faster than they can be written is decided by the
+ * {@link OverflowPolicy}.
+ * <p> Records must not be modified after they have been published. If the formatter is not a {@link SimpleFormatter},
+ * the source class and method of each record are inferred on the calling thread, because the background thread could
+ * not do so.
+ */
+public class AsyncHandler extends Handler {
+    /** Default amount of records that can be queued. */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Decides what happens to records that are published while the queue is full. */
+    public enum OverflowPolicy {
+        /** The publishing thread waits until there is space. No records are lost. */
+        BLOCK,
+        /** The record is dropped. */
+        DROP,
+        /** Records below the {@link AsyncHandler#getOverflowLevel() overflow level} are dropped, all others block. */
+        DROP_BELOW_LEVEL
+    }
+
+    private static final class Slot {
+        private LogRecord record;
+    }
+
+    private final WritableByteChannel channel;
+    private final RingBuffer<Slot> ringBuffer;
+    private final BatchEventProcessor<Slot> processor;
+    private final Thread thread;
+
+    private final OverflowPolicy overflowPolicy;
+    private volatile Level overflowLevel = Level.WARNING;
+
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean closed = false;
+    /** Amount of threads that are publishing a record. {@link #close()} waits for them before it stops the processor. */
+    private final AtomicInteger publishing = new AtomicInteger();
+
+    // only accessed by the background thread
+    private final StringBuilder text = new StringBuilder(1024);
+    private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private CharBuffer chars = CharBuffer.allocate(1024);
+    private CharsetEncoder encoder;
+    private String encoderName;
+    private long reportedDropped = 0;
+
+    /**
+     * Creates a new handler that appends to a file, with a capacity of {@link #DEFAULT_CAPACITY} records that blocks if
+     * the queue is full.
+     * @param file The file. It is created if it does not exist.
+     * @throws IOException if the file cannot be opened.
+     */
+    public AsyncHandler(@NotNull Path file) throws IOException {
+        this(file, DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Creates a new handler that appends to a file.
+     * @param file The file. It is created if it does not exist.
+     * @param capacity Amount of records that can be queued; must be a power of 2.
+     * @param overflowPolicy What to do with records that are published while the queue is full.
+     * @throws IOException if the file cannot be opened.
+     */
+    public AsyncHandler(@NotNull Path file, int capacity, @NotNull OverflowPolicy overflowPolicy) throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND), capacity, overflowPolicy);
+    }
+
+    /**
+     * Creates a new handler that writes to a channel. The channel is closed when this handler is closed.
+     * @param channel The channel.
+     * @param capacity Amount of records that can be queued; must be a power of 2.
+     * @param overflowPolicy What to do with records that are published while the queue is full.
+     */
+    public AsyncHandler(@NotNull WritableByteChannel channel, int capacity, @NotNull OverflowPolicy overflowPolicy) {
+        this.channel        = channel;
+        this.overflowPolicy = overflowPolicy;
+        this.ringBuffer     = RingBuffer.createMultiProducer(Slot::new, capacity);
+        this.processor      = new BatchEventProcessor<>(ringBuffer, ringBuffer.newBarrier(), this::write, IdleStrategy.backoff());
+        this.ringBuffer.addGatingSequences(processor.getSequence());
+
+        this.setFormatter(new SimpleFormatter());
+        this.setEncodingUnchecked(StandardCharsets.UTF_8);
+
+        this.thread = new Thread(processor, "AsyncHandler-" + nextThreadNum());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void setEncodingUnchecked(@NotNull Charset charset) {
+        try {
+            this.setEncoding(charset.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /* - - - */
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) return;
+
+        // the background thread cannot infer the caller
+        if (!(getFormatter() instanceof SimpleFormatter))
+            record.getSourceClassName();
+
+        // registered before checking closed again, so close() either sees this thread or this thread sees closed
+        publishing.incrementAndGet();
+        try {
+            if (closed) return;
+
+            long sequence = ringBuffer.tryNext();
+            if (sequence < 0) {
+                if (overflowPolicy == OverflowPolicy.DROP
+                        || (overflowPolicy == OverflowPolicy.DROP_BELOW_LEVEL && record.getLevel().intValue() < overflowLevel.intValue())) {
+                    dropped.increment();
+                    return;
+                }
+                sequence = ringBuffer.next();
+            }
+
+            ringBuffer.get(sequence).record = record;
+            ringBuffer.publish(sequence);
+        } finally {
+            publishing.decrementAndGet();
+        }
+    }
+
+    /** Blocks until all records that have been published before this call are written. */
+    @Override
+    public void flush() {
+        long target = ringBuffer.getCursor();
+        while (processor.getSequence().get() < target && processor.isRunning())
+            LockSupport.parkNanos(100_000L);
+    }
+
+    /**
+     * Writes all queued records, stops the background thread and closes the channel. Records that are published
+     * concurrently are either written or discarded, but publishing threads never block forever.
+     */
+    @Override
+    public void close() throws SecurityException {
+        if (closed) return;
+        closed = true;
+
+        // publishers that have already passed the check claim their slot while the processor is still running, so
+        // blocked ones can continue; once they are done, the cursor is the last sequence that will ever be claimed
+        while (publishing.get() > 0)
+            LockSupport.parkNanos(100_000L);
+        flush();
+        processor.halt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            reportError("Could not close channel", e, ErrorManager.CLOSE_FAILURE);
+        }
+    }
+
+    public @NotNull OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /** Returns the level below which records are dropped with {@link OverflowPolicy#DROP_BELOW_LEVEL}. */
+    public @NotNull Level getOverflowLevel() {
+        return overflowLevel;
+    }
+
+    /** Sets the level below which records are dropped with {@link OverflowPolicy#DROP_BELOW_LEVEL}. */
+    public void setOverflowLevel(@NotNull Level overflowLevel) {
+        this.overflowLevel = overflowLevel;
+    }
+
+    /** Returns the amount of records that have been dropped because the queue was full. */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /** Returns an estimate of the amount of records that are queued but not written yet. */
+    public long getQueueDepth() {
+        return ringBuffer.getCursor() - processor.getSequence().get();
+    }
+
+    /* - - - */
+
+    /** Called by the background thread for each record. */
+    private void write(@NotNull Slot slot, long sequence, boolean endOfBatch) {
+        LogRecord record = slot.record;
+        slot.record = null;
+
+        text.setLength(0);
+        try {
+            Formatter formatter = getFormatter();
+            if (formatter instanceof SimpleFormatter simpleFormatter)
+                simpleFormatter.format(record, text);
+            else
+                text.append(formatter.format(record));
+        } catch (Exception e) {
+            reportError("Could not format record", e, ErrorManager.FORMAT_FAILURE);
+            text.setLength(0);
+        }
+        encode();
+
+        if (endOfBatch) {
+            reportDropped();
+            writeOut();
+        }
+    }
+
+    /** Adds a line with the amount of records that have been dropped since the last report, if any. */
+    private void reportDropped() {
+        long total = dropped.sum();
+        if (total == reportedDropped) return;
+
+        text.setLength(0);
+        text.append("[AsyncHandler] ").append(total - reportedDropped).append(" log records dropped (queue full)\n");
+        reportedDropped = total;
+        encode();
+    }
+
+    /** Encodes the text into the output buffer, writing the buffer whenever it is full. */
+    private void encode() {
+        int length = text.length();
+        if (length == 0) return;
+
+        if (chars.capacity() < length)
+            chars = CharBuffer.allocate(Math.max(length, chars.capacity() * 2));
+        chars.clear();
+        text.getChars(0, length, chars.array(), 0);
+        chars.limit(length);
+
+        CharsetEncoder encoder = getEncoder();
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(chars, out, true);
+            if (result.isOverflow()) {
+                writeOut();
+                continue;
+            }
+            break;
+        }
+        while (encoder.flush(out).isOverflow())
+            writeOut();
+    }
+
+    private @NotNull CharsetEncoder getEncoder() {
+        String encoding = getEncoding();
+        if (encoder == null || !Objects.equals(encoding, encoderName)) {
+            Charset charset = encoding != null ? Charset.forName(encoding) : Charset.defaultCharset();
+            encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            encoderName = encoding;
+        }
+        return encoder;
+    }
+
+    private void writeOut() {
+        out.flip();
+        try {
+            while (out.hasRemaining())
+                channel.write(out);
+        } catch (IOException e) {
+            reportError("Could not write records", e, ErrorManager.WRITE_FAILURE);
+        }
+        out.clear();
+    }
+
+    // Numbering threads without custom names
+    private static int threadNum = 0;
+    private static synchronized int nextThreadNum() {
+        return threadNum++;
+    }
+}
@@ -0,0 +1,112 @@
+package de.turtleboi.lib.logging;
+
+import de.turtleboi.lib.json.JSONArray;
+import de.turtleboi.lib.json.JSONObject;
+import de.turtleboi.lib.json.JSONValue;
+import de.turtleboi.lib.json.JsonParser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.format.DateTimeFormatter;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+
+/**
+ * Formats each record as a single line containing one JSON object, for log collectors.
+ * <p> Example (without line breaks):
+ * <pre> {@code
+ * {"time":"2023-06-01T12:00:00.123Z","level":"WARNING","logger":"TurtleNet/Network","thread":42,
+ *  "message":"Connection failed","suppressed":{"message":118},
+ *  "thrown":{"type":"java.io.IOException","message":"Connection reset","stackTrace":["..."],"cause":{...}}}
+ * } </pre>
+ * <p> Optionally, records can be rate limited per logger and per message (the unformatted message, i.e. the same log
+ * statement with different parameters has the same key). Suppressed records are formatted as an empty String, which
+ * handlers write as nothing. The next record of the same logger or message that is logged contains the amount of
+ * records that have been suppressed in between in its {@code suppressed} member.
+ * @see LogRateLimiter
+ */
+public class JSONFormatter extends Formatter {
+    /** Maximum amount of nested causes, which also guards against cause cycles. */
+    private static final int MAX_CAUSES = 16;
+
+    private final @Nullable LogRateLimiter loggerLimiter;
+    private final @Nullable LogRateLimiter messageLimiter;
+
+    /** Creates a formatter without rate limiting. */
+    public JSONFormatter() {
+        this(null, null);
+    }
+
+    /**
+     * @param loggerLimiter Rate limiter per logger name, or {@code null}.
+     * @param messageLimiter Rate limiter per (unformatted) message, or {@code null}.
+     */
+    public JSONFormatter(@Nullable LogRateLimiter loggerLimiter, @Nullable LogRateLimiter messageLimiter) {
+        this.loggerLimiter  = loggerLimiter;
+        this.messageLimiter = messageLimiter;
+    }
+
+    @Override
+    public String format(LogRecord record) {
+        if (record == null) return null;
+
+        // check the more specific key first, so records suppressed by it do not use up the logger's limit
+        long suppressedMessage = acquire(messageLimiter, record.getMessage());
+        if (suppressedMessage == LogRateLimiter.SUPPRESSED) return "";
+        long suppressedLogger = acquire(loggerLimiter, record.getLoggerName());
+        if (suppressedLogger == LogRateLimiter.SUPPRESSED) {
+            // the message limiter has already reset its count, which would be lost along with this record
+            if (messageLimiter != null)
+                messageLimiter.addSuppressed(key(record.getMessage()), suppressedMessage + 1);
+            return "";
+        }
+
+        JSONObject json = new JSONObject();
+        json.set("time", DateTimeFormatter.ISO_INSTANT.format(record.getInstant()));
+        json.set("level", record.getLevel().getName());
+        json.set("logger", string(record.getLoggerName()));
+        json.set("thread", record.getLongThreadID());
+        json.set("message", string(formatMessage(record)));
+
+        if (suppressedMessage > 0 || suppressedLogger > 0) {
+            JSONObject suppressed = new JSONObject();
+            if (suppressedLogger > 0)
+                suppressed.set("logger", suppressedLogger);
+            if (suppressedMessage > 0)
+                suppressed.set("message", suppressedMessage);
+            json.set("suppressed", suppressed);
+        }
+
+        if (record.getThrown() != null)
+            json.set("thrown", this.thrown(record.getThrown(), 0));
+
+        return json.toJson() + "\n";
+    }
+
+    private static long acquire(@Nullable LogRateLimiter limiter, @Nullable String key) {
+        if (limiter == null) return 0;
+        return limiter.acquire(key(key));
+    }
+
+    private static @NotNull String key(@Nullable String key) {
+        return key != null ? key : "";
+    }
+
+    private @NotNull JSONObject thrown(@NotNull Throwable thrown, int depth) {
+        JSONObject json = new JSONObject();
+        json.set("type", thrown.getClass().getName());
+        json.set("message", string(thrown.getMessage()));
+
+        JSONArray stackTrace = json.makeArray("stackTrace");
+        for (StackTraceElement element : thrown.getStackTrace())
+            stackTrace.add(string(element.toString()));
+
+        if (thrown.getCause() != null && depth < MAX_CAUSES)
+            json.set("cause", this.thrown(thrown.getCause(), depth + 1));
+        return json;
+    }
+
+    private static @NotNull JSONValue string(@Nullable String string) {
+        return string == null ? new JSONValue() : new JSONValue(JsonParser.escape(string));
+    }
+}
@@ -0,0 +1,98 @@
+package de.turtleboi.lib.logging;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many records with the same key (e.g. logger name or message) are logged per time window.
+ * <p> The first {@code limit} records of each window are always logged. After that, only every {@code sampleRate}-th
+ * record is logged (or none, if the sample rate is {@code 0}) until the next window starts. The amount of records that
+ * have been suppressed is reported with the next record of the same key that is logged, so a flood of identical
+ * errors shows up as a single line with a count instead of thousands of lines.
+ * <p> This implementation is thread-safe.
+ */
+public class LogRateLimiter {
+    /** Returned by {@link #acquire(String)} if the record should be suppressed. */
+    public static final long SUPPRESSED = -1;
+
+    /** Once there are more keys than this, all keys are forgotten to keep the memory bounded. */
+    private static final int MAX_KEYS = 10_000;
+
+    private final int limit;
+    private final long windowNanos;
+    private final int sampleRate;
+
+    private final ConcurrentHashMap<String, KeyState> states = new ConcurrentHashMap<>();
+
+    /**
+     * @param limit Amount of records per key that are logged in each window.
+     * @param window Duration of a window.
+     * @param unit Time unit of {@code window}.
+     * @param sampleRate Once the limit is exceeded, every {@code sampleRate}-th record is still logged. {@code 0}
+     *                   suppresses all records until the next window.
+     */
+    public LogRateLimiter(int limit, long window, @NotNull TimeUnit unit, int sampleRate) {
+        if (limit < 0 || sampleRate < 0)
+            throw new IllegalArgumentException("Limit and sample rate may not be negative");
+        if (window <= 0)
+            throw new IllegalArgumentException("Window must be positive");
+        this.limit       = limit;
+        this.windowNanos = unit.toNanos(window);
+        this.sampleRate  = sampleRate;
+    }
+
+    /**
+     * Decides whether a record with the provided key should be logged.
+     * @return {@link #SUPPRESSED} if the record should be suppressed, otherwise the amount of records with this key that
+     *         have been suppressed since the last record that has been logged.
+     */
+    public long acquire(@NotNull String key) {
+        KeyState state = states.get(key);
+        if (state == null) {
+            if (states.size() >= MAX_KEYS)
+                states.clear();
+            state = states.computeIfAbsent(key, k -> new KeyState());
+        }
+        return state.acquire(System.nanoTime());
+    }
+
+    /**
+     * Adds to the amount of suppressed records of a key, e.g. if a record that has been acquired is suppressed by
+     * another limiter after all. The amount is reported with the next record of the key that is logged.
+     * @param amount The amount returned by {@link #acquire(String)} plus the record itself.
+     */
+    public void addSuppressed(@NotNull String key, long amount) {
+        KeyState state = states.get(key);
+        if (state != null)
+            state.addSuppressed(amount);
+    }
+
+    private final class KeyState {
+        private long windowStart = System.nanoTime();
+        private int count;
+        private long suppressed;
+
+        synchronized long acquire(long now) {
+            if (now - windowStart >= windowNanos) {
+                windowStart = now;
+                count = 0;
+            }
+
+            int n = ++count;
+            if (n > limit && (sampleRate == 0 || (n - limit) % sampleRate != 0)) {
+                suppressed++;
+                return SUPPRESSED;
+            }
+
+            long reported = suppressed;
+            suppressed = 0;
+            return reported;
+        }
+
+        synchronized void addSuppressed(long amount) {
+            suppressed += amount;
+        }
+    }
+}
@@ -1,15 +1,39 @@
 package de.turtleboi.lib.logging;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.logging.Filter;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
-/** A simple Logger that always has a parent {@link Logger}. */
+/**
+ * A simple Logger that always has a parent {@link Logger}.
+ * <p> Records are passed on to the first parent that is not a {@link NestedLogger} (the root), with the logger name
+ * prefixed by the names of all parents (e.g. {@code root/parent/child}). The qualified name and the chain of nested
+ * parents are only resolved once and re-used until a parent is replaced.
+ * <p> {@link #isLoggable(Level)} checks the levels of this logger, all nested parents and the effective level of the
+ * root, so messages of disabled levels are discarded before a {@link LogRecord} is created. The filters of this logger
+ * and all nested parents are applied to each record before it is passed on to the root. Together with the {@link java.util.function.Supplier}-based methods
+ * of {@link Logger} (e.g. {@link #fine(java.util.function.Supplier)}) disabled messages are not even built.
+ */
 public class NestedLogger extends Logger {
     /** The parent logger. */
-    private Logger parentLogger;
+    private volatile Logger parentLogger;
+
+    /** Cached qualified name and nested parents, resolved from the parent (and its chain) it has been composed of. */
+    private volatile Chain chain;
+
+    /**
+     * @param parent       The parent logger this chain has been resolved from.
+     * @param parentChain  The chain of the parent, if it is a {@link NestedLogger}.
+     * @param name         The qualified name.
+     * @param loggers      This logger followed by all nested parents, up to (excluding) the root.
+     * @param root         The first parent that is not a {@link NestedLogger}.
+     */
+    private record Chain(@NotNull Logger parent, @Nullable Chain parentChain, @NotNull String name,
+                         @NotNull NestedLogger[] loggers, @NotNull Logger root) { }
 
     /** Creates a new {@link NestedLogger} with the provided name and saves the parent. */
     public NestedLogger(String name, @NotNull Logger parent) {
@@ -38,14 +62,70 @@ public class NestedLogger extends Logger {
         this.parentLogger = parent;
     }
 
+    /** Returns the first parent that is not a {@link NestedLogger}, which handles the records of this logger. */
+    public @NotNull Logger getRootLogger() {
+        return getChain().root();
+    }
+
+    /**
+     * Returns the name of this logger, prefixed by the names of all parents, separated by {@code /}.
+     * <p> The name is cached: As long as no parent has been replaced, this does not allocate anything.
+     */
+    public @NotNull String getQualifiedName() {
+        return getChain().name();
+    }
+
+    private @NotNull Chain getChain() {
+        Logger parent = parentLogger;
+        Chain parentChain = parent instanceof NestedLogger nested ? nested.getChain() : null;
+
+        Chain cached = this.chain;
+        if (cached == null || cached.parent() != parent || cached.parentChain() != parentChain) {
+            if (parentChain == null) {
+                cached = new Chain(parent, null, parent.getName() + "/" + getName(), new NestedLogger[] { this }, parent);
+            } else {
+                NestedLogger[] loggers = new NestedLogger[parentChain.loggers().length + 1];
+                loggers[0] = this;
+                System.arraycopy(parentChain.loggers(), 0, loggers, 1, parentChain.loggers().length);
+                cached = new Chain(parent, parentChain, parentChain.name() + "/" + getName(), loggers, parentChain.root());
+            }
+            this.chain = cached;
+        }
+        return cached;
+    }
+
     @Override
     public void setUseParentHandlers(boolean useParentHandlers) {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Checks the level of this logger (which is {@link Level#ALL} unless changed) and the effective level of the parent
+     * (and therefore the root).
+     */
+    @Override
+    public boolean isLoggable(Level level) {
+        return super.isLoggable(level) && parentLogger.isLoggable(level);
+    }
+
     @Override
     public void log(LogRecord record) {
-        record.setLoggerName(parentLogger.getName() + "/" + record.getLoggerName());
-        parentLogger.log(record);
+        // checks the levels of all nested parents
+        if (!isLoggable(record.getLevel())) return;
+
+        Chain chain = getChain();
+        String name = record.getLoggerName();
+        if (name == null || name.equals(getName()))
+            record.setLoggerName(chain.name());
+        else
+            record.setLoggerName((chain.parentChain() != null ? chain.parentChain().name() : chain.parent().getName()) + "/" + name);
+
+        for (NestedLogger logger : chain.loggers()) {
+            Filter filter = logger.getFilter();
+            if (filter != null && !filter.isLoggable(record)) return;
+        }
+
+        // the name is already fully qualified and all nested loggers have been checked, so skip them
+        chain.root().log(record);
     }
-}
\ No newline at end of file
+}
@@ -1,49 +1,103 @@
 package de.turtleboi.lib.logging;
 
-import java.time.ZoneId;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.logging.Formatter;
 import java.util.logging.LogRecord;
 
+/**
+ * Formats records as {@code [uuuu-MM-dd HH:mm:ss   LEVEL]: [logger] message}, followed by the stack trace (and causes)
+ * of the thrown exception, if any.
+ * <p> The timestamp is rendered at most once per second and shared between all records of that second. Use
+ * {@link #format(LogRecord, StringBuilder)} to append to a re-used {@link StringBuilder} instead of creating a new
+ * String for each record.
+ */
 public class SimpleFormatter extends Formatter {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
+    private static final int TIME_LENGTH = 19;
+    private static final int LEVEL_LENGTH = 7;
+
+    /** The last rendered timestamp. Immutable, so it can be shared between threads without synchronization. */
+    private volatile CachedTime cachedTime = new CachedTime(Long.MIN_VALUE, "");
+
+    private record CachedTime(long epochSecond, @NotNull String text) { }
+
     @Override
     public String format(LogRecord record) {
         if (record == null) return null;
 
-        String time  = DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm:ss").format(record.getInstant().atZone(ZoneId.of("UTC")));
-        String level = String.format("%7s", record.getLevel().getName());
+        StringBuilder str = new StringBuilder(128);
+        this.format(record, str);
+        return str.toString();
+    }
 
-        StringBuilder str = new StringBuilder();
+    /**
+     * Appends the formatted record to a {@link StringBuilder}.
+     * @see #format(LogRecord)
+     */
+    public void format(@NotNull LogRecord record, @NotNull StringBuilder str) {
+        String time = this.getTime(record.getInstant());
+        this.appendLine(str, time, record, record.getLoggerName(), record.getMessage());
 
-        str.append("[")
-                .append(time)
-                .append(" ")
-                .append(level)
-                .append("]: ")
-                .append("[")
-                .append(record.getLoggerName())
-                .append("] ")
-                .append(record.getMessage())
-                .append("\n");
+        Throwable thrown = record.getThrown();
+        boolean cause = false;
+        while (thrown != null) {
+            if (cause) {
+                str.append("\n");
+                spaces(str, TIME_LENGTH + 3).append("CAUSED BY:\n");
+                // causes have a header without logger name and message
+                this.appendLine(str, time, record, null, null);
+            }
 
-        if (record.getThrown() != null) {
-            str.append(" ".repeat(time.length() + 2)).append(level).append("   ").append(record.getThrown().toString()).append("\n");
+            spaces(str, TIME_LENGTH + 2);
+            appendLevel(str, record).append("   ").append(thrown).append("\n");
 
-            StackTraceElement[] stackTrace = record.getThrown().getStackTrace();
-            for (StackTraceElement stackTraceElement : stackTrace) {
-                str.append(" ".repeat(time.length() + level.length() + 5))
+            for (StackTraceElement stackTraceElement : thrown.getStackTrace()) {
+                spaces(str, TIME_LENGTH + Math.max(LEVEL_LENGTH, record.getLevel().getName().length()) + 5)
                         .append("  ")
                         .append(stackTraceElement)
                         .append("\n");
             }
 
-            if (record.getThrown().getCause() != null) {
-                LogRecord subRecord = new LogRecord(record.getLevel(), null);
-                subRecord.setThrown(record.getThrown().getCause());
-                str.append("\n").append(" ".repeat(time.length() + 3)).append("CAUSED BY:\n").append(this.format(subRecord));
-            }
+            thrown = thrown.getCause();
+            cause  = true;
         }
+    }
 
-        return str.toString();
+    private void appendLine(@NotNull StringBuilder str, @NotNull String time, @NotNull LogRecord record, String loggerName, String message) {
+        str.append("[").append(time).append(" ");
+        appendLevel(str, record)
+                .append("]: ")
+                .append("[")
+                .append(loggerName)
+                .append("] ")
+                .append(message)
+                .append("\n");
+    }
+
+    /** Returns the rendered timestamp of the second of {@code instant}, rendering it only if the second has changed. */
+    private @NotNull String getTime(@NotNull Instant instant) {
+        long second = instant.getEpochSecond();
+        CachedTime cached = this.cachedTime;
+        if (cached.epochSecond() != second) {
+            cached = new CachedTime(second, TIME_FORMAT.format(Instant.ofEpochSecond(second)));
+            this.cachedTime = cached;
+        }
+        return cached.text();
+    }
+
+    /** Appends the level name, right-aligned to 7 characters. */
+    private static @NotNull StringBuilder appendLevel(@NotNull StringBuilder str, @NotNull LogRecord record) {
+        String level = record.getLevel().getName();
+        return spaces(str, LEVEL_LENGTH - level.length()).append(level);
+    }
+
+    private static @NotNull StringBuilder spaces(@NotNull StringBuilder str, int count) {
+        for (int i = 0; i < count; i++)
+            str.append(' ');
+        return str;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,46 @@
+package de.turtleboi.lib.thread;
+
+import java.util.concurrent.locks.LockSupport;
+
+/** @see IdleStrategy#backoff(int, int, long, long) */
+final class BackoffIdleStrategy implements IdleStrategy {
+    private final int maxSpins;
+    private final int maxYields;
+    private final long minParkNanos;
+    private final long maxParkNanos;
+
+    private int spins;
+    private int yields;
+    private long parkNanos;
+
+    BackoffIdleStrategy(int maxSpins, int maxYields, long minParkNanos, long maxParkNanos) {
+        if (minParkNanos < 1 || maxParkNanos < minParkNanos)
+            throw new IllegalArgumentException("Invalid park durations");
+        this.maxSpins     = maxSpins;
+        this.maxYields    = maxYields;
+        this.minParkNanos = minParkNanos;
+        this.maxParkNanos = maxParkNanos;
+        this.reset();
+    }
+
+    @Override
+    public void idle() {
+        if (spins < maxSpins) {
+            spins++;
+            Thread.onSpinWait();
+        } else if (yields < maxYields) {
+            yields++;
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(parkNanos);
+            parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+        }
+    }
+
+    @Override
+    public void reset() {
+        spins     = 0;
+        yields    = 0;
+        parkNanos = minParkNanos;
+    }
+}
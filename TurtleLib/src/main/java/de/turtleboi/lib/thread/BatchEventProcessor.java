@@ -0,0 +1,85 @@
+package de.turtleboi.lib.thread;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A consumer stage of a {@link RingBuffer}, which is meant to be run by its own thread. It waits for events with a
+ * {@link SequenceBarrier}, passes all events that are available to the {@link EventHandler} in one batch and then
+ * updates its {@link #getSequence() sequence} once, which releases the slots to the next stage (or the producers).
+ * <p> Exceptions thrown by the handler are passed to the {@link Thread#getUncaughtExceptionHandler() uncaught exception
+ * handler} of the executing thread; the event is skipped. Calling {@link #halt()} stops the processor after the
+ * current batch.
+ * @param <E> Event type.
+ */
+public class BatchEventProcessor<E> implements Runnable {
+    private final RingBuffer<E> ringBuffer;
+    private final SequenceBarrier barrier;
+    private final EventHandler<? super E> handler;
+    private final IdleStrategy idleStrategy;
+
+    private final Sequence sequence = new Sequence();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile boolean halted = false;
+
+    /**
+     * @param ringBuffer The ring buffer.
+     * @param barrier Barrier of this stage, see {@link RingBuffer#newBarrier(Sequence...)}.
+     * @param handler Handler for the events.
+     * @param idleStrategy Strategy to wait for new events with. Must not be shared with other threads.
+     */
+    public BatchEventProcessor(@NotNull RingBuffer<E> ringBuffer, @NotNull SequenceBarrier barrier, @NotNull EventHandler<? super E> handler, @NotNull IdleStrategy idleStrategy) {
+        this.ringBuffer   = ringBuffer;
+        this.barrier      = barrier;
+        this.handler      = handler;
+        this.idleStrategy = idleStrategy;
+    }
+
+    @Override
+    public void run() {
+        if (!running.compareAndSet(false, true))
+            throw new IllegalStateException("Processor is already running");
+
+        try {
+            long next = sequence.get() + 1;
+            while (!halted) {
+                long available = barrier.getHighestAvailable(next);
+                if (available < next) {
+                    idleStrategy.idle();
+                    continue;
+                }
+                idleStrategy.reset();
+
+                for (; next <= available; next++)
+                    handle(next, next == available);
+                sequence.set(available);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void handle(long sequence, boolean endOfBatch) {
+        try {
+            handler.onEvent(ringBuffer.get(sequence), sequence, endOfBatch);
+        } catch (Throwable t) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+        }
+    }
+
+    /** Stops this processor once the current batch has been processed. It may not be started again. */
+    public void halt() {
+        halted = true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /** Returns the sequence of the last processed event. Later stages depend on this sequence. */
+    public @NotNull Sequence getSequence() {
+        return sequence;
+    }
+}
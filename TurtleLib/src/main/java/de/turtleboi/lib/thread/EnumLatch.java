@@ -1,112 +1,195 @@
 package de.turtleboi.lib.thread;
 
-import de.turtleboi.lib.tuple.Pair;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * A synchronization aid that allows one or more threads to wait until an enum field has been updated to a certain value
  * via the {@link #set(Enum)} method.
+ * <p> Reading and updating the value is lock-free. Waiters are grouped by the value they are waiting for: Each enum
+ * constant has (at most) one pending {@link CompletableFuture}, indexed by its ordinal, which is shared by all waiters
+ * of that constant. An update therefore only has to complete a single future, no matter how many threads are waiting,
+ * and does not need to look at waiters of any other constant.
+ * <p> Besides blocking via {@link #await(Enum)}, callbacks can be registered with {@link #onState(Enum)} without
+ * blocking any thread. Waiters for any of multiple constants ({@link #onAnyState(EnumSet)}) get a future of their own,
+ * which is checked on every update and removed once it is completed, so waiting for constants that are never reached
+ * does not accumulate state.
  * @param <E> Enum type.
  */
 public final class EnumLatch<E extends Enum<E>> {
-    private final Lock lock;
-    private final Map<Thread, Pair<E, Condition>> conditions;
-    private volatile E value;
+    private final AtomicReference<E> value;
+    /** The pending future of each enum constant (by ordinal), or {@code null} if nobody is waiting for it. */
+    private final AtomicReferenceArray<CompletableFuture<E>> waiters;
+    /** Pending waiters for any of multiple constants. */
+    private final Set<AnyWaiter<E>> anyWaiters = ConcurrentHashMap.newKeySet();
+
+    private record AnyWaiter<E extends Enum<E>>(@NotNull EnumSet<E> states, @NotNull CompletableFuture<E> result) { }
 
     public EnumLatch(@NotNull E initialValue) {
-        this.lock       = new ReentrantLock();
-        this.conditions = new HashMap<>();
-        this.value      = initialValue;
+        this.value   = new AtomicReference<>(initialValue);
+        this.waiters = new AtomicReferenceArray<>(initialValue.getDeclaringClass().getEnumConstants().length);
     }
 
-    public void await(@NotNull E value) throws InterruptedException {
-        lock.lock();
+    /**
+     * Returns the shared future that is completed the next time the value is updated to {@code state}, or a completed
+     * future if that is already the current value.
+     */
+    private @NotNull CompletableFuture<E> waiter(@NotNull E state) {
+        if (value.get() == state)
+            return CompletableFuture.completedFuture(state);
+
+        final int ordinal = state.ordinal();
+        CompletableFuture<E> future = waiters.get(ordinal);
+        // a completed future is a leftover of an earlier update and is replaced like an empty slot
+        while (future == null || future.isDone()) {
+            CompletableFuture<E> created = new CompletableFuture<>();
+            CompletableFuture<E> witness = waiters.compareAndExchange(ordinal, future, created);
+            if (witness == future) {
+                future = created;
+                break;
+            }
+            future = witness;
+        }
 
-        try {
-            // immediately return if the condition is already met
-            if (this.value.equals(value))
-                return;
-
-            // block thread
-            registerCondition(value).await();
-        } finally {
-            conditions.remove(Thread.currentThread());
-            lock.unlock();
+        // the value may have been updated before the future was registered; the slot is cleared first, so the
+        // completed future is not handed out once the value has moved on
+        if (value.get() == state) {
+            waiters.compareAndSet(ordinal, future, null);
+            future.complete(state);
         }
+        return future;
     }
 
-    public boolean await(@NotNull E value, long time, @NotNull TimeUnit unit) throws InterruptedException {
-        lock.lock();
+    /** Completes all waiters of a value. Must be called after the value has been updated. */
+    private void signal(@NotNull E state) {
+        CompletableFuture<E> future = waiters.getAndSet(state.ordinal(), null);
+        if (future != null)
+            future.complete(state);
 
+        for (AnyWaiter<E> waiter : anyWaiters)
+            if (waiter.states().contains(state))
+                waiter.result().complete(state);
+    }
 
-        try {
-            // immediately return if the value is already met
-            if (this.value.equals(value))
-                return false;
-
-            // block thread
-            return registerCondition(value).await(time, unit);
-        } finally {
-            conditions.remove(Thread.currentThread());
-            lock.unlock();
-        }
+    /* - - - */
+
+    /** Blocks until the value is {@code value}. Returns immediately if that is already the case. */
+    public void await(@NotNull E value) throws InterruptedException {
+        join(waiter(value));
     }
 
-    private Condition registerCondition(@NotNull E value) {
-        final Thread currentThread = Thread.currentThread();
-        final Condition  condition = lock.newCondition();
+    /**
+     * Blocks until the value is {@code value} or the timeout is exceeded.
+     * @return {@code true} if the value has been reached (or already was the current value), {@code false} if the
+     *         timeout has been exceeded.
+     */
+    public boolean await(@NotNull E value, long time, @NotNull TimeUnit unit) throws InterruptedException {
+        return join(waiter(value), time, unit);
+    }
 
-        // register condition
-        conditions.put(currentThread, new Pair<>(value, condition));
+    /**
+     * Blocks until the value is any of {@code values}.
+     * @return The value that has been reached.
+     */
+    public @NotNull E awaitAny(@NotNull EnumSet<E> values) throws InterruptedException {
+        return join(onAnyState(values));
+    }
 
-        return condition;
+    /**
+     * Blocks until the value is any of {@code values} or the timeout is exceeded.
+     * @return {@code true} if one of the values has been reached, {@code false} if the timeout has been exceeded.
+     */
+    public boolean awaitAny(@NotNull EnumSet<E> values, long time, @NotNull TimeUnit unit) throws InterruptedException {
+        return join(onAnyState(values), time, unit);
     }
 
-    public void set(@NotNull E value) {
-        lock.lock();
+    /**
+     * Returns a future that is completed the next time the value is updated to {@code state}, or a completed future if
+     * that is already the current value. This does not block any thread. Completing or cancelling the returned future
+     * does not affect other waiters.
+     */
+    public @NotNull CompletableFuture<E> onState(@NotNull E state) {
+        return waiter(state).copy();
+    }
 
-        try {
-            this.updateConditions(value);
-        } finally {
-            lock.unlock();
-        }
+    /**
+     * Returns a future that is completed with the first of {@code states} that the value is updated to, or a completed
+     * future if the current value is already one of them.
+     */
+    public @NotNull CompletableFuture<E> onAnyState(@NotNull EnumSet<E> states) {
+        E current = value.get();
+        if (states.contains(current))
+            return CompletableFuture.completedFuture(current);
+
+        CompletableFuture<E> result = new CompletableFuture<>();
+        AnyWaiter<E> waiter = new AnyWaiter<>(EnumSet.copyOf(states), result);
+        anyWaiters.add(waiter);
+        // also removes the waiter if the caller cancels the future
+        result.whenComplete((state, t) -> anyWaiters.remove(waiter));
+
+        // the value may have been updated before the waiter was registered
+        current = value.get();
+        if (waiter.states().contains(current))
+            result.complete(current);
+        return result;
     }
 
-    public boolean update(@NotNull E from, @NotNull E to) {
-        lock.lock();
+    /* - - - */
 
-        try {
-            if (!this.value.equals(from))
-                return false;
+    public void set(@NotNull E value) {
+        this.value.set(value);
+        this.signal(value);
+    }
 
-            this.updateConditions(to);
-        } finally {
-            lock.unlock();
-        }
+    /**
+     * Atomically updates the value to {@code to} if the current value is {@code from}.
+     * @return {@code true} if successful, {@code false} if the current value was not {@code from}.
+     */
+    public boolean compareAndSet(@NotNull E from, @NotNull E to) {
+        if (!this.value.compareAndSet(from, to))
+            return false;
+        this.signal(to);
         return true;
     }
 
-    private void updateConditions(@NotNull E value) {
-        // must be locked during invocation
+    /** @see #compareAndSet(Enum, Enum) */
+    public boolean update(@NotNull E from, @NotNull E to) {
+        return this.compareAndSet(from, to);
+    }
 
-        this.value = value;
+    public @NotNull E get() {
+        return this.value.get();
+    }
 
-        for (Pair<E, Condition> condition : conditions.values()) {
-            // check if the condition awaits the new value
-            if (!condition.first().equals(value)) continue;
+    /* - - - */
 
-            condition.second().signalAll();
+    private static <E> E join(@NotNull CompletableFuture<E> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException | CancellationException e) {
+            // waiters are only ever completed normally
+            throw new IllegalStateException(e);
         }
     }
 
-    public @NotNull E get() {
-        return this.value;
+    private static boolean join(@NotNull CompletableFuture<?> future, long time, @NotNull TimeUnit unit) throws InterruptedException {
+        try {
+            future.get(time, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException | CancellationException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
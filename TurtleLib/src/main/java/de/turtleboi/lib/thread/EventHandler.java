@@ -0,0 +1,19 @@
+package de.turtleboi.lib.thread;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Processes events of a {@link RingBuffer}. Used by {@link BatchEventProcessor}.
+ * @param <E> Event type.
+ */
+@FunctionalInterface
+public interface EventHandler<E> {
+    /**
+     * Called for each event that is available to the consumer stage, in order of the sequence.
+     * @param event The event. It is re-used for later sequences and must not be referenced after this call.
+     * @param sequence Sequence of the event.
+     * @param endOfBatch {@code true} if this is the last event of the current batch. This may be used to flush
+     *                   buffered output once per batch instead of once per event.
+     */
+    void onEvent(@NotNull E event, long sequence, boolean endOfBatch) throws Exception;
+}
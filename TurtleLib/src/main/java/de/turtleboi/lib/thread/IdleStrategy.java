@@ -0,0 +1,67 @@
+package de.turtleboi.lib.thread;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decides what a polling loop (like a {@link Worker}) does when an iteration did not do any work. Strategies trade
+ * latency for CPU usage: {@link #busySpin()} reacts within nanoseconds but occupies a whole core, while
+ * {@link #blocking(long)} uses no CPU at all until it is woken up.
+ * <p> Strategies may keep state (e.g. the current backoff step) and must therefore not be shared between threads.
+ */
+public interface IdleStrategy {
+    /**
+     * Called after each iteration of a loop.
+     * @param workCount Amount of work the iteration has done. If this is positive the strategy is {@link #reset()},
+     *                  otherwise it {@link #idle() idles}.
+     */
+    default void idle(int workCount) {
+        if (workCount > 0)
+            reset();
+        else
+            idle();
+    }
+
+    /** Idles once. Repeated calls without a {@link #reset()} may idle for increasingly long periods. */
+    void idle();
+
+    /** Resets the internal state, after work has been done. */
+    default void reset() { }
+
+    /* - - - */
+
+    /** Never yields the CPU. Lowest latency, but burns a whole core. Only useful on dedicated hardware. */
+    static @NotNull IdleStrategy busySpin() {
+        return Thread::onSpinWait;
+    }
+
+    /** Calls {@link Thread#yield()}, allowing other threads to run. */
+    static @NotNull IdleStrategy yielding() {
+        return Thread::yield;
+    }
+
+    /**
+     * Spins, then yields, then parks with exponentially increasing durations.
+     * @param maxSpins Amount of idle iterations that spin before yielding.
+     * @param maxYields Amount of idle iterations that yield before parking.
+     * @param minParkNanos First park duration.
+     * @param maxParkNanos Maximum park duration.
+     */
+    static @NotNull IdleStrategy backoff(int maxSpins, int maxYields, long minParkNanos, long maxParkNanos) {
+        return new BackoffIdleStrategy(maxSpins, maxYields, minParkNanos, maxParkNanos);
+    }
+
+    /** A {@link #backoff(int, int, long, long)} strategy with 100 spins, 10 yields and parking from 1 microsecond to 1 millisecond. */
+    static @NotNull IdleStrategy backoff() {
+        return backoff(100, 10, 1_000L, 1_000_000L);
+    }
+
+    /**
+     * Parks the thread until it is unparked (see {@link Worker#wakeUp()}) or {@code maxWaitNanos} have passed. Uses
+     * no CPU while waiting, but requires producers to wake up the thread when there is new work.
+     */
+    static @NotNull IdleStrategy blocking(long maxWaitNanos) {
+        return () -> LockSupport.parkNanos(maxWaitNanos);
+    }
+}
@@ -0,0 +1,192 @@
+package de.turtleboi.lib.thread;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Executes tasks on a shared {@link Executor} while guaranteeing that tasks with the same key are executed one after
+ * another, in the order they have been submitted (FIFO per key). Tasks with different keys may run in parallel.
+ * <p> Each key with pending tasks has a {@link MpscQueue} that is drained by at most one thread of the executor at a
+ * time. Once all tasks of a key have been executed, its queue is removed, so idle keys (e.g. offline players) do not
+ * hold on to any threads or queues.
+ * <p> To keep keys with many tasks from starving other keys, a queue gives up its thread after
+ * {@link #getBatchSize()} tasks and is re-submitted to the executor.
+ * <p> Exceptions thrown by a task are passed to the {@link Thread#getUncaughtExceptionHandler() uncaught exception
+ * handler} of the executing thread and do not affect following tasks.
+ * @param <K> Key type. Keys must implement {@link Object#hashCode()} and {@link Object#equals(Object)}.
+ */
+public class KeyedExecutor<K> {
+    /** Default maximum amount of tasks of one key that are executed before the thread is released. */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    /** Marks a queue that has been drained and removed. Producers must not add tasks to it anymore. */
+    private static final int RETIRED = -1;
+
+    private final Executor executor;
+    private final int batchSize;
+    private final ConcurrentHashMap<K, KeyQueue> queues = new ConcurrentHashMap<>();
+
+    /** @param executor Executor that runs the tasks, usually a bounded thread pool. */
+    public KeyedExecutor(@NotNull Executor executor) {
+        this(executor, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param executor Executor that runs the tasks, usually a bounded thread pool.
+     * @param batchSize Maximum amount of tasks of one key that are executed before the thread is released.
+     */
+    public KeyedExecutor(@NotNull Executor executor, int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be positive");
+        this.executor  = executor;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Submits a task that will be executed after all tasks that have previously been submitted with the same key.
+     * @param key The key, e.g. a player UUID.
+     * @param task The task.
+     * @throws RejectedExecutionException if the underlying executor rejects the task. Tasks of the same key that
+     *                                    have been submitted concurrently have already been accepted, so they are run
+     *                                    on the calling thread before the exception is thrown.
+     */
+    public void execute(@NotNull K key, @NotNull Runnable task) {
+        while (true) {
+            KeyQueue queue = queues.computeIfAbsent(key, KeyQueue::new);
+
+            int pending = queue.pending.get();
+            if (pending == RETIRED) {
+                // the queue has just been drained and is about to be removed
+                queues.remove(key, queue);
+                continue;
+            }
+
+            if (!queue.pending.compareAndSet(pending, pending + 1))
+                continue;
+
+            queue.tasks.offer(task);
+
+            // the first pending task schedules the queue, following tasks are picked up by the running drain
+            if (pending == 0) {
+                try {
+                    executor.execute(queue);
+                } catch (RejectedExecutionException e) {
+                    queue.reject(task);
+                    throw e;
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * Submits a task that will be executed after all tasks that have previously been submitted with the same key.
+     * @return A future that is completed with the result of the task.
+     * @see #execute(Object, Runnable)
+     */
+    public <T> @NotNull CompletableFuture<T> submit(@NotNull K key, @NotNull Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        this.execute(key, () -> {
+            try {
+                future.complete(task.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    /** Returns the amount of keys that currently have pending tasks. */
+    public int getActiveKeys() {
+        return queues.size();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /* - - - */
+
+    private final class KeyQueue implements Runnable {
+        private final K key;
+        private final MpscQueue<Runnable> tasks = new MpscQueue<>();
+        /** Amount of tasks that have been submitted but not executed yet, or {@link #RETIRED}. */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        KeyQueue(@NotNull K key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            // this is only called while pending > 0, and only one thread may run it at a time
+            while (true) {
+                for (int i = 0; i < batchSize; i++) {
+                    runTask(take());
+
+                    if (pending.decrementAndGet() == 0) {
+                        // a new task may only schedule this queue again if it could not be retired
+                        if (pending.compareAndSet(0, RETIRED))
+                            queues.remove(key, this);
+                        return;
+                    }
+                }
+
+                // there are still tasks left, but other keys should get a chance to run first
+                try {
+                    executor.execute(this);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // the tasks have already been accepted, so they are run on this thread instead of being lost
+                }
+            }
+        }
+
+        /**
+         * Drops a task that has been rejected by the executor and runs all other pending tasks on the calling thread,
+         * as no other thread drains this queue. The other tasks have been submitted concurrently and their producers
+         * have already returned, so they must not be lost.
+         */
+        void reject(@NotNull Runnable rejected) {
+            boolean dropped = false;
+            while (true) {
+                Runnable task = take();
+                if (!dropped && task == rejected)
+                    dropped = true;
+                else
+                    runTask(task);
+
+                if (pending.decrementAndGet() == 0) {
+                    if (pending.compareAndSet(0, RETIRED))
+                        queues.remove(key, this);
+                    return;
+                }
+            }
+        }
+
+        private @NotNull Runnable take() {
+            Runnable task = tasks.poll();
+            while (task == null) {
+                // the producer has incremented pending but not offered the task yet
+                Thread.onSpinWait();
+                task = tasks.poll();
+            }
+            return task;
+        }
+
+        private void runTask(@NotNull Runnable task) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package de.turtleboi.lib.thread;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * An unbounded, lock-free queue for multiple producers and a single consumer (based on Dmitry Vyukov's intrusive MPSC
+ * node queue).
+ * <p> {@link #offer(Object)} may be called by any thread and only consists of one atomic exchange. {@link #poll()},
+ * {@link #drain(Consumer, int)} and {@link #isEmpty()} must only ever be called by the same
+ * (consumer) thread. Note that {@link #poll()} may briefly return {@code null} while another thread is in the middle
+ * of an {@link #offer(Object)}, even though {@link #isEmpty()} already returns {@code false}.
+ * @param <E> Element type.
+ */
+public final class MpscQueue<E> {
+    private static final VarHandle NEXT;
+
+    static {
+        try {
+            NEXT = MethodHandles.lookup().findVarHandle(Node.class, "next", Node.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final class Node<E> {
+        @SuppressWarnings("unused")
+        private volatile Node<E> next;
+        private E value;
+
+        Node(E value) {
+            this.value = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        Node<E> next() {
+            return (Node<E>) NEXT.getAcquire(this);
+        }
+    }
+
+    /** The last node, swapped by producers. */
+    private final AtomicReference<Node<E>> tail;
+    /** The node before the first element. Only accessed by the consumer. */
+    private Node<E> head;
+
+    private final LongAdder offered = new LongAdder();
+    private volatile long polled;
+
+    public MpscQueue() {
+        Node<E> stub = new Node<>(null);
+        this.head = stub;
+        this.tail = new AtomicReference<>(stub);
+    }
+
+    /** Adds an element to the end of this queue. May be called by any thread. */
+    public void offer(@NotNull E element) {
+        Node<E> node = new Node<>(element);
+        Node<E> prev = tail.getAndSet(node);
+        // until this is visible the consumer cannot reach the new node
+        NEXT.setRelease(prev, node);
+        offered.increment();
+    }
+
+    /** Removes and returns the first element, or {@code null} if there is none (yet). Consumer thread only. */
+    public @Nullable E poll() {
+        Node<E> next = head.next();
+        if (next == null)
+            return null;
+
+        E value = next.value;
+        next.value = null;
+        head = next;
+        polled++;
+        return value;
+    }
+
+    /**
+     * Removes up to {@code limit} elements and passes them to {@code consumer}. Consumer thread only.
+     * @return The amount of elements that have been removed.
+     */
+    public int drain(@NotNull Consumer<? super E> consumer, int limit) {
+        int count = 0;
+        try {
+            while (count < limit) {
+                Node<E> next = head.next();
+                if (next == null)
+                    break;
+
+                E value = next.value;
+                next.value = null;
+                // move head before passing on the element, so a failing consumer does not receive it again
+                head = next;
+                count++;
+                consumer.accept(value);
+            }
+        } finally {
+            polled += count;
+        }
+        return count;
+    }
+
+    /** Returns {@code true} if no element has been offered that is not polled yet. Consumer thread only. */
+    public boolean isEmpty() {
+        return head == tail.get();
+    }
+
+    /**
+     * Returns an estimate of the amount of elements in this queue. May be called by any thread, but is not exact while
+     * other threads are modifying the queue.
+     */
+    public long size() {
+        return Math.max(0, offered.sum() - polled);
+    }
+}
@@ -3,12 +3,34 @@ package de.turtleboi.lib.thread;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
-/** A simple thread that executes {@link Runnable Runnables} that are provided by other Threads. */
-public class QueueWorker extends Thread {
-    private final Queue<Runnable> queue = new LinkedList<>();
+/**
+ * A simple thread that executes {@link Runnable Runnables} that are provided by other Threads.
+ * <p> Tasks are queued in a lock-free {@link MpscQueue}, so any amount of threads may call {@link #queue(Runnable)}
+ * concurrently. The worker drains the queue in batches of up to {@link #getBatchSize()} tasks and parks when the queue
+ * is empty. Producers only unpark the worker if it is actually parked, so a busy worker is never signalled.
+ * <p> Exceptions thrown by a task are passed to the {@link #getUncaughtExceptionHandler() uncaught exception handler}
+ * of this thread and do not stop the worker. Calling {@link #interrupt()} stops the worker; tasks that have not been
+ * executed yet are discarded.
+ */
+public class QueueWorker extends Thread implements Executor {
+    /** Default maximum amount of tasks that are executed per batch. */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final MpscQueue<Runnable> queue = new MpscQueue<>();
+    private final int batchSize;
+
+    /** Whether this worker is parked (or about to park) and needs to be unparked by the next producer. */
+    private final AtomicBoolean idle = new AtomicBoolean(false);
+
+    // statistics; only written by the worker thread
+    private final AtomicLong completedTasks = new AtomicLong();
+    private volatile long lastDrainNanos;
+    private volatile long maxDrainNanos;
 
     public QueueWorker() {
         this("QueueWorker-" + nextThreadNum());
@@ -19,36 +41,92 @@ public class QueueWorker extends Thread {
     }
 
     public QueueWorker(@Nullable ThreadGroup group, @NotNull String name) {
+        this(group, name, DEFAULT_BATCH_SIZE);
+    }
+
+    public QueueWorker(@Nullable ThreadGroup group, @NotNull String name, int batchSize) {
         super(group, null, name);
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be positive");
+        this.batchSize = batchSize;
         this.start();
     }
 
     public void queue(@NotNull Runnable task) {
-        this.queue.add(task);
-        this.notify();
+        this.queue.offer(task);
+
+        // only signal the worker if it is idle; the CAS ensures it is only unparked once
+        if (idle.get() && idle.compareAndSet(true, false))
+            LockSupport.unpark(this);
+    }
+
+    /** Equivalent to {@link #queue(Runnable)}. */
+    @Override
+    public void execute(@NotNull Runnable command) {
+        this.queue(command);
     }
 
     @Override
     public void run() {
         while (!this.isInterrupted()) {
-            // execute one task
-            Runnable task = queue.poll();
-            if (task != null)
-                task.run();
-
-            // sleep if there are no more tasks
-            if (queue.isEmpty()) {
-                try {
-                    this.wait();
-                } catch (InterruptedException ignored) { }
+            long start = System.nanoTime();
+            int count = queue.drain(this::runTask, batchSize);
+
+            if (count > 0) {
+                long duration = System.nanoTime() - start;
+                lastDrainNanos = duration;
+                if (duration > maxDrainNanos)
+                    maxDrainNanos = duration;
+                completedTasks.lazySet(completedTasks.get() + count);
+                continue;
             }
+
+            // a producer has swapped the tail but not linked its node yet
+            if (!queue.isEmpty()) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            idle.set(true);
+            // re-check after announcing, otherwise a task queued in between would not wake this worker
+            if (queue.isEmpty())
+                LockSupport.park(this);
+            idle.set(false);
         }
     }
 
-    @Override
-    public void interrupt() {
-        super.interrupt();
-        this.notify();
+    private void runTask(@NotNull Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            this.getUncaughtExceptionHandler().uncaughtException(this, t);
+        }
+    }
+
+    /* - - - */
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /** Returns an estimate of the amount of tasks that are currently waiting to be executed. */
+    public long getQueueDepth() {
+        return queue.size();
+    }
+
+    /** Returns the amount of tasks that have been executed by this worker. */
+    public long getCompletedTaskCount() {
+        return completedTasks.get();
+    }
+
+    /** Returns the time in nanoseconds it took to execute the last batch of tasks. */
+    public long getLastDrainNanos() {
+        return lastDrainNanos;
+    }
+
+    /** Returns the longest time in nanoseconds it took to execute a batch of tasks. */
+    public long getMaxDrainNanos() {
+        return maxDrainNanos;
     }
 
     // Numbering threads without custom names
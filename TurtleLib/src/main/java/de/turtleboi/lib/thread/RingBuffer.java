@@ -0,0 +1,279 @@
+package de.turtleboi.lib.thread;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * A bounded ring of pre-allocated, mutable events that are passed from producers through one or more consumer stages
+ * (based on the LMAX Disruptor).
+ * <p> Instead of allocating a new object (and queue node) for each message, producers claim the next slot with
+ * {@link #next()}, fill the event in that slot and {@link #publish(long) publish} its sequence. Consumers (see
+ * {@link BatchEventProcessor}) track their progress with a {@link Sequence} and wait on a {@link SequenceBarrier},
+ * which either follows the producers or other consumers. This way consumer stages can depend on each other, e.g.
+ * {@code decode -> handle}, while all stages work on the same slots. Consumers process all events that are available
+ * at once, so a slow consumer catches up in large batches.
+ * <p> Producers never overwrite a slot that has not been processed by all consumers of the last stage, which have to
+ * be registered with {@link #addGatingSequences(Sequence...)}. If the ring is full, producers wait.
+ * <p> Example:
+ * <pre> {@code
+ * RingBuffer<Message> ring = RingBuffer.createMultiProducer(Message::new, 1024);
+ *
+ * BatchEventProcessor<Message> decode = new BatchEventProcessor<>(ring, ring.newBarrier(), decoder, IdleStrategy.backoff());
+ * BatchEventProcessor<Message> handle = new BatchEventProcessor<>(ring, ring.newBarrier(decode.getSequence()), handler, IdleStrategy.backoff());
+ * ring.addGatingSequences(handle.getSequence());
+ *
+ * // start both processors on their own threads, then publish
+ * ring.publishEvent((message, buffer) -> message.setPayload(buffer), buffer);
+ * } </pre>
+ * Once the events have been allocated, publishing and processing does not allocate any objects (as long as the
+ * translator lambda does not capture anything).
+ * @param <E> Event type.
+ */
+public final class RingBuffer<E> {
+    private static final VarHandle AVAILABLE = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final Object[] entries;
+    private final int bufferSize;
+    private final int mask;
+    private final int indexShift;
+    private final boolean multiProducer;
+
+    /** The highest published (single producer) or claimed (multi producer) sequence. */
+    private final Sequence cursor = new Sequence();
+    private volatile Sequence[] gatingSequences = new Sequence[0];
+
+    // single producer only; only accessed by the producer thread
+    private long nextValue   = Sequence.INITIAL_VALUE;
+    private long cachedValue = Sequence.INITIAL_VALUE;
+
+    // multi producer only
+    private final Sequence gatingSequenceCache;
+    /** The round ({@code sequence / bufferSize}) in which each slot has last been published. */
+    private final int[] available;
+
+    private RingBuffer(@NotNull Supplier<E> factory, int bufferSize, boolean multiProducer) {
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1)
+            throw new IllegalArgumentException("Buffer size must be a power of 2");
+
+        this.entries = new Object[bufferSize];
+        for (int i = 0; i < bufferSize; i++)
+            entries[i] = factory.get();
+
+        this.bufferSize    = bufferSize;
+        this.mask          = bufferSize - 1;
+        this.indexShift    = Integer.numberOfTrailingZeros(bufferSize);
+        this.multiProducer = multiProducer;
+
+        if (multiProducer) {
+            this.gatingSequenceCache = new Sequence();
+            this.available = new int[bufferSize];
+            Arrays.fill(available, -1);
+        } else {
+            this.gatingSequenceCache = null;
+            this.available = null;
+        }
+    }
+
+    /**
+     * Creates a ring buffer that may only be published to by a single thread at a time. Claiming a slot does not
+     * require any atomic operations.
+     * @param factory Creates the events that are stored in the slots.
+     * @param bufferSize Amount of slots, must be a power of 2.
+     */
+    public static <E> @NotNull RingBuffer<E> createSingleProducer(@NotNull Supplier<E> factory, int bufferSize) {
+        return new RingBuffer<>(factory, bufferSize, false);
+    }
+
+    /**
+     * Creates a ring buffer that may be published to by any amount of threads concurrently.
+     * @param factory Creates the events that are stored in the slots.
+     * @param bufferSize Amount of slots, must be a power of 2.
+     */
+    public static <E> @NotNull RingBuffer<E> createMultiProducer(@NotNull Supplier<E> factory, int bufferSize) {
+        return new RingBuffer<>(factory, bufferSize, true);
+    }
+
+    /* - - - */
+
+    /** Returns the event in the slot of a sequence. */
+    @SuppressWarnings("unchecked")
+    public @NotNull E get(long sequence) {
+        return (E) entries[(int) sequence & mask];
+    }
+
+    /** Claims the next slot. Waits if the ring is full. */
+    public long next() {
+        return next(1);
+    }
+
+    /**
+     * Claims the next {@code n} slots. Waits if there is not enough space.
+     * @return The highest claimed sequence; the claimed sequences are {@code (result - n, result]}.
+     */
+    public long next(int n) {
+        if (n < 1 || n > bufferSize)
+            throw new IllegalArgumentException("n must be between 1 and the buffer size");
+        return multiProducer ? nextMulti(n) : nextSingle(n);
+    }
+
+    private long nextSingle(int n) {
+        long current   = nextValue;
+        long next      = current + n;
+        long wrapPoint = next - bufferSize;
+
+        if (wrapPoint > cachedValue || cachedValue > current) {
+            long minimum;
+            while (wrapPoint > (minimum = Sequence.getMinimum(gatingSequences, current)))
+                LockSupport.parkNanos(1L);
+            cachedValue = minimum;
+        }
+
+        nextValue = next;
+        return next;
+    }
+
+    private long nextMulti(int n) {
+        while (true) {
+            long current   = cursor.get();
+            long next      = current + n;
+            long wrapPoint = next - bufferSize;
+            long cached    = gatingSequenceCache.get();
+
+            if (wrapPoint > cached || cached > current) {
+                long minimum = Sequence.getMinimum(gatingSequences, current);
+                if (wrapPoint > minimum)
+                    LockSupport.parkNanos(1L);
+                else
+                    gatingSequenceCache.set(minimum);
+            } else if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Claims the next slot if the ring is not full, without waiting.
+     * @return The claimed sequence, or {@code -1} if the ring is full.
+     */
+    public long tryNext() {
+        if (!multiProducer) {
+            long next = nextValue + 1;
+            if (next - bufferSize > cachedValue) {
+                cachedValue = Sequence.getMinimum(gatingSequences, nextValue);
+                if (next - bufferSize > cachedValue)
+                    return -1;
+            }
+            nextValue = next;
+            return next;
+        }
+
+        while (true) {
+            long current   = cursor.get();
+            long next      = current + 1;
+            long wrapPoint = next - bufferSize;
+
+            if (wrapPoint > gatingSequenceCache.get()) {
+                long minimum = Sequence.getMinimum(gatingSequences, current);
+                gatingSequenceCache.set(minimum);
+                if (wrapPoint > minimum)
+                    return -1;
+            }
+            if (cursor.compareAndSet(current, next))
+                return next;
+        }
+    }
+
+    /** Makes the event of a claimed sequence visible to consumers. */
+    public void publish(long sequence) {
+        if (multiProducer)
+            AVAILABLE.setRelease(available, (int) sequence & mask, (int) (sequence >>> indexShift));
+        else
+            cursor.set(sequence);
+    }
+
+    /** Makes the events of a range of claimed sequences (both inclusive) visible to consumers. */
+    public void publish(long lo, long hi) {
+        if (multiProducer) {
+            for (long sequence = lo; sequence <= hi; sequence++)
+                AVAILABLE.setRelease(available, (int) sequence & mask, (int) (sequence >>> indexShift));
+        } else {
+            cursor.set(hi);
+        }
+    }
+
+    /**
+     * Claims the next slot, lets the translator fill its event and publishes it.
+     * @param translator Receives the event and {@code arg}. To avoid allocations this should not capture anything.
+     * @param arg Argument passed to the translator.
+     */
+    public <A> void publishEvent(@NotNull BiConsumer<? super E, A> translator, A arg) {
+        long sequence = next();
+        try {
+            translator.accept(get(sequence), arg);
+        } finally {
+            // the sequence has to be published in any case, otherwise consumers would wait forever
+            publish(sequence);
+        }
+    }
+
+    /* - - - */
+
+    /**
+     * Adds sequences that producers may not overtake, usually those of the consumers of the last stage. This should
+     * be called before anything is published.
+     */
+    public synchronized void addGatingSequences(@NotNull Sequence... sequences) {
+        long cursor = this.cursor.get();
+        for (Sequence sequence : sequences)
+            sequence.set(cursor);
+
+        Sequence[] current = gatingSequences;
+        Sequence[] updated = Arrays.copyOf(current, current.length + sequences.length);
+        System.arraycopy(sequences, 0, updated, current.length, sequences.length);
+        gatingSequences = updated;
+    }
+
+    /**
+     * Creates a barrier for a consumer stage.
+     * @param dependents Sequences of the consumers of the previous stage. If none are provided, the barrier follows the
+     *                   producers.
+     */
+    public @NotNull SequenceBarrier newBarrier(@NotNull Sequence... dependents) {
+        return new SequenceBarrier(this, cursor, dependents.clone());
+    }
+
+    /**
+     * Returns the highest sequence in {@code [lowerBound, availableSequence]} up to which all sequences have been
+     * published, or {@code lowerBound - 1} if {@code lowerBound} has not been published yet.
+     */
+    long getHighestPublishedSequence(long lowerBound, long availableSequence) {
+        if (!multiProducer)
+            return availableSequence;
+
+        for (long sequence = lowerBound; sequence <= availableSequence; sequence++)
+            if ((int) AVAILABLE.getAcquire(available, (int) sequence & mask) != (int) (sequence >>> indexShift))
+                return sequence - 1;
+        return availableSequence;
+    }
+
+    /** Returns the highest sequence that has been claimed (and, with a single producer, published). */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /** Returns the amount of slots that can currently be claimed without waiting. */
+    public long remainingCapacity() {
+        long produced = multiProducer ? cursor.get() : nextValue;
+        return bufferSize - (produced - Sequence.getMinimum(gatingSequences, produced));
+    }
+}
@@ -0,0 +1,78 @@
+package de.turtleboi.lib.thread;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// The JVM may reorder the fields of a class (e.g. longs by size, regardless of their declaration order), but it always
+// lays out the fields of a superclass before those of its subclasses. Spreading the padding over a class hierarchy is
+// therefore the only way to make sure the value is surrounded by 56 bytes on each side.
+
+abstract class LhsPadding {
+    @SuppressWarnings("unused")
+    protected long p1, p2, p3, p4, p5, p6, p7;
+}
+
+abstract class Value extends LhsPadding {
+    protected volatile long value;
+}
+
+abstract class RhsPadding extends Value {
+    @SuppressWarnings("unused")
+    protected long p9, p10, p11, p12, p13, p14, p15;
+}
+
+/**
+ * A counter that marks progress in a {@link RingBuffer}, either the sequence a producer has claimed or published, or
+ * the last sequence a consumer has processed.
+ * <p> Sequences are read by other threads on every batch, so the value is padded on both sides to make sure it does
+ * not share a cache line with other frequently written fields (false sharing). The padding is inherited from
+ * package-private superclasses, see above.
+ */
+public class Sequence extends RhsPadding {
+    /** Value of a sequence before anything has been published or processed. */
+    public static final long INITIAL_VALUE = -1L;
+
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(Value.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public Sequence() {
+        this(INITIAL_VALUE);
+    }
+
+    public Sequence(long initialValue) {
+        VALUE.setRelease(this, initialValue);
+    }
+
+    public long get() {
+        return (long) VALUE.getAcquire(this);
+    }
+
+    /** Sets the value with release semantics, i.e. all writes before this call are visible to threads that read it. */
+    public void set(long value) {
+        VALUE.setRelease(this, value);
+    }
+
+    public boolean compareAndSet(long expected, long value) {
+        return VALUE.compareAndSet(this, expected, value);
+    }
+
+    /** Returns the smallest value of all provided sequences, or {@code minimum} if it is smaller. */
+    public static long getMinimum(Sequence[] sequences, long minimum) {
+        for (Sequence sequence : sequences)
+            minimum = Math.min(minimum, sequence.get());
+        return minimum;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
+
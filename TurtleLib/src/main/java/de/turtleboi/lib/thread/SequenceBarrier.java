@@ -0,0 +1,36 @@
+package de.turtleboi.lib.thread;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Tells a consumer stage of a {@link RingBuffer} which sequences it may process: Those that have been published by
+ * the producers and, if the stage depends on other stages, also processed by all of them.
+ * <p> Barriers never block; waiting is left to the consumer (see {@link BatchEventProcessor}), so it can decide how to
+ * idle and when to stop. A barrier does not have any state and may be shared by multiple consumers.
+ * @see RingBuffer#newBarrier(Sequence...)
+ */
+public final class SequenceBarrier {
+    private final RingBuffer<?> ringBuffer;
+    private final Sequence cursor;
+    private final Sequence[] dependents;
+
+    SequenceBarrier(@NotNull RingBuffer<?> ringBuffer, @NotNull Sequence cursor, @NotNull Sequence[] dependents) {
+        this.ringBuffer = ringBuffer;
+        this.cursor     = cursor;
+        this.dependents = dependents;
+    }
+
+    /**
+     * Returns the highest sequence that may be processed, which is at least {@code sequence} if that sequence is
+     * available, or {@code sequence - 1} if it is not available yet.
+     */
+    public long getHighestAvailable(long sequence) {
+        long available = dependents.length == 0
+                ? cursor.get()
+                : Sequence.getMinimum(dependents, Long.MAX_VALUE);
+
+        if (available < sequence)
+            return sequence - 1;
+        return ringBuffer.getHighestPublishedSequence(sequence, available);
+    }
+}
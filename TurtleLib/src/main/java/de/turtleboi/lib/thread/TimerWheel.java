@@ -0,0 +1,364 @@
+package de.turtleboi.lib.thread;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Schedules large amounts of short-lived timeouts (e.g. per-connection or per-request timeouts, heartbeats and
+ * retries) with a fixed resolution.
+ * <p> Timeouts are stored in a hierarchical hashed timer wheel: {@value #LEVELS} wheels of {@value #SLOTS} slots each,
+ * where a slot of level {@code k} covers {@code 64^k} ticks. Scheduling and cancelling a timeout is {@code O(1)} and
+ * does not require any locks: Both only enqueue the timeout in a {@link MpscQueue} that is processed by the wheel
+ * thread once per tick. Each tick, the wheel thread expires all timeouts of the current slot of the lowest level and
+ * hands their tasks to the executor that has been provided to the constructor. Timeouts in higher levels are moved
+ * down (cascaded) once their slot is reached, so each timeout is touched at most {@value #LEVELS} times, regardless of
+ * how many timeouts are scheduled.
+ * <p> A timeout never expires before its delay has passed, but may expire up to one tick (plus scheduling delays of
+ * the executor) late. The tick duration should therefore be chosen as coarse as the use case allows.
+ * <p> Exceptions thrown by the executor (e.g. a {@link RejectedExecutionException}) are passed to the
+ * {@link Thread#getUncaughtExceptionHandler() uncaught exception handler} of the wheel thread.
+ */
+public class TimerWheel {
+    /** Amount of slots per level. */
+    public static final int SLOTS = 64;
+    /** Amount of levels. With a tick duration of 1 ms, the highest level covers more than 2 years. */
+    public static final int LEVELS = 6;
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    /** Maximum amount of newly scheduled timeouts that are added to the wheel per tick. */
+    private static final int MAX_TRANSFER = 100_000;
+
+    private static final int STATE_PENDING   = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED   = 2;
+
+    private final Executor executor;
+    private final long tickNanos;
+    private final long startTime;
+
+    /** Slots of all levels, level {@code k} starts at index {@code k * SLOTS}. Only accessed by the wheel thread. */
+    private final Slot[] slots = new Slot[LEVELS * SLOTS];
+
+    private final MpscQueue<Timeout> scheduled = new MpscQueue<>();
+    private final MpscQueue<Timeout> cancelled = new MpscQueue<>();
+    private final LongAdder pending = new LongAdder();
+
+    private final Thread thread;
+    private volatile boolean stopped = false;
+
+    /**
+     * Creates and starts a new timer wheel.
+     * @param executor Executor that runs the tasks of expired timeouts.
+     * @param tickDuration Duration of one tick, i.e. the resolution of the wheel.
+     * @param unit Time unit of {@code tickDuration}.
+     */
+    public TimerWheel(@NotNull Executor executor, long tickDuration, @NotNull TimeUnit unit) {
+        this(executor, tickDuration, unit, "TimerWheel-" + nextThreadNum());
+    }
+
+    /**
+     * Creates and starts a new timer wheel.
+     * @param executor Executor that runs the tasks of expired timeouts.
+     * @param tickDuration Duration of one tick, i.e. the resolution of the wheel.
+     * @param unit Time unit of {@code tickDuration}.
+     * @param name Name of the wheel thread.
+     */
+    public TimerWheel(@NotNull Executor executor, long tickDuration, @NotNull TimeUnit unit, @NotNull String name) {
+        if (tickDuration <= 0)
+            throw new IllegalArgumentException("Tick duration must be positive");
+
+        for (int i = 0; i < slots.length; i++)
+            slots[i] = new Slot();
+
+        this.executor  = executor;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.startTime = System.nanoTime();
+
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Schedules a task to be executed once the delay has passed.
+     * @param task The task, which will be passed to the executor of this wheel.
+     * @param delay The delay. Non-positive delays expire with the next tick.
+     * @param unit Time unit of {@code delay}.
+     * @return A handle that can be used to cancel the timeout.
+     * @throws RejectedExecutionException if this wheel has been stopped.
+     */
+    public @NotNull Timeout schedule(@NotNull Runnable task, long delay, @NotNull TimeUnit unit) throws RejectedExecutionException {
+        if (stopped)
+            throw new RejectedExecutionException("Timer wheel has been stopped");
+
+        long deadline = System.nanoTime() - startTime + Math.max(0, unit.toNanos(delay));
+        // overflow (e.g. Long.MAX_VALUE delays) effectively means "never"
+        if (deadline < 0)
+            deadline = Long.MAX_VALUE;
+
+        Timeout timeout = new Timeout(task, deadline);
+        pending.increment();
+        scheduled.offer(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the wheel thread. Timeouts that have not expired yet are not executed.
+     * @return All timeouts that have neither expired nor been cancelled.
+     * @throws IllegalStateException if called from the wheel thread (i.e. by a task that is executed directly).
+     */
+    public @NotNull List<Timeout> stop() throws IllegalStateException {
+        if (Thread.currentThread() == thread)
+            throw new IllegalStateException("Cannot stop the timer wheel from its own thread");
+
+        stopped = true;
+        LockSupport.unpark(thread);
+
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        List<Timeout> remaining = new ArrayList<>();
+        for (Slot slot : slots)
+            for (Timeout timeout = slot.head; timeout != null; timeout = timeout.next)
+                if (timeout.state.get() == STATE_PENDING)
+                    remaining.add(timeout);
+
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null)
+            if (timeout.state.get() == STATE_PENDING)
+                remaining.add(timeout);
+        return remaining;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /** Returns the duration of one tick in nanoseconds. */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /** Returns the amount of timeouts that have neither expired nor been cancelled. */
+    public long getPendingTimeouts() {
+        return pending.sum();
+    }
+
+    /* - - - */
+
+    private void run() {
+        long tick = 0;
+        while (!stopped) {
+            // wait until the tick is due (ticks that are already overdue are processed right away)
+            long deadline = startTime + tick * tickNanos;
+            long now;
+            while ((now = System.nanoTime()) - deadline < 0) {
+                LockSupport.parkNanos(this, deadline - now);
+                if (stopped) return;
+            }
+
+            processCancelled();
+            cascade(tick);
+            transferScheduled(tick);
+            expire(tick);
+            tick++;
+        }
+    }
+
+    private void processCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null)
+            if (timeout.slot != null)
+                timeout.slot.remove(timeout);
+    }
+
+    /** Moves timeouts of all higher-level slots that are reached with this tick to the lower levels. */
+    private void cascade(long tick) {
+        for (int level = LEVELS - 1; level > 0; level--) {
+            int shift = level * SLOT_BITS;
+            if ((tick & ((1L << shift) - 1)) != 0) continue;
+
+            Slot slot = slots[level * SLOTS + (int) ((tick >>> shift) & SLOT_MASK)];
+            Timeout timeout = slot.clear();
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.next = null;
+                if (timeout.state.get() == STATE_PENDING)
+                    place(timeout, tick);
+                timeout = next;
+            }
+        }
+    }
+
+    private void transferScheduled(long tick) {
+        for (int i = 0; i < MAX_TRANSFER; i++) {
+            Timeout timeout = scheduled.poll();
+            if (timeout == null) return;
+
+            if (timeout.state.get() == STATE_PENDING)
+                place(timeout, tick);
+        }
+    }
+
+    /** Adds a timeout to the slot that is due at (or, for higher levels, cascaded before) its deadline. */
+    private void place(@NotNull Timeout timeout, long tick) {
+        // ceil, so the timeout never expires early
+        long deadlineTick = timeout.deadline / tickNanos + (timeout.deadline % tickNanos != 0 ? 1 : 0);
+        long target = Math.max(deadlineTick, tick);
+        long delta  = target - tick;
+
+        int level = delta < SLOTS ? 0 : (Long.SIZE - 1 - Long.numberOfLeadingZeros(delta)) / SLOT_BITS;
+        int index;
+        if (level < LEVELS) {
+            index = (int) ((target >>> (level * SLOT_BITS)) & SLOT_MASK);
+        } else {
+            // beyond the range of the wheel: park in the top-level slot that is cascaded last, then re-evaluate
+            level = LEVELS - 1;
+            index = (int) (((tick >>> (level * SLOT_BITS)) - 1) & SLOT_MASK);
+        }
+
+        slots[level * SLOTS + index].add(timeout);
+    }
+
+    private void expire(long tick) {
+        Timeout timeout = slots[(int) (tick & SLOT_MASK)].clear();
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+
+            if (timeout.state.compareAndSet(STATE_PENDING, STATE_EXPIRED)) {
+                pending.decrement();
+                try {
+                    executor.execute(timeout.task);
+                } catch (Throwable t) {
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    /* - - - */
+
+    /** A doubly-linked list of timeouts. Only accessed by the wheel thread. */
+    private static final class Slot {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(@NotNull Timeout timeout) {
+            timeout.slot = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null)
+                head = timeout;
+            else
+                tail.next = timeout;
+            tail = timeout;
+        }
+
+        void remove(@NotNull Timeout timeout) {
+            if (timeout.prev == null)
+                head = timeout.next;
+            else
+                timeout.prev.next = timeout.next;
+            if (timeout.next == null)
+                tail = timeout.prev;
+            else
+                timeout.next.prev = timeout.prev;
+
+            timeout.slot = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        /** Removes all timeouts and returns the first one. The returned timeouts are still linked via {@code next}. */
+        Timeout clear() {
+            Timeout first = head;
+            for (Timeout timeout = first; timeout != null; timeout = timeout.next) {
+                timeout.slot = null;
+                timeout.prev = null;
+            }
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+
+    /** A handle to a scheduled task. */
+    public final class Timeout {
+        private final Runnable task;
+        /** Deadline in nanoseconds, relative to the start time of the wheel. */
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(STATE_PENDING);
+
+        // only accessed by the wheel thread
+        private Slot slot;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(@NotNull Runnable task, long deadline) {
+            this.task     = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels this timeout, so its task will not be executed.
+         * @return {@code true} if the timeout has been cancelled, {@code false} if it has already expired or been
+         *         cancelled before.
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(STATE_PENDING, STATE_CANCELLED))
+                return false;
+            pending.decrement();
+            // let the wheel thread unlink it, so cancelled timeouts do not stay in memory until their deadline
+            cancelled.offer(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == STATE_CANCELLED;
+        }
+
+        /** Returns {@code true} if the task of this timeout has been handed to the executor. */
+        public boolean isExpired() {
+            return state.get() == STATE_EXPIRED;
+        }
+
+        public @NotNull Runnable getTask() {
+            return task;
+        }
+
+        /** Returns the remaining delay until this timeout is due, which is negative if the deadline has passed. */
+        public long getDelay(@NotNull TimeUnit unit) {
+            return unit.convert(startTime + deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        public @NotNull TimerWheel getTimer() {
+            return TimerWheel.this;
+        }
+    }
+
+    // Numbering threads without custom names
+    private static int threadNum = 0;
+    private static synchronized int nextThreadNum() {
+        return threadNum++;
+    }
+}
@@ -2,19 +2,41 @@ package de.turtleboi.lib.thread;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
 
 /**
  * A simple Thread that continuously repeats executing a {@link Runnable} until it is interrupted by a provided
  * {@link BooleanSupplier} or via {@link Thread#interrupt()}.
+ * <p> If the task reports how much work it has done (see {@link #Worker(BooleanSupplier, IntSupplier, IdleStrategy)}),
+ * an {@link IdleStrategy} decides what to do after iterations without any work, e.g. spin for low latency or park to
+ * save CPU.
  */
 public class Worker extends Thread {
     private final BooleanSupplier condition;
-    private final Runnable task;
+    private final IntSupplier task;
+    private final IdleStrategy idleStrategy;
 
+    /** Creates a worker that runs {@code task} in a tight loop, without ever idling. */
     public Worker(@NotNull BooleanSupplier condition, @NotNull Runnable task) {
+        this(condition, () -> {
+            task.run();
+            return 1;
+        }, IdleStrategy.busySpin());
+    }
+
+    /**
+     * Creates a worker that runs {@code task} in a loop and idles according to {@code idleStrategy} whenever the task
+     * returns {@code 0} (no work done).
+     * @param condition The worker stops once this returns {@code false}.
+     * @param task Returns the amount of work that has been done in an iteration.
+     * @param idleStrategy Strategy for iterations without work. Must not be shared with other threads.
+     */
+    public Worker(@NotNull BooleanSupplier condition, @NotNull IntSupplier task, @NotNull IdleStrategy idleStrategy) {
         this.condition = condition;
         this.task = task;
+        this.idleStrategy = idleStrategy;
 
         this.setDaemon(true);
         this.start();
@@ -23,6 +45,11 @@ public class Worker extends Thread {
     @Override
     public void run() {
         while (this.condition.getAsBoolean() && !this.isInterrupted())
-            this.task.run();
+            this.idleStrategy.idle(this.task.getAsInt());
+    }
+
+    /** Wakes up this worker if it is parked by its {@link IdleStrategy}, so new work is picked up immediately. */
+    public void wakeUp() {
+        LockSupport.unpark(this);
     }
 }
@@ -0,0 +1,41 @@
+package de.turtleboi.turtlenet.benchmark;
+
+/**
+ * The varint decoders of {@link de.turtleboi.lib.VarInts} before they were unrolled and learned to decode whole words,
+ * kept as the baseline of {@link VarIntsBenchmark}.
+ */
+final class LegacyVarInts {
+    /** Utility class */
+    private LegacyVarInts() { }
+
+    static int getVarInt(byte[] src, int offset, int[] val) {
+        int result = 0;
+        int shift = 0;
+        int b;
+
+        do {
+            if (shift >= 32)
+                throw new IndexOutOfBoundsException("Varint-32 too long");
+
+            b = src[offset++];
+            result |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        val[0] = result;
+        return offset;
+    }
+
+    static int getVarLong(byte[] src, int offset, long[] val) {
+        long result = 0;
+        int shift = 0, b;
+        do {
+            if (shift >= 64)
+                throw new IndexOutOfBoundsException("Varint-64 too long");
+            result |= (long) ((b = src[offset++]) & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        val[0] = result;
+        return offset;
+    }
+}
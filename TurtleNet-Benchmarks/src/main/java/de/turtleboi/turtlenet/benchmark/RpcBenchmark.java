@@ -0,0 +1,132 @@
+package de.turtleboi.turtlenet.benchmark;
+
+import de.turtleboi.lib.VarInts;
+import de.turtleboi.lib.buffer.BufferPool;
+import de.turtleboi.lib.thread.TimerWheel;
+import de.turtleboi.turtlenet.core.exec.BlockingExecutors;
+import de.turtleboi.turtlenet.core.exec.ExecutionMode;
+import de.turtleboi.turtlenet.core.net.Connection;
+import de.turtleboi.turtlenet.core.net.Listener;
+import de.turtleboi.turtlenet.core.net.Transport;
+import de.turtleboi.turtlenet.core.net.packet.PacketCodec;
+import de.turtleboi.turtlenet.core.net.packet.PacketListener;
+import de.turtleboi.turtlenet.core.net.packet.PacketPipeline;
+import de.turtleboi.turtlenet.core.net.packet.PacketRegistry;
+import de.turtleboi.turtlenet.core.net.rpc.RpcEndpoint;
+import de.turtleboi.turtlenet.core.net.rpc.RpcHandler;
+import de.turtleboi.turtlenet.core.net.rpc.RpcListener;
+import de.turtleboi.turtlenet.core.net.rpc.RpcProtocol;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Compares the execution modes of the {@link BlockingExecutors} for RPC handlers that block, with {@link #inFlight}
+ * calls in flight at once. Each handler blocks for {@link #blockMillis} ms, like a storage lookup would.
+ * <p> {@link ExecutionMode#VIRTUAL} requires a Java 21 runtime and a TurtleNet-Core jar that has been built with JDK 21
+ * (see the {@code java21} profile); otherwise its setup fails and only {@link ExecutionMode#PLATFORM} is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RpcBenchmark {
+    @Param({ "PLATFORM", "VIRTUAL" })
+    public ExecutionMode mode;
+
+    @Param({ "10000" })
+    public int inFlight;
+
+    @Param({ "10" })
+    public int blockMillis;
+
+    /** Pool size of {@link ExecutionMode#PLATFORM}. */
+    @Param({ "64", "256" })
+    public int poolSize;
+
+    private record Num(int value) { }
+
+    private TimerWheel timer;
+    private ExecutorService executor;
+    private Transport transport;
+    private Listener listener;
+    private RpcEndpoint endpoint;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        if (mode == ExecutionMode.VIRTUAL && poolSize != 64)
+            throw new IllegalArgumentException("The pool size does not apply to virtual threads");
+
+        PacketRegistry registry = new PacketRegistry().register(0, Num.class, new PacketCodec<>() {
+            @Override
+            public void encode(@NotNull Num packet, @NotNull ByteBuffer out) {
+                VarInts.putVarInt(packet.value(), out);
+            }
+
+            @Override
+            public @NotNull Num decode(@NotNull ByteBuffer in) {
+                return new Num(VarInts.getVarInt(in));
+            }
+        });
+        RpcProtocol.register(registry, 1);
+
+        System.setProperty(BlockingExecutors.POOL_SIZE_PROPERTY, Integer.toString(poolSize));
+        Logger logger = Logger.getLogger("RpcBenchmark");
+        executor  = BlockingExecutors.create(mode, "RpcBenchmark", logger);
+        timer     = new TimerWheel(Runnable::run, 10, TimeUnit.MILLISECONDS);
+        transport = new Transport(logger, 2, "RpcBenchmark-IO", new BufferPool());
+
+        RpcHandler handler = (session, request) -> {
+            Thread.sleep(blockMillis);
+            return CompletableFuture.completedFuture(request);
+        };
+        PacketListener none = (session, packet) -> { };
+
+        RpcListener server = new RpcListener(timer, handler, none, executor, inFlight, 1, TimeUnit.MINUTES);
+        RpcListener client = new RpcListener(timer, null, none, null, inFlight, 1, TimeUnit.MINUTES);
+        listener = transport.bind(new InetSocketAddress("127.0.0.1", 0), new PacketPipeline(registry, server));
+
+        Connection connection = transport.connect(listener.getLocalAddress(), new PacketPipeline(registry, client)).get();
+        endpoint = client.getEndpoint(PacketPipeline.getSession(connection));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (transport != null)
+            transport.close();
+        if (timer != null)
+            timer.stop();
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    /** Sends {@link #inFlight} calls at once and waits for all responses. */
+    @Benchmark
+    public int inFlightCalls() {
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[inFlight];
+        for (int i = 0; i < inFlight; i++)
+            calls[i] = endpoint.call(new Num(i));
+        CompletableFuture.allOf(calls).join();
+        return calls.length;
+    }
+}
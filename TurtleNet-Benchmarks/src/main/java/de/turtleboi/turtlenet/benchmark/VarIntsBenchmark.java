@@ -0,0 +1,106 @@
+package de.turtleboi.turtlenet.benchmark;
+
+import de.turtleboi.lib.VarInts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the bulk decoders of {@link VarInts} with the byte-at-a-time decoders they replaced ({@link LegacyVarInts}).
+ * Each invocation decodes {@link #count} varints of one length distribution into a pre-allocated array.
+ * <p> The same input is decoded over and over again, so it has to be large enough that the branch predictor cannot
+ * learn its sequence of lengths, which would favor the byte-at-a-time decoders: With 4096 mixed lengths they seemed
+ * twice as fast as they are.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VarIntsBenchmark {
+    /** Encoded length of the values: 1, 2 or 3 bytes, mixed 1 to 3 bytes (60% 1 byte), or any length. */
+    @Param({ "1", "2", "3", "mixed", "random" })
+    public String lengths;
+
+    @Param({ "65536" })
+    public int count;
+
+    private byte[] ints;
+    private byte[] longs;
+    private int[] intValues;
+    private long[] longValues;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        intValues  = new int[count];
+        longValues = new long[count];
+        for (int i = 0; i < count; i++) {
+            intValues[i] = switch (lengths) {
+                case "1"      -> random.nextInt(1 << 7);
+                case "2"      -> (1 << 7) + random.nextInt((1 << 14) - (1 << 7));
+                case "3"      -> (1 << 14) + random.nextInt((1 << 21) - (1 << 14));
+                case "mixed"  -> random.nextInt(5) < 3 ? random.nextInt(1 << 7) : random.nextInt(1 << 21);
+                case "random" -> random.nextInt() >>> random.nextInt(32);
+                default       -> throw new IllegalArgumentException("Unknown lengths: " + lengths);
+            };
+            longValues[i] = lengths.equals("random") ? random.nextLong() >>> random.nextInt(64) : intValues[i];
+        }
+
+        // 8 spare bytes, so the word-at-a-time decoders can also read the last varints by word
+        ints  = new byte[count * 5 + Long.BYTES];
+        longs = new byte[count * 10 + Long.BYTES];
+        int offset = 0;
+        for (int value : intValues)
+            offset = VarInts.putVarInt(value, ints, offset);
+        offset = 0;
+        for (long value : longValues)
+            offset = VarInts.putVarLong(value, longs, offset);
+    }
+
+    @Benchmark
+    public int[] legacyInts() {
+        int[] buffer = new int[1];
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            offset = LegacyVarInts.getVarInt(ints, offset, buffer);
+            intValues[i] = buffer[0];
+        }
+        return intValues;
+    }
+
+    @Benchmark
+    public int[] ints() {
+        VarInts.getVarInts(ints, 0, intValues, count);
+        return intValues;
+    }
+
+    @Benchmark
+    public long[] legacyLongs() {
+        long[] buffer = new long[1];
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            offset = LegacyVarInts.getVarLong(longs, offset, buffer);
+            longValues[i] = buffer[0];
+        }
+        return longValues;
+    }
+
+    @Benchmark
+    public long[] longs() {
+        VarInts.getVarLongs(longs, 0, longValues, count);
+        return longValues;
+    }
+}
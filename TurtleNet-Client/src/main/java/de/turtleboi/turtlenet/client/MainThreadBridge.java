@@ -0,0 +1,151 @@
+package de.turtleboi.turtlenet.client;
+
+import de.turtleboi.lib.thread.MpscQueue;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hands tasks (usually completions of network requests) from arbitrary threads to the main thread of the platform.
+ * <p> Tasks are queued in a lock-free {@link MpscQueue} and executed by {@link #tick()}, which the entrypoint calls
+ * once per server tick. Each call only runs tasks until the time budget is used up; remaining tasks are carried over to
+ * the next tick, in order. A burst of network results therefore spreads over multiple ticks instead of delaying a
+ * single tick.
+ * <p> The budget is checked after each task, so a single long-running task may still exceed it. Exceptions thrown by
+ * a task are logged and do not affect following tasks.
+ */
+public class MainThreadBridge implements Executor {
+    /** Default time budget per tick (2 ms, i.e. 4% of a 50 ms tick). */
+    public static final long DEFAULT_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    /** System property that overrides the default budget, in microseconds. */
+    public static final String BUDGET_PROPERTY = "turtlenet.mainThreadBudgetMicros";
+
+    private final Logger logger;
+    private final long budgetNanos;
+    private final MpscQueue<Runnable> queue = new MpscQueue<>();
+
+    // statistics; only written by the main thread
+    private volatile long lastTickNanos;
+    private volatile long maxTickNanos;
+    private volatile int  lastTickTasks;
+    private volatile long completedTasks;
+    private volatile long exhaustedTicks;
+
+    /**
+     * @param logger Logger for exceptions thrown by tasks.
+     * @param budgetNanos Maximum time in nanoseconds that {@link #tick()} spends executing tasks.
+     */
+    public MainThreadBridge(@NotNull Logger logger, long budgetNanos) {
+        if (budgetNanos <= 0)
+            throw new IllegalArgumentException("Budget must be positive");
+        this.logger      = logger;
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Creates a bridge with the budget that is configured by the {@link #BUDGET_PROPERTY} system property, or
+     * {@link #DEFAULT_BUDGET_NANOS} if the property is not set.
+     */
+    public static @NotNull MainThreadBridge fromSystemProperties(@NotNull Logger logger) {
+        long micros = Long.getLong(BUDGET_PROPERTY, TimeUnit.NANOSECONDS.toMicros(DEFAULT_BUDGET_NANOS));
+        return new MainThreadBridge(logger, TimeUnit.MICROSECONDS.toNanos(micros));
+    }
+
+    /** Queues a task to be executed on the main thread. This may be called from any thread. */
+    @Override
+    public void execute(@NotNull Runnable task) {
+        queue.offer(task);
+    }
+
+    /**
+     * Executes queued tasks until the queue is empty or the time budget is used up. Must be called by the main thread,
+     * once per tick.
+     * @return The amount of tasks that have been executed.
+     */
+    public int tick() {
+        if (queue.isEmpty()) {
+            lastTickNanos = 0;
+            lastTickTasks = 0;
+            return 0;
+        }
+
+        final long start    = System.nanoTime();
+        final long deadline = start + budgetNanos;
+
+        int  count = 0;
+        long now   = start;
+        Runnable task;
+        while (now - deadline < 0 && (task = queue.poll()) != null) {
+            runTask(task);
+            count++;
+            now = System.nanoTime();
+        }
+
+        long duration = now - start;
+        lastTickNanos  = duration;
+        lastTickTasks  = count;
+        completedTasks = completedTasks + count;
+        if (duration > maxTickNanos)
+            maxTickNanos = duration;
+        if (now - deadline >= 0 && !queue.isEmpty())
+            exhaustedTicks = exhaustedTicks + 1;
+        return count;
+    }
+
+    /**
+     * Executes all queued tasks, regardless of the budget. This is intended to be called by the main thread when the
+     * plugin is disabled, so completions that are still queued are not lost.
+     * @return The amount of tasks that have been executed.
+     */
+    public int drainAll() {
+        return queue.drain(this::runTask, Integer.MAX_VALUE);
+    }
+
+    private void runTask(@NotNull Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, "Uncaught exception in main thread task", t);
+        }
+    }
+
+    /* - - - */
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /** Returns an estimate of the amount of tasks that are waiting for the next tick. */
+    public long getBacklog() {
+        return queue.size();
+    }
+
+    /** Returns the time in nanoseconds that the last tick spent executing tasks. */
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    /** Returns the amount of tasks that have been executed in the last tick. */
+    public int getLastTickTasks() {
+        return lastTickTasks;
+    }
+
+    /** Returns the longest time in nanoseconds that a tick has spent executing tasks. */
+    public long getMaxTickNanos() {
+        return maxTickNanos;
+    }
+
+    /** Returns the amount of tasks that have been executed by {@link #tick()}. */
+    public long getCompletedTaskCount() {
+        return completedTasks;
+    }
+
+    /** Returns the amount of ticks that used up their budget and had to carry tasks over to the next tick. */
+    public long getExhaustedTicks() {
+        return exhaustedTicks;
+    }
+}
@@ -1,9 +1,11 @@
 package de.turtleboi.turtlenet.client.entrypoints;
 
 import de.turtleboi.turtlenet.api.environment.Environment;
+import de.turtleboi.turtlenet.client.MainThreadBridge;
 import de.turtleboi.turtlenet.core.Bootstrap;
 import de.turtleboi.turtlenet.core.TurtleCore;
 import net.md_5.bungee.api.plugin.Plugin;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -18,6 +20,7 @@ import java.util.logging.Logger;
  */
 public class BungeeCord extends Plugin {
     private TurtleCore core;
+    private MainThreadBridge mainThreadBridge;
 
     @Override
     public void onEnable() {
@@ -38,16 +41,32 @@ public class BungeeCord extends Plugin {
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+
+        // BungeeCord has no main thread, but a repeating task is never executed concurrently with itself. Running the
+        // bridge at the same rate as a Spigot server keeps completions serialized on one thread at a time.
+        mainThreadBridge = MainThreadBridge.fromSystemProperties(logger);
+        getProxy().getScheduler().schedule(this, mainThreadBridge::tick, 50L, 50L, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void onDisable() {
         if (core == null) return;
 
+        getProxy().getScheduler().cancel(this);
+
         try {
             core.shutdown(4, TimeUnit.SECONDS);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
+        } finally {
+            // the tick task has been cancelled above, so run what is left on this thread right away
+            if (mainThreadBridge != null)
+                mainThreadBridge.drainAll();
         }
     }
+
+    /** Returns the executor that serializes tasks on the scheduler, or {@code null} if the plugin is not enabled. */
+    public @Nullable MainThreadBridge getMainThreadBridge() {
+        return mainThreadBridge;
+    }
 }
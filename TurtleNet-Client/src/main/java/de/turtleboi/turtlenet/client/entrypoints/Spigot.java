@@ -1,9 +1,11 @@
 package de.turtleboi.turtlenet.client.entrypoints;
 
 import de.turtleboi.turtlenet.api.environment.Environment;
+import de.turtleboi.turtlenet.client.MainThreadBridge;
 import de.turtleboi.turtlenet.core.Bootstrap;
 import de.turtleboi.turtlenet.core.TurtleCore;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -18,6 +20,7 @@ import java.util.logging.Logger;
 @SuppressWarnings("unused")
 public class Spigot extends JavaPlugin {
     private TurtleCore core;
+    private MainThreadBridge mainThreadBridge;
 
     @Override
     public void onEnable() {
@@ -41,6 +44,9 @@ public class Spigot extends JavaPlugin {
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+
+        mainThreadBridge = MainThreadBridge.fromSystemProperties(logger);
+        getServer().getScheduler().runTaskTimer(this, mainThreadBridge::tick, 1L, 1L);
     }
 
     @Override
@@ -51,6 +57,15 @@ public class Spigot extends JavaPlugin {
             core.shutdown(4, TimeUnit.SECONDS);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
+        } finally {
+            // the tick task is cancelled by Bukkit, so run what is left on the main thread right away
+            if (mainThreadBridge != null)
+                mainThreadBridge.drainAll();
         }
     }
+
+    /** Returns the executor that runs tasks on the server main thread, or {@code null} if the plugin is not enabled. */
+    public @Nullable MainThreadBridge getMainThreadBridge() {
+        return mainThreadBridge;
+    }
 }
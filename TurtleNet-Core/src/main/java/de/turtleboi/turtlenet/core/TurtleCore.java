@@ -1,12 +1,18 @@
 package de.turtleboi.turtlenet.core;
 
+import de.turtleboi.lib.thread.EnumLatch;
+import de.turtleboi.lib.thread.TimerWheel;
 import de.turtleboi.turtlenet.api.TurtleNet;
 import de.turtleboi.turtlenet.api.environment.Environment;
+import de.turtleboi.turtlenet.core.exec.BlockingExecutors;
+import de.turtleboi.turtlenet.core.net.Transport;
 import de.turtleboi.turtlenet.core.util.ResourceUtil;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
@@ -17,20 +23,109 @@ public class TurtleCore implements TurtleNet {
     private final File dataFolder;
     private final File jarFile;
 
+    private final EnumLatch<Status> status = new EnumLatch<>(Status.RUNNING);
+    private final ExecutorService blockingExecutor;
+    private final TimerWheel timer;
+    private final Transport transport;
+
     TurtleCore(@NotNull Logger logger, @NotNull Environment environment, @NotNull File dataFolder, @NotNull File jarFile) {
         this.logger = logger;
         this.environment = environment;
         this.dataFolder = dataFolder;
         this.jarFile = jarFile;
+
+        this.blockingExecutor = BlockingExecutors.create("TurtleNet-Blocking", logger);
+
+        // timeouts may complete futures with arbitrary callbacks, so they are not executed on the wheel thread
+        this.timer = new TimerWheel(blockingExecutor, 10, TimeUnit.MILLISECONDS, "TurtleNet-Timer");
+
+        try {
+            this.transport = new Transport(logger);
+        } catch (IOException e) {
+            timer.stop();
+            blockingExecutor.shutdownNow();
+            throw new RuntimeException("Could not open transport", e);
+        }
+        this.logger.info("Network I/O is handled by " + transport.getThreadCount() + " selector threads.");
     }
 
     @Override
     public void shutdown(long timeout, @NotNull TimeUnit unit) throws IOException {
-        // TODO
+        if (!status.compareAndSet(Status.RUNNING, Status.STOPPING)) {
+            // another thread is already shutting down
+            try {
+                status.await(Status.STOPPED, timeout, unit);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+
+        transport.close();
+        timer.stop();
+        blockingExecutor.shutdown();
+        try {
+            if (!blockingExecutor.awaitTermination(timeout, unit))
+                logger.warning("Blocking tasks did not finish within the timeout.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        status.set(Status.STOPPED);
     }
 
     @Override
     public void shutdownNow() throws IOException {
-        // TODO
+        // already stopping or stopped, so everything is (being) closed by another call
+        if (!status.compareAndSet(Status.RUNNING, Status.STOPPING))
+            return;
+
+        transport.close();
+        timer.stop();
+        blockingExecutor.shutdownNow();
+        status.set(Status.STOPPED);
+    }
+
+    /* - - - */
+
+    /**
+     * Returns the executor for work that may block, like storage I/O or waiting for responses. Depending on the
+     * runtime and configuration this uses virtual or platform threads.
+     * @see BlockingExecutors
+     */
+    public @NotNull ExecutorService getBlockingExecutor() {
+        return blockingExecutor;
+    }
+
+    /** Returns the timer for deadlines and other timeouts (with a resolution of 10 ms). */
+    public @NotNull TimerWheel getTimer() {
+        return timer;
+    }
+
+    /** Returns the non-blocking TCP transport that handles all connections of this instance. */
+    public @NotNull Transport getTransport() {
+        return transport;
+    }
+
+    public @NotNull Logger getLogger() {
+        return logger;
+    }
+
+    public @NotNull Status getStatus() {
+        return status.get();
+    }
+
+    /**
+     * Returns a future that is completed once this instance reaches the provided status (or immediately, if that is
+     * already the current status). Callbacks do not block any thread while waiting.
+     */
+    public @NotNull CompletableFuture<Status> onStatus(@NotNull Status status) {
+        return this.status.onState(status);
+    }
+
+    /** Lifecycle of a {@link TurtleCore} instance. */
+    public enum Status {
+        RUNNING,
+        STOPPING,
+        STOPPED
     }
 }
@@ -0,0 +1,120 @@
+package de.turtleboi.turtlenet.core.exec;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Creates executors for blocking work. Network and main threads must never block, so anything that waits (storage
+ * I/O, waiting for a response) is handed to one of these executors instead.
+ * <p> With {@link ExecutionMode#VIRTUAL} each task runs on its own virtual thread, so the amount of tasks that may
+ * block at the same time is not limited by a pool size. With {@link ExecutionMode#PLATFORM} tasks run on a fixed pool
+ * of {@link #getPoolSize()} daemon threads, and additional tasks are queued.
+ * <p> The mode and pool size can be configured with the {@link #MODE_PROPERTY} and {@link #POOL_SIZE_PROPERTY}
+ * system properties. Each executor logs the mode it has been created with, and warns if virtual threads are not
+ * available on a Java 21 runtime because the jar has been built without the {@code java21} profile.
+ */
+public final class BlockingExecutors {
+    /** Utility class */
+    private BlockingExecutors() { }
+
+    /** System property that selects the {@link ExecutionMode} (case-insensitive). Defaults to {@code AUTO}. */
+    public static final String MODE_PROPERTY = "turtlenet.executionMode";
+    /** System property that sets the amount of threads for {@link ExecutionMode#PLATFORM}. */
+    public static final String POOL_SIZE_PROPERTY = "turtlenet.blockingPoolSize";
+
+    private static final int DEFAULT_POOL_SIZE = 64;
+
+    /**
+     * Returns the mode that is configured by the {@link #MODE_PROPERTY} system property, or {@link ExecutionMode#AUTO}.
+     * @throws IllegalArgumentException if the property is set to an unknown mode.
+     */
+    public static @NotNull ExecutionMode getConfiguredMode() throws IllegalArgumentException {
+        String mode = System.getProperty(MODE_PROPERTY);
+        if (mode == null || mode.isBlank())
+            return ExecutionMode.AUTO;
+        return ExecutionMode.valueOf(mode.trim().toUpperCase());
+    }
+
+    /** Returns the amount of threads for {@link ExecutionMode#PLATFORM}. */
+    public static int getPoolSize() {
+        return Math.max(1, Integer.getInteger(POOL_SIZE_PROPERTY, DEFAULT_POOL_SIZE));
+    }
+
+    /** Returns {@code true} if the runtime supports virtual threads. */
+    public static boolean isVirtualSupported() {
+        return VirtualThreads.isSupported();
+    }
+
+    /**
+     * Creates an executor for blocking work with the configured mode.
+     * @see #getConfiguredMode()
+     */
+    public static @NotNull ExecutorService create(@NotNull String name) {
+        return create(getConfiguredMode(), name);
+    }
+
+    /**
+     * Creates an executor for blocking work with the configured mode.
+     * @param logger Logger the chosen mode is logged to.
+     * @see #getConfiguredMode()
+     */
+    public static @NotNull ExecutorService create(@NotNull String name, @NotNull Logger logger) {
+        return create(getConfiguredMode(), name, logger);
+    }
+
+    /**
+     * Creates an executor for blocking work.
+     * @param mode The execution mode. {@link ExecutionMode#AUTO} is resolved to the best mode of this runtime.
+     * @param name Name (prefix) of the threads.
+     * @throws UnsupportedOperationException if {@link ExecutionMode#VIRTUAL} is requested on a runtime older than
+     *                                       Java 21.
+     */
+    public static @NotNull ExecutorService create(@NotNull ExecutionMode mode, @NotNull String name) throws UnsupportedOperationException {
+        return create(mode, name, Logger.getLogger(BlockingExecutors.class.getName()));
+    }
+
+    /**
+     * Creates an executor for blocking work.
+     * @param mode The execution mode. {@link ExecutionMode#AUTO} is resolved to the best mode of this runtime.
+     * @param name Name (prefix) of the threads.
+     * @param logger Logger the chosen mode is logged to.
+     * @throws UnsupportedOperationException if {@link ExecutionMode#VIRTUAL} is requested on a runtime older than
+     *                                       Java 21.
+     */
+    public static @NotNull ExecutorService create(@NotNull ExecutionMode mode, @NotNull String name, @NotNull Logger logger) throws UnsupportedOperationException {
+        if (mode.resolve() == ExecutionMode.VIRTUAL) {
+            ExecutorService executor = VirtualThreads.newExecutor(name);
+            logger.info(name + " runs blocking work on virtual threads.");
+            return executor;
+        }
+
+        int poolSize = getPoolSize();
+        if (mode == ExecutionMode.AUTO && Runtime.version().feature() >= 21) {
+            // the runtime could run virtual threads, but the jar does not contain the Java 21 classes
+            logger.warning(name + " runs blocking work on " + poolSize + " platform threads, as this build does not "
+                    + "contain the Java 21 classes for virtual threads. Build it with JDK 21 or newer to use them.");
+        } else {
+            logger.info(name + " runs blocking work on " + poolSize + " platform threads (" + mode + " mode, Java "
+                    + Runtime.version().feature() + ").");
+        }
+        return newPlatformExecutor(name, poolSize);
+    }
+
+    private static @NotNull ExecutorService newPlatformExecutor(@NotNull String name, int poolSize) {
+        AtomicInteger threadNum = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadNum.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // idle threads are released, so an unused pool does not hold on to its threads
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,22 @@
+package de.turtleboi.turtlenet.core.exec;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Decides which kind of threads execute blocking work (like storage I/O or waiting for a response).
+ * @see BlockingExecutors#create(ExecutionMode, String)
+ */
+public enum ExecutionMode {
+    /** A fixed pool of platform threads. Available on all runtimes. */
+    PLATFORM,
+    /** One virtual thread per task. Requires Java 21 or newer. */
+    VIRTUAL,
+    /** {@link #VIRTUAL} if the runtime supports virtual threads, otherwise {@link #PLATFORM}. */
+    AUTO;
+
+    /** Returns the mode that is actually used on this runtime, i.e. resolves {@link #AUTO}. */
+    public @NotNull ExecutionMode resolve() {
+        if (this != AUTO) return this;
+        return VirtualThreads.isSupported() ? VIRTUAL : PLATFORM;
+    }
+}
@@ -0,0 +1,25 @@
+package de.turtleboi.turtlenet.core.exec;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Access to virtual threads. This is the fallback for runtimes older than Java 21, which do not support virtual
+ * threads; the Java 21 version of this class (in {@code META-INF/versions/21} of the multi-release jar) replaces it on
+ * newer runtimes.
+ */
+final class VirtualThreads {
+    /** Utility class */
+    private VirtualThreads() { }
+
+    static boolean isSupported() {
+        return false;
+    }
+
+    static @NotNull ExecutorService newExecutor(@NotNull String name) throws UnsupportedOperationException {
+        if (Runtime.version().feature() >= 21)
+            throw new UnsupportedOperationException("Virtual threads are not available: this build does not contain the Java 21 classes (build it with JDK 21 or newer)");
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or newer (running " + Runtime.version() + ")");
+    }
+}
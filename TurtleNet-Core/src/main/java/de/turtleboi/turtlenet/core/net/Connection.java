@@ -0,0 +1,534 @@
+package de.turtleboi.turtlenet.core.net;
+
+import de.turtleboi.lib.buffer.PooledBuffer;
+import de.turtleboi.lib.thread.MpscQueue;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A non-blocking TCP connection that is bound to one selector thread ({@link Reactor}).
+ * <p> {@link #write(ByteBuffer)}, {@link #setAutoRead(boolean)} and {@link #close()} may be called from any thread.
+ * Writes are queued in a lock-free queue and flushed by the selector thread; if the socket cannot take all data, the
+ * rest is written once the socket is writable again. The amount of queued bytes is tracked, and once it exceeds the
+ * high water mark the connection is marked as not {@link #isWritable() writable} until it drops below the low water
+ * mark (see {@link ConnectionHandler#onWritabilityChanged(Connection, boolean)}). Writes that would exceed the
+ * {@link Transport#getMaxPendingBytes() hard limit} close the connection, so a peer that stops reading cannot make us
+ * buffer an unbounded amount of data.
+ * <p> Reading pauses while {@link #setAutoRead(boolean) auto read} is disabled or while any
+ * {@link #addUpstream(Connection) downstream connection} of this connection is not writable, so backpressure is
+ * propagated from a slow receiver to the sender of the data instead of piling up in between.
+ * <p> When queued data is written is decided by the {@link FlushPolicy}; all buffers that are queued at that time are
+ * written with gathering writes of up to {@value Reactor#MAX_GATHER} buffers each.
+ */
+public final class Connection {
+    /** Maximum amount of reads per readiness event, so a single busy connection cannot starve the others. */
+    private static final int MAX_READS_PER_EVENT = 16;
+
+    private final Reactor reactor;
+    private final SocketChannel channel;
+    private final ConnectionHandler handler;
+    private final CompletableFuture<Connection> connectFuture;
+    private SelectionKey key;
+
+    /** Buffers written by any thread that have not been picked up by the selector thread yet. */
+    private final MpscQueue<PooledBuffer> pending = new MpscQueue<>();
+    /** Buffers that are being written. Only accessed by the selector thread. */
+    private final ArrayDeque<PooledBuffer> writeQueue = new ArrayDeque<>();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    /** Whether a task that applies the flush policy has been queued. */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private volatile FlushPolicy flushPolicy;
+
+    // flush state, only accessed by the selector thread
+    /** Whether this connection is queued to be flushed at the end of the current event loop iteration. */
+    boolean flushAtEndOfLoop = false;
+    /** Time (System.nanoTime) of the delayed flush this connection is queued for, or 0. */
+    long flushDeadline = 0;
+
+    private final AtomicBoolean writable = new AtomicBoolean(true);
+    /** The writability that has last been passed to the handler. Only accessed by the selector thread. */
+    private boolean notifiedWritable = true;
+    /** Connections whose reads are paused while this connection is not writable. Only accessed by the selector thread. */
+    private final ArrayList<Connection> upstreams = new ArrayList<>();
+    /** Connections that have this connection as upstream. Only accessed by the selector thread. */
+    private final ArrayList<Connection> downstreams = new ArrayList<>();
+
+    // only written by the selector thread
+    private boolean autoRead = true;
+    /** Amount of downstream connections that are not writable. */
+    private int readSuspensions = 0;
+    private volatile boolean readPaused = false;
+    private volatile boolean open = false;
+    private volatile boolean closed = false;
+    private volatile long bytesRead;
+    private volatile long bytesWritten;
+    private volatile long writeCalls;
+    private volatile long buffersWritten;
+
+    private volatile SocketAddress remoteAddress;
+    private volatile Object attachment;
+
+    Connection(@NotNull Reactor reactor, @NotNull SocketChannel channel, @NotNull ConnectionHandler handler, @Nullable CompletableFuture<Connection> connectFuture) {
+        this.reactor       = reactor;
+        this.channel       = channel;
+        this.handler       = handler;
+        this.connectFuture = connectFuture;
+        this.flushPolicy   = reactor.transport().getDefaultFlushPolicy();
+    }
+
+    /* - - - */
+
+    /** Registers the channel with the selector. Must be called by the selector thread. */
+    void register(boolean connecting) {
+        try {
+            key = channel.register(reactor.selector(), connecting ? SelectionKey.OP_CONNECT : isReading() ? SelectionKey.OP_READ : 0, this);
+        } catch (IOException e) {
+            closeNow(e);
+            return;
+        }
+        reactor.transport().connectionOpened(this);
+        if (!connecting)
+            handleOpen();
+    }
+
+    private void handleOpen() {
+        try {
+            remoteAddress = channel.getRemoteAddress();
+        } catch (IOException ignored) { }
+        open = true;
+        try {
+            handler.onOpen(this);
+        } catch (Throwable t) {
+            closeNow(t);
+            return;
+        }
+        // only complete once the handler is ready
+        if (connectFuture != null)
+            connectFuture.complete(this);
+    }
+
+    /** Handles a readiness event of the selector. */
+    void handleReady(int readyOps) {
+        if ((readyOps & SelectionKey.OP_CONNECT) != 0) {
+            try {
+                if (!channel.finishConnect()) return;
+            } catch (IOException e) {
+                closeNow(e);
+                return;
+            }
+            key.interestOps(isReading() ? SelectionKey.OP_READ : 0);
+            handleOpen();
+        }
+        if ((readyOps & SelectionKey.OP_WRITE) != 0 && !closed)
+            flushNow();
+        if ((readyOps & SelectionKey.OP_READ) != 0 && !closed)
+            readNow();
+    }
+
+    private void readNow() {
+        ByteBuffer buffer = reactor.readBuffer;
+        try {
+            for (int i = 0; i < MAX_READS_PER_EVENT && isReading() && !closed; i++) {
+                buffer.clear();
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    closeNow(null);
+                    return;
+                }
+                if (read == 0) return;
+
+                bytesRead += read;
+                buffer.flip();
+                handler.onRead(this, buffer);
+            }
+        } catch (Throwable t) {
+            closeNow(t);
+        }
+    }
+
+    /* - - - */
+
+    /**
+     * Queues data to be written. The buffer is written from its position to its limit and must not be modified
+     * afterwards.
+     * @return {@code false} if the connection has already been closed, in which case the data is discarded.
+     */
+    public boolean write(@NotNull ByteBuffer buffer) {
+        return write(PooledBuffer.wrap(buffer));
+    }
+
+    /**
+     * Queues data to be written. The buffer is written from its position to its limit and must not be modified
+     * afterwards. This takes over the reference of the caller: The buffer is released once it has been written, or
+     * when the connection is closed.
+     * @return {@code false} if the connection has already been closed, in which case the buffer has been released.
+     */
+    public boolean write(@NotNull PooledBuffer buffer) {
+        if (closed) {
+            buffer.release();
+            return false;
+        }
+
+        int length = buffer.buffer().remaining();
+        long queued = pendingBytes.get();
+        long limit  = reactor.transport().getMaxPendingBytes();
+        // a single large write is always accepted, so the limit cannot make a frame impossible to send
+        if (queued > 0 && queued + length > limit) {
+            buffer.release();
+            reactor.execute(() -> closeNow(new IOException("Outbound queue exceeds " + limit + " bytes, the remote side does not keep up")));
+            return false;
+        }
+
+        pending.offer(buffer);
+        if (closed) {
+            // closed concurrently, after the pending buffers have been released
+            reactor.execute(this::releasePending);
+            return false;
+        }
+
+        if (pendingBytes.addAndGet(length) > reactor.transport().getHighWaterMark() && writable.compareAndSet(true, false))
+            reactor.execute(this::fireWritabilityChanged);
+
+        if (reactor.inEventLoop())
+            applyFlushPolicy();
+        else if (flushScheduled.compareAndSet(false, true))
+            reactor.execute(this::applyFlushPolicy);
+        return true;
+    }
+
+    /** Flushes now or schedules a flush, depending on the flush policy. Must be called by the selector thread. */
+    private void applyFlushPolicy() {
+        flushScheduled.set(false);
+        if (closed) return;
+
+        FlushPolicy policy = flushPolicy;
+        switch (policy.mode()) {
+            case IMMEDIATE -> flushNow();
+            case END_OF_LOOP -> reactor.flushAtEndOfLoop(this);
+            case THRESHOLD -> {
+                if (pendingBytes.get() >= policy.sizeThreshold())
+                    reactor.flushAtEndOfLoop(this);
+                else if (flushDeadline == 0)
+                    reactor.flushAt(this, System.nanoTime() + policy.maxDelayNanos());
+            }
+        }
+    }
+
+    /** Writes as much of the queued data as the socket accepts. Must be called by the selector thread. */
+    void flushNow() {
+        if (closed) return;
+
+        PooledBuffer buffer;
+        while ((buffer = pending.poll()) != null)
+            writeQueue.add(buffer);
+
+        ByteBuffer[] gather = reactor.gatherBuffers;
+        try {
+            while (!writeQueue.isEmpty()) {
+                int count = 0;
+                for (PooledBuffer queued : writeQueue) {
+                    gather[count++] = queued.buffer();
+                    if (count == gather.length) break;
+                }
+
+                long written = count == 1 ? channel.write(gather[0]) : channel.write(gather, 0, count);
+                Arrays.fill(gather, 0, count, null);
+                writeCalls++;
+                if (written > 0) {
+                    bytesWritten += written;
+                    pendingBytes.addAndGet(-written);
+                }
+
+                int completed = 0;
+                while ((buffer = writeQueue.peek()) != null && !buffer.buffer().hasRemaining()) {
+                    writeQueue.poll().release();
+                    completed++;
+                }
+                buffersWritten += completed;
+
+                // the socket buffer is full
+                if (completed < count) break;
+            }
+        } catch (IOException e) {
+            closeNow(e);
+            return;
+        }
+
+        // only wait for the socket to become writable if there is something left
+        int ops = key.interestOps();
+        int updated = writeQueue.isEmpty() ? ops & ~SelectionKey.OP_WRITE : ops | SelectionKey.OP_WRITE;
+        if (updated != ops)
+            key.interestOps(updated);
+
+        if (pendingBytes.get() <= reactor.transport().getLowWaterMark())
+            writable.compareAndSet(false, true);
+        fireWritabilityChanged();
+    }
+
+    /** Notifies the handler if the writability has changed since it has last been notified. */
+    private void fireWritabilityChanged() {
+        boolean current = writable.get();
+        if (current == notifiedWritable || closed) return;
+        notifiedWritable = current;
+        for (Connection upstream : upstreams) {
+            if (current) upstream.resumeReads();
+            else upstream.suspendReads();
+        }
+        try {
+            handler.onWritabilityChanged(this, current);
+        } catch (Throwable t) {
+            closeNow(t);
+        }
+    }
+
+    /**
+     * Enables or disables reading. While reading is disabled, no data is read from the socket, so the TCP receive
+     * window fills up and the remote side eventually stops sending (backpressure).
+     */
+    public void setAutoRead(boolean autoRead) {
+        reactor.execute(() -> {
+            if (closed || this.autoRead == autoRead) return;
+            this.autoRead = autoRead;
+            updateReadInterest();
+        });
+    }
+
+    /**
+     * Pauses reading from {@code upstream} while this connection is not writable. Typically, {@code upstream} is the
+     * connection whose data is forwarded to this one, so a slow receiver throttles the sender instead of the forwarded
+     * data being queued. A connection may also be its own upstream, which stops reading requests while the responses
+     * are not being read. Reading resumes once this connection is writable again, is closed, or the upstream is removed.
+     * The upstream is removed automatically once it is closed.
+     */
+    public void addUpstream(@NotNull Connection upstream) {
+        reactor.execute(() -> {
+            if (closed) return;
+            upstreams.add(upstream);
+            upstream.addDownstream(this);
+            if (!notifiedWritable)
+                upstream.suspendReads();
+        });
+    }
+
+    /** Stops pausing reads of a connection that has been added with {@link #addUpstream(Connection)}. */
+    public void removeUpstream(@NotNull Connection upstream) {
+        reactor.execute(() -> {
+            if (!upstreams.remove(upstream)) return;
+            upstream.removeDownstream(this);
+            if (!notifiedWritable)
+                upstream.resumeReads();
+        });
+    }
+
+    private void addDownstream(@NotNull Connection downstream) {
+        reactor.execute(() -> {
+            if (closed) downstream.pruneUpstream(this);
+            else downstreams.add(downstream);
+        });
+    }
+
+    private void removeDownstream(@NotNull Connection downstream) {
+        reactor.execute(() -> downstreams.remove(downstream));
+    }
+
+    /** Forgets an upstream connection that has been closed, without resuming its reads. */
+    private void pruneUpstream(@NotNull Connection upstream) {
+        reactor.execute(() -> upstreams.remove(upstream));
+    }
+
+    private void suspendReads() {
+        reactor.execute(() -> {
+            if (closed) return;
+            readSuspensions++;
+            updateReadInterest();
+        });
+    }
+
+    private void resumeReads() {
+        reactor.execute(() -> {
+            if (closed || readSuspensions == 0) return;
+            readSuspensions--;
+            updateReadInterest();
+        });
+    }
+
+    private boolean isReading() {
+        return autoRead && readSuspensions == 0;
+    }
+
+    /** Must be called by the selector thread. */
+    private void updateReadInterest() {
+        readPaused = !isReading();
+        if (!open || closed) return;
+        int ops = key.interestOps();
+        int updated = readPaused ? ops & ~SelectionKey.OP_READ : ops | SelectionKey.OP_READ;
+        if (updated != ops)
+            key.interestOps(updated);
+    }
+
+    /**
+     * Sets the flush policy of this connection. Data that is already queued is flushed according to the new policy
+     * with the next write.
+     * @see Transport#setDefaultFlushPolicy(FlushPolicy)
+     */
+    public void setFlushPolicy(@NotNull FlushPolicy flushPolicy) {
+        this.flushPolicy = flushPolicy;
+    }
+
+    public @NotNull FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
+    /** Tries to flush all queued data, then closes the connection. */
+    public void close() {
+        reactor.execute(() -> {
+            flushNow();
+            closeNow(null);
+        });
+    }
+
+    /** Closes the connection immediately. Must be called by the selector thread. */
+    void closeNow(@Nullable Throwable cause) {
+        if (closed) return;
+        closed = true;
+
+        if (key != null)
+            key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) { }
+
+        PooledBuffer buffer;
+        while ((buffer = writeQueue.poll()) != null)
+            buffer.release();
+        releasePending();
+        pendingBytes.set(0);
+
+        for (Connection upstream : upstreams) {
+            if (!notifiedWritable)
+                upstream.resumeReads();
+            upstream.removeDownstream(this);
+        }
+        upstreams.clear();
+        for (Connection downstream : downstreams)
+            downstream.pruneUpstream(this);
+        downstreams.clear();
+
+        // no-op if the connection has been established before
+        if (connectFuture != null)
+            connectFuture.completeExceptionally(cause != null ? cause : new ClosedChannelException());
+
+        reactor.transport().connectionClosed(this);
+        if (open) {
+            try {
+                handler.onClose(this, cause);
+            } catch (Throwable t) {
+                Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), t);
+            }
+        }
+    }
+
+    private void releasePending() {
+        PooledBuffer buffer;
+        while ((buffer = pending.poll()) != null)
+            buffer.release();
+    }
+
+    /* - - - */
+
+    /** Returns {@code true} if the amount of queued outbound bytes is below the high water mark. */
+    public boolean isWritable() {
+        return writable.get();
+    }
+
+    /**
+     * Returns the amount of bytes that can be queued before this connection becomes not writable, or 0 if it is not
+     * writable. Producers can use this to size batches instead of polling {@link #isWritable()}.
+     */
+    public long getBytesBeforeUnwritable() {
+        return writable.get() ? Math.max(0, reactor.transport().getHighWaterMark() - pendingBytes.get()) : 0;
+    }
+
+    /** Returns {@code true} if reading is paused by {@link #setAutoRead(boolean)} or a downstream connection. */
+    public boolean isReadPaused() {
+        return readPaused;
+    }
+
+    public boolean isOpen() {
+        return open && !closed;
+    }
+
+    /** Returns the amount of bytes that have been queued with {@link #write(ByteBuffer)} but not written yet. */
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /** Returns the amount of write syscalls. */
+    public long getWriteCalls() {
+        return writeCalls;
+    }
+
+    /** Returns the amount of buffers (usually frames) that have been written completely. */
+    public long getBuffersWritten() {
+        return buffersWritten;
+    }
+
+    /** Returns the average amount of buffers per write syscall. Higher values mean better coalescing. */
+    public double getBuffersPerWrite() {
+        long calls = writeCalls;
+        return calls == 0 ? 0 : (double) buffersWritten / calls;
+    }
+
+    /** Returns the remote address, or {@code null} if the connection has not been established. */
+    public @Nullable SocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    public @NotNull Transport getTransport() {
+        return reactor.transport();
+    }
+
+    /** Returns {@code true} if the calling thread is the selector thread of this connection. */
+    public boolean inEventLoop() {
+        return reactor.inEventLoop();
+    }
+
+    /** Executes a task on the selector thread of this connection. */
+    public void execute(@NotNull Runnable task) {
+        reactor.execute(task);
+    }
+
+    public @Nullable Object getAttachment() {
+        return attachment;
+    }
+
+    public void setAttachment(@Nullable Object attachment) {
+        this.attachment = attachment;
+    }
+
+    @Override
+    public String toString() {
+        return "Connection{" + getRemoteAddress() + "}";
+    }
+}
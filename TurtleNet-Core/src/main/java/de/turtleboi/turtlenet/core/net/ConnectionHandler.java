@@ -0,0 +1,41 @@
+package de.turtleboi.turtlenet.core.net;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the events of {@link Connection Connections}. All methods are called by the selector thread of the
+ * connection and must never block, as that would stall all other connections of the same thread. Blocking work should
+ * be handed to another executor (see {@link de.turtleboi.turtlenet.core.exec.BlockingExecutors}).
+ * <p> A handler may be shared by many connections; per-connection state can be stored with
+ * {@link Connection#setAttachment(Object)}. If a method throws an exception, the connection is closed with that
+ * exception as the cause.
+ */
+public interface ConnectionHandler {
+    /** Called once the connection has been established. */
+    default void onOpen(@NotNull Connection connection) throws Exception { }
+
+    /**
+     * Called whenever data has been read.
+     * @param buffer The data that has been read. The buffer is re-used for the next read (and other connections), so
+     *               everything that is needed later has to be consumed or copied before returning.
+     */
+    void onRead(@NotNull Connection connection, @NotNull ByteBuffer buffer) throws Exception;
+
+    /**
+     * Called when the amount of queued outbound bytes exceeds the high water mark ({@code writable = false}), and when
+     * it has dropped below the low water mark again ({@code writable = true}). Producers should stop writing to a
+     * connection that is not writable, instead of queueing more data.
+     * @see Connection#isWritable()
+     */
+    default void onWritabilityChanged(@NotNull Connection connection, boolean writable) throws Exception { }
+
+    /**
+     * Called once the connection has been closed.
+     * @param cause The exception that caused the connection to be closed, or {@code null} if it has been closed
+     *              regularly (by either side).
+     */
+    default void onClose(@NotNull Connection connection, @Nullable Throwable cause) { }
+}
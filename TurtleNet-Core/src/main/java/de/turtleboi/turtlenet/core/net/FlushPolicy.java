@@ -0,0 +1,50 @@
+package de.turtleboi.turtlenet.core.net;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when data that has been queued with {@link Connection#write(java.nio.ByteBuffer)} is written to the socket.
+ * <p> All queued buffers of a connection are written with as few gathering writes as possible, so deferring a flush
+ * trades latency for fewer syscalls: Forwarding thousands of small frames with one syscall each is considerably more
+ * expensive than writing them in batches.
+ * @param mode When to flush.
+ * @param sizeThreshold With {@link Mode#THRESHOLD}: Amount of queued bytes that triggers a flush.
+ * @param maxDelayNanos With {@link Mode#THRESHOLD}: Maximum time data is held back before it is flushed anyway.
+ * @see Connection#setFlushPolicy(FlushPolicy)
+ */
+public record FlushPolicy(@NotNull Mode mode, int sizeThreshold, long maxDelayNanos) {
+    /** Flushes on every write. Lowest latency, but one syscall per write. */
+    public static final FlushPolicy IMMEDIATE = new FlushPolicy(Mode.IMMEDIATE, 0, 0);
+    /**
+     * Flushes once per iteration of the event loop, after all events and tasks have been processed. All writes that
+     * happen in the meantime (e.g. responses to all frames of a read) are written together. This is the default.
+     */
+    public static final FlushPolicy END_OF_LOOP = new FlushPolicy(Mode.END_OF_LOOP, 0, 0);
+
+    public enum Mode {
+        IMMEDIATE,
+        END_OF_LOOP,
+        /** Flushes once a size threshold is reached or a maximum delay has passed, whichever comes first. */
+        THRESHOLD
+    }
+
+    public FlushPolicy {
+        if (sizeThreshold < 0 || maxDelayNanos < 0)
+            throw new IllegalArgumentException("Threshold and delay must not be negative");
+    }
+
+    /**
+     * Returns a policy that flushes once at least {@code bytes} are queued, but holds back data no longer than
+     * {@code maxDelay}.
+     */
+    public static @NotNull FlushPolicy sizeThreshold(int bytes, long maxDelay, @NotNull TimeUnit unit) {
+        return new FlushPolicy(Mode.THRESHOLD, bytes, unit.toNanos(maxDelay));
+    }
+
+    /** Returns a policy that flushes data at the latest {@code maxDelay} after it has been written. */
+    public static @NotNull FlushPolicy maxDelay(long maxDelay, @NotNull TimeUnit unit) {
+        return new FlushPolicy(Mode.THRESHOLD, Integer.MAX_VALUE, unit.toNanos(maxDelay));
+    }
+}
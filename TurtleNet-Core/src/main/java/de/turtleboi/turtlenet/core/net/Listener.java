@@ -0,0 +1,98 @@
+package de.turtleboi.turtlenet.core.net;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A listening server socket. Accepting is done by one selector thread; accepted connections are distributed over all
+ * selector threads of the {@link Transport}.
+ */
+public final class Listener implements Closeable {
+    /** Maximum amount of connections that are accepted per readiness event. */
+    private static final int MAX_ACCEPTS_PER_EVENT = 64;
+
+    private final Transport transport;
+    private final Reactor reactor;
+    private final ServerSocketChannel channel;
+    private final ConnectionHandler handler;
+    private SelectionKey key;
+
+    private volatile boolean closed = false;
+
+    Listener(@NotNull Transport transport, @NotNull Reactor reactor, @NotNull ServerSocketChannel channel, @NotNull ConnectionHandler handler) {
+        this.transport = transport;
+        this.reactor   = reactor;
+        this.channel   = channel;
+        this.handler   = handler;
+    }
+
+    /** Registers the channel with the selector. Must be called by the selector thread. */
+    void register() throws IOException {
+        key = channel.register(reactor.selector(), SelectionKey.OP_ACCEPT, this);
+    }
+
+    void handleAccept() {
+        for (int i = 0; i < MAX_ACCEPTS_PER_EVENT; i++) {
+            SocketChannel socket;
+            try {
+                socket = channel.accept();
+                if (socket == null) return;
+
+                socket.configureBlocking(false);
+                socket.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                transport.getLogger().warning("Could not accept connection: " + e);
+                return;
+            }
+
+            Reactor target = transport.nextReactor();
+            Connection connection = new Connection(target, socket, handler, null);
+            target.execute(() -> connection.register(false));
+        }
+    }
+
+    /* - - - */
+
+    public @Nullable InetSocketAddress getLocalAddress() {
+        try {
+            return (InetSocketAddress) channel.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /** Stops accepting connections. Connections that have already been accepted stay open. */
+    @Override
+    public void close() {
+        reactor.execute(this::closeNow);
+    }
+
+    /** Must be called by the selector thread. */
+    void closeNow() {
+        if (closed) return;
+        closed = true;
+
+        if (key != null)
+            key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) { }
+    }
+
+    @Override
+    public String toString() {
+        return "Listener{" + getLocalAddress() + "}";
+    }
+}
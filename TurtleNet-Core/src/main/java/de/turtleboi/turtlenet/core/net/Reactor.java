@@ -0,0 +1,200 @@
+package de.turtleboi.turtlenet.core.net;
+
+import de.turtleboi.lib.thread.MpscQueue;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A selector thread. Each {@link Connection} is bound to exactly one reactor, which performs all of its I/O and calls
+ * its {@link ConnectionHandler}. Other threads interact with the connections of a reactor only by queueing tasks with
+ * {@link #execute(Runnable)}, so connection state does not need any synchronization.
+ */
+final class Reactor implements Runnable {
+    /** Size of the buffer that is shared by all connections of this reactor for reading. */
+    static final int READ_BUFFER_SIZE = 64 * 1024;
+    /** Maximum amount of buffers per gathering write. */
+    static final int MAX_GATHER = 64;
+
+    private final Transport transport;
+    private final Selector selector;
+    private final Thread thread;
+
+    private final MpscQueue<Runnable> tasks = new MpscQueue<>();
+    /** Whether {@link Selector#wakeup()} has been called since the last select. Avoids redundant wakeup syscalls. */
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+    private volatile boolean running = true;
+
+    final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    /** Re-used by all connections of this reactor for gathering writes. */
+    final ByteBuffer[] gatherBuffers = new ByteBuffer[MAX_GATHER];
+
+    /** Connections to flush at the end of the current iteration. */
+    private final ArrayDeque<Connection> endOfLoopFlushes = new ArrayDeque<>();
+    /** Connections to flush at a later time, ordered by deadline. */
+    private final PriorityQueue<Connection> delayedFlushes = new PriorityQueue<>(Comparator.comparingLong(c -> c.flushDeadline));
+
+    Reactor(@NotNull Transport transport, @NotNull String name) throws IOException {
+        this.transport = transport;
+        this.selector  = Selector.open();
+        this.thread    = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        this.thread.start();
+    }
+
+    @NotNull Selector selector() {
+        return selector;
+    }
+
+    @NotNull Transport transport() {
+        return transport;
+    }
+
+    boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /** Executes a task on this reactor's thread. If called by that thread, the task is executed after the current event. */
+    void execute(@NotNull Runnable task) {
+        tasks.offer(task);
+        if (!inEventLoop() && wakeupPending.compareAndSet(false, true))
+            selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                try {
+                    select();
+                } catch (IOException e) {
+                    transport.getLogger().warning("Selector failed: " + e);
+                    continue;
+                }
+                wakeupPending.set(false);
+
+                processSelectedKeys();
+                runTasks();
+                runDelayedFlushes();
+                runEndOfLoopFlushes();
+            }
+        } finally {
+            closeAll();
+        }
+    }
+
+    /** Waits for events, but not beyond the next delayed flush, and not at all if tasks have been queued meanwhile. */
+    private void select() throws IOException {
+        if (!tasks.isEmpty()) {
+            selector.selectNow();
+            return;
+        }
+
+        Connection next = delayedFlushes.peek();
+        if (next == null) {
+            selector.select();
+            return;
+        }
+
+        long delay = next.flushDeadline - System.nanoTime();
+        if (delay <= 0)
+            selector.selectNow();
+        else
+            selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(delay)));
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+
+            if (!key.isValid()) continue;
+
+            Object attachment = key.attachment();
+            if (attachment instanceof Connection connection)
+                connection.handleReady(key.readyOps());
+            else if (attachment instanceof Listener listener)
+                listener.handleAccept();
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+            }
+        }
+    }
+
+    /** Flushes a connection at the end of the current iteration of the event loop. */
+    void flushAtEndOfLoop(@NotNull Connection connection) {
+        if (connection.flushAtEndOfLoop) return;
+        connection.flushAtEndOfLoop = true;
+        endOfLoopFlushes.add(connection);
+    }
+
+    /** Flushes a connection once {@code deadline} (System.nanoTime) has passed. */
+    void flushAt(@NotNull Connection connection, long deadline) {
+        connection.flushDeadline = deadline;
+        delayedFlushes.add(connection);
+    }
+
+    private void runDelayedFlushes() {
+        long now = System.nanoTime();
+        Connection connection;
+        while ((connection = delayedFlushes.peek()) != null && connection.flushDeadline - now <= 0) {
+            delayedFlushes.poll();
+            connection.flushDeadline = 0;
+            flushAtEndOfLoop(connection);
+        }
+    }
+
+    private void runEndOfLoopFlushes() {
+        Connection connection;
+        while ((connection = endOfLoopFlushes.poll()) != null) {
+            connection.flushAtEndOfLoop = false;
+            connection.flushNow();
+        }
+    }
+
+    private void closeAll() {
+        runTasks();
+        for (SelectionKey key : selector.keys()) {
+            Object attachment = key.attachment();
+            if (attachment instanceof Connection connection)
+                connection.closeNow(null);
+            else if (attachment instanceof Listener listener)
+                listener.closeNow();
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) { }
+    }
+
+    /** Stops this reactor and closes all of its connections. */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    void awaitTermination() throws InterruptedException {
+        if (!inEventLoop())
+            thread.join();
+    }
+}
@@ -0,0 +1,292 @@
+package de.turtleboi.turtlenet.core.net;
+
+import de.turtleboi.lib.buffer.BufferPool;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Non-blocking TCP transport based on {@link java.nio.channels.Selector selectors}.
+ * <p> Connections are distributed round-robin over a fixed amount of selector threads (by default one per available
+ * processor). Each connection is bound to one thread for its whole lifetime, so its {@link ConnectionHandler} is never
+ * called concurrently, and the amount of threads does not grow with the amount of connections.
+ * <p> Backpressure: Each connection tracks the amount of queued outbound bytes. Once it exceeds the
+ * {@link #getHighWaterMark() high water mark}, the connection is not writable until it drops below the
+ * {@link #getLowWaterMark() low water mark} (see {@link Connection#isWritable()}). Connections whose queue would exceed
+ * the {@link #getMaxPendingBytes() hard limit} are closed, which bounds the memory a slow peer can tie up. Inbound data
+ * can be throttled with {@link Connection#setAutoRead(boolean)} or {@link Connection#addUpstream(Connection)}.
+ */
+public final class Transport implements Closeable {
+    /** System property that overrides the amount of selector threads of {@link #Transport(Logger)}. */
+    public static final String THREADS_PROPERTY = "turtlenet.ioThreads";
+    /** System property that overrides the limit of native memory of the {@link BufferPool} (in MiB). */
+    public static final String POOL_SIZE_PROPERTY = "turtlenet.bufferPoolMiB";
+    /**
+     * System property that enables leak detection of pooled buffers: Every n-th allocation is tracked on average.
+     * @see BufferPool#BufferPool(long, int, Logger)
+     */
+    public static final String LEAK_SAMPLE_PROPERTY = "turtlenet.bufferLeakSampleInterval";
+    /** System property that overrides the {@link #getMaxPendingBytes() hard limit of queued outbound bytes} (in MiB). */
+    public static final String MAX_PENDING_PROPERTY = "turtlenet.maxPendingMiB";
+
+    public static final int DEFAULT_HIGH_WATER_MARK = 1024 * 1024;
+    public static final int DEFAULT_LOW_WATER_MARK  = 512 * 1024;
+    public static final long DEFAULT_MAX_PENDING_BYTES = 64L * 1024 * 1024;
+
+    private final Logger logger;
+    private final BufferPool bufferPool;
+    private final Reactor[] reactors;
+    private final AtomicInteger nextReactor = new AtomicInteger();
+
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    private volatile int highWaterMark = DEFAULT_HIGH_WATER_MARK;
+    private volatile int lowWaterMark  = DEFAULT_LOW_WATER_MARK;
+    private volatile long maxPendingBytes = Long.getLong(MAX_PENDING_PROPERTY, DEFAULT_MAX_PENDING_BYTES >> 20) << 20;
+    private volatile FlushPolicy defaultFlushPolicy = FlushPolicy.END_OF_LOOP;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a new transport with {@link #getConfiguredThreads()} selector threads and a buffer pool that is
+     * configured with system properties.
+     * @param logger Logger for I/O errors that cannot be passed to a handler.
+     * @throws IOException if a selector cannot be opened.
+     */
+    public Transport(@NotNull Logger logger) throws IOException {
+        this(logger, getConfiguredThreads(), "TurtleNet-IO", createBufferPool(logger));
+    }
+
+    /**
+     * Creates a new transport.
+     * @param logger Logger for I/O errors that cannot be passed to a handler.
+     * @param threads Amount of selector threads.
+     * @param name Name prefix of the selector threads.
+     * @param bufferPool Pool for outbound frames and partially received frames.
+     * @throws IOException if a selector cannot be opened.
+     */
+    public Transport(@NotNull Logger logger, int threads, @NotNull String name, @NotNull BufferPool bufferPool) throws IOException {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive");
+
+        this.logger     = logger;
+        this.bufferPool = bufferPool;
+        this.reactors   = new Reactor[threads];
+        for (int i = 0; i < threads; i++)
+            this.reactors[i] = new Reactor(this, name + "-" + i);
+        for (Reactor reactor : reactors)
+            reactor.start();
+    }
+
+    /* - - - */
+
+    /**
+     * Starts listening on an address. The server socket itself is handled by one selector thread; accepted connections
+     * are distributed over all of them.
+     * @param address The local address.
+     * @param handler The handler of all accepted connections.
+     * @throws IOException if the address cannot be bound.
+     */
+    public @NotNull Listener bind(@NotNull InetSocketAddress address, @NotNull ConnectionHandler handler) throws IOException {
+        ensureOpen();
+
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(address, 1024);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        Reactor reactor = nextReactor();
+        Listener listener = new Listener(this, reactor, channel, handler);
+        CompletableFuture<Void> registered = new CompletableFuture<>();
+        reactor.execute(() -> {
+            try {
+                listener.register();
+                registered.complete(null);
+            } catch (Throwable t) {
+                listener.closeNow();
+                registered.completeExceptionally(t);
+            }
+        });
+
+        try {
+            registered.join();
+        } catch (Exception e) {
+            throw new IOException("Could not register listener", e.getCause());
+        }
+        return listener;
+    }
+
+    /**
+     * Opens a connection to a remote address.
+     * @param address The remote address.
+     * @param handler The handler of the connection.
+     * @return A future that is completed once the connection is established, or completed exceptionally if it fails.
+     */
+    public @NotNull CompletableFuture<Connection> connect(@NotNull InetSocketAddress address, @NotNull ConnectionHandler handler) {
+        CompletableFuture<Connection> future = new CompletableFuture<>();
+        try {
+            ensureOpen();
+
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+            Reactor reactor = nextReactor();
+            Connection connection = new Connection(reactor, channel, handler, future);
+            reactor.execute(() -> {
+                try {
+                    boolean connected = channel.connect(address);
+                    connection.register(!connected);
+                } catch (IOException e) {
+                    connection.closeNow(e);
+                }
+            });
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /* - - - */
+
+    @NotNull Reactor nextReactor() {
+        return reactors[Math.floorMod(nextReactor.getAndIncrement(), reactors.length)];
+    }
+
+    void connectionOpened(@NotNull Connection connection) {
+        connections.add(connection);
+    }
+
+    void connectionClosed(@NotNull Connection connection) {
+        connections.remove(connection);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new IOException("Transport is closed");
+    }
+
+    /* - - - */
+
+    /**
+     * Returns the amount of selector threads set with the {@link #THREADS_PROPERTY} system property, or the amount of
+     * available processors.
+     */
+    public static int getConfiguredThreads() {
+        return Math.max(1, Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /** Creates a buffer pool as configured by {@link #POOL_SIZE_PROPERTY} and {@link #LEAK_SAMPLE_PROPERTY}. */
+    public static @NotNull BufferPool createBufferPool(@NotNull Logger logger) {
+        long maxBytes = Long.getLong(POOL_SIZE_PROPERTY, BufferPool.DEFAULT_MAX_POOLED_BYTES >> 20) << 20;
+        int  interval = Integer.getInteger(LEAK_SAMPLE_PROPERTY, 0);
+        return new BufferPool(maxBytes, interval, logger);
+    }
+
+    public @NotNull Logger getLogger() {
+        return logger;
+    }
+
+    public @NotNull BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /** Returns the amount of selector threads. */
+    public int getThreadCount() {
+        return reactors.length;
+    }
+
+    /** Returns an unmodifiable view of all open connections. */
+    public @NotNull Set<Connection> getConnections() {
+        return Collections.unmodifiableSet(connections);
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /** Returns the amount of queued outbound bytes above which a connection is not writable. */
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /** Returns the amount of queued outbound bytes at or below which a connection becomes writable again. */
+    public int getLowWaterMark() {
+        return lowWaterMark;
+    }
+
+    /**
+     * Sets the water marks of outbound bytes for all connections.
+     * @see Connection#isWritable()
+     */
+    public void setWaterMarks(int low, int high) {
+        if (low < 0 || high < low)
+            throw new IllegalArgumentException("Invalid water marks: " + low + " / " + high);
+        this.lowWaterMark  = low;
+        this.highWaterMark = high;
+    }
+
+    /** Returns the amount of queued outbound bytes above which a connection is closed. */
+    public long getMaxPendingBytes() {
+        return maxPendingBytes;
+    }
+
+    /**
+     * Sets the hard limit of queued outbound bytes per connection. A write that would exceed it closes the connection
+     * with an {@link IOException}, unless nothing is queued. Should be well above the high water mark, so producers that
+     * respect {@link Connection#isWritable()} never reach it.
+     */
+    public void setMaxPendingBytes(long maxPendingBytes) {
+        if (maxPendingBytes < 1)
+            throw new IllegalArgumentException("maxPendingBytes must be positive");
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+    /** Returns the flush policy of new connections. */
+    public @NotNull FlushPolicy getDefaultFlushPolicy() {
+        return defaultFlushPolicy;
+    }
+
+    /**
+     * Sets the flush policy of connections that are opened afterwards.
+     * @see Connection#setFlushPolicy(FlushPolicy)
+     */
+    public void setDefaultFlushPolicy(@NotNull FlushPolicy defaultFlushPolicy) {
+        this.defaultFlushPolicy = defaultFlushPolicy;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /** Closes all listeners and connections and stops the selector threads. Queued outbound data is discarded. */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+
+        for (Reactor reactor : reactors)
+            reactor.shutdown();
+        try {
+            for (Reactor reactor : reactors)
+                reactor.awaitTermination();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package de.turtleboi.turtlenet.core.net.packet;
+
+import de.turtleboi.turtlenet.core.util.ResourceUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression settings of a {@link PacketPipeline}.
+ * <p> Frames of at least {@link #getThreshold() threshold} bytes are compressed with DEFLATE; smaller frames are not
+ * worth the CPU time. Frames that do not get smaller are sent uncompressed. Compression can use a preset dictionary
+ * (see {@link #trainDictionary(Collection, int)}), which improves the ratio of small frames considerably, as they can
+ * refer to common strings (like JSON keys) of the dictionary instead of having to repeat them.
+ * <p> Each thread re-uses its own {@link Deflater} and {@link Inflater}, which are reset between frames, so no native
+ * compression state is allocated per frame. Both sides announce their settings in the handshake: A side only
+ * compresses frames if the other side supports compression, and only uses the dictionary if the other side has the
+ * same dictionary.
+ */
+public final class FrameCompression {
+    /** Default minimum size of frames that are compressed. */
+    public static final int DEFAULT_THRESHOLD = 256;
+    /**
+     * Resource of the dictionary that is shared by the server and clients (see {@link #withDefaultDictionary()}). It has
+     * been trained on typical profile, sync and log payloads; replacing it only takes effect once both sides have the
+     * new one, as the handshake disables dictionaries that do not match.
+     */
+    public static final String DICTIONARY_RESOURCE = "compression.dict";
+
+    private final int threshold;
+    private final int level;
+    private final byte[] dictionary;
+    private final int dictionaryId;
+
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+    private final LongAdder compressedFrames  = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes   = new LongAdder();
+
+    /** Creates new settings with the {@link #DEFAULT_THRESHOLD default threshold} and level and without dictionary. */
+    public FrameCompression() {
+        this(DEFAULT_THRESHOLD, Deflater.DEFAULT_COMPRESSION, null);
+    }
+
+    /**
+     * @param threshold Minimum size of frames that are compressed, in bytes.
+     * @param level Compression level (0-9, or {@link Deflater#DEFAULT_COMPRESSION}).
+     * @param dictionary Preset dictionary, or {@code null}. Both sides need the same dictionary for it to be used.
+     */
+    public FrameCompression(int threshold, int level, @Nullable byte[] dictionary) {
+        if (threshold < 0)
+            throw new IllegalArgumentException("threshold must not be negative");
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION)
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+
+        this.threshold    = threshold;
+        this.level        = level;
+        this.dictionary   = dictionary != null && dictionary.length > 0 ? dictionary.clone() : null;
+        this.dictionaryId = this.dictionary != null ? checksum(this.dictionary) : 0;
+        this.deflaters    = ThreadLocal.withInitial(() -> new Deflater(level));
+    }
+
+    /**
+     * Creates settings with the {@link #DEFAULT_THRESHOLD default threshold} and level and the dictionary of
+     * {@link #DICTIONARY_RESOURCE}.
+     * @throws IOException if the dictionary could not be read.
+     */
+    public static @NotNull FrameCompression withDefaultDictionary() throws IOException {
+        try (InputStream in = ResourceUtil.getResource(DICTIONARY_RESOURCE)) {
+            if (in == null)
+                throw new FileNotFoundException("Missing resource " + DICTIONARY_RESOURCE);
+            return new FrameCompression(DEFAULT_THRESHOLD, Deflater.DEFAULT_COMPRESSION, in.readAllBytes());
+        }
+    }
+
+    private static int checksum(byte[] data) {
+        Adler32 adler = new Adler32();
+        adler.update(data);
+        return (int) adler.getValue();
+    }
+
+    /* - - - */
+
+    /**
+     * Compresses the remaining bytes of {@code src} into {@code dst}, starting at its position.
+     * @param useDictionary Whether to use the preset dictionary.
+     * @return The compressed size, or -1 if the compressed data does not fit into the remaining space of {@code dst}.
+     *         Positions are undefined in that case.
+     */
+    int compress(@NotNull ByteBuffer src, @NotNull ByteBuffer dst, boolean useDictionary) {
+        int inputSize = src.remaining();
+        int start     = dst.position();
+
+        Deflater deflater = deflaters.get();
+        try {
+            if (useDictionary && dictionary != null)
+                deflater.setDictionary(dictionary);
+            deflater.setInput(src);
+            deflater.finish();
+
+            while (!deflater.finished()) {
+                if (!dst.hasRemaining()) return -1;
+                deflater.deflate(dst);
+            }
+        } finally {
+            deflater.reset();
+        }
+
+        int size = dst.position() - start;
+        compressedFrames.increment();
+        uncompressedBytes.add(inputSize);
+        compressedBytes.add(size);
+        return size;
+    }
+
+    /**
+     * Decompresses the remaining bytes of {@code src} into {@code dst}, which must be filled exactly.
+     * @throws ProtocolException if the data is invalid, does not have exactly the expected size or requires an unknown
+     *                           dictionary.
+     */
+    void decompress(@NotNull ByteBuffer src, @NotNull ByteBuffer dst) throws ProtocolException {
+        Inflater inflater = inflaters.get();
+        try {
+            inflater.setInput(src);
+            while (dst.hasRemaining()) {
+                if (inflater.inflate(dst) > 0) continue;
+
+                if (inflater.needsDictionary()) {
+                    if (dictionary == null || inflater.getAdler() != dictionaryId)
+                        throw new ProtocolException("Compressed frame requires an unknown dictionary");
+                    inflater.setDictionary(dictionary);
+                } else if (inflater.finished() || inflater.needsInput()) {
+                    break;
+                }
+            }
+
+            if (dst.hasRemaining() || !inflater.finished())
+                throw new ProtocolException("Compressed frame does not match its announced size");
+        } catch (DataFormatException e) {
+            throw new ProtocolException("Invalid compressed frame: " + e.getMessage());
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    /* - - - */
+
+    /**
+     * Builds a preset dictionary from sample payloads (e.g. typical JSON or binary packets).
+     * <p> Samples are split into segments, which are scored by how many samples share their 8-byte substrings.
+     * The best segments are picked greedily (ignoring substrings that are already covered) and concatenated so the most
+     * valuable segment is at the end, where DEFLATE can refer to it with the shortest distances.
+     * @param samples Sample payloads. The more representative, the better.
+     * @param maxSize Maximum size of the dictionary. DEFLATE can only refer to the last 32 KiB.
+     */
+    public static byte @NotNull [] trainDictionary(@NotNull Collection<byte[]> samples, int maxSize) {
+        final int gram    = 8;
+        final int segment = 64;
+        maxSize = Math.min(maxSize, 32 * 1024);
+
+        // amount of samples that contain each substring
+        Map<Long, Integer> counts = new HashMap<>();
+        for (byte[] sample : samples) {
+            Set<Long> seen = new HashSet<>();
+            for (int i = 0; i + gram <= sample.length; i++)
+                if (seen.add(gramAt(sample, i)))
+                    counts.merge(gramAt(sample, i), 1, Integer::sum);
+        }
+
+        record Segment(byte[] sample, int offset, int length) { }
+        List<Segment> candidates = new ArrayList<>();
+        for (byte[] sample : samples)
+            for (int offset = 0; offset < sample.length; offset += segment / 2)
+                candidates.add(new Segment(sample, offset, Math.min(segment, sample.length - offset)));
+
+        List<Segment> picked = new ArrayList<>();
+        Set<Long> covered    = new HashSet<>();
+        int size = 0;
+        while (size < maxSize && !candidates.isEmpty()) {
+            Segment best = null;
+            long bestScore = 0;
+            for (Segment candidate : candidates) {
+                long score = 0;
+                for (int i = candidate.offset(); i + gram <= candidate.offset() + candidate.length(); i++) {
+                    long key = gramAt(candidate.sample(), i);
+                    int count = counts.getOrDefault(key, 0);
+                    if (count > 1 && !covered.contains(key))
+                        score += count;
+                }
+                if (score > bestScore) {
+                    best      = candidate;
+                    bestScore = score;
+                }
+            }
+            if (best == null) break;
+
+            candidates.remove(best);
+            for (int i = best.offset(); i + gram <= best.offset() + best.length(); i++)
+                covered.add(gramAt(best.sample(), i));
+
+            int length = Math.min(best.length(), maxSize - size);
+            picked.add(new Segment(best.sample(), best.offset(), length));
+            size += length;
+        }
+
+        // most valuable segment last
+        byte[] dictionary = new byte[size];
+        int position = size;
+        for (Segment part : picked) {
+            position -= part.length();
+            System.arraycopy(part.sample(), part.offset(), dictionary, position, part.length());
+        }
+        return dictionary;
+    }
+
+    private static long gramAt(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++)
+            value = (value << 8) | (data[offset + i] & 0xFF);
+        return value;
+    }
+
+    /* - - - */
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public boolean hasDictionary() {
+        return dictionary != null;
+    }
+
+    /** Returns the Adler-32 checksum of the dictionary, which identifies it in the handshake, or 0 if there is none. */
+    public int getDictionaryId() {
+        return dictionaryId;
+    }
+
+    /** Returns the amount of frames that have been sent compressed. */
+    public long getCompressedFrames() {
+        return compressedFrames.sum();
+    }
+
+    /** Returns the ratio of compressed to uncompressed bytes of all compressed frames (lower is better). */
+    public double getCompressionRatio() {
+        long uncompressed = uncompressedBytes.sum();
+        return uncompressed == 0 ? 1 : (double) compressedBytes.sum() / uncompressed;
+    }
+}
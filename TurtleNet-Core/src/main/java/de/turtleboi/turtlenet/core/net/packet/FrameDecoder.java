@@ -0,0 +1,177 @@
+package de.turtleboi.turtlenet.core.net.packet;
+
+import de.turtleboi.lib.VarInts;
+import de.turtleboi.lib.buffer.BufferPool;
+import de.turtleboi.lib.buffer.PooledBuffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits a stream of bytes into frames of the form {@code [varint length][body]}.
+ * <p> Complete frames are passed on straight from the buffer they have been read into, without copying. Only a frame
+ * that is split across reads is copied into a pooled buffer, which grows with the data that has actually been received
+ * rather than with the announced length, and is released as soon as the frame is complete. The announced length is
+ * checked as soon as its prefix has been read, so oversized frames are rejected before any of their body is buffered.
+ * <p> Instances keep the state of one connection and are not thread-safe. {@link #release()} must be called once the
+ * connection has been closed.
+ */
+public final class FrameDecoder {
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    /** Receives complete frames. */
+    @FunctionalInterface
+    public interface FrameConsumer {
+        /**
+         * Called for each complete frame. The position of {@code body} is at the start of the body and its limit at the
+         * end; the limit must not be changed. The buffer is re-used afterwards.
+         */
+        void onFrame(@NotNull ByteBuffer body) throws Exception;
+    }
+
+    private final int maxFrameSize;
+    private final BufferPool pool;
+    private final FrameConsumer consumer;
+
+    // state of a partial frame
+    /** The decoded part of the length prefix, or the length once it is complete. */
+    private int length = 0;
+    /** Amount of bits of the length prefix that have been decoded, or -1 if the length is complete. */
+    private int lengthShift = 0;
+    private PooledBuffer partial;
+
+    /**
+     * @param maxFrameSize Maximum length of a frame body; longer frames are rejected with a {@link ProtocolException}.
+     * @param pool Pool for buffers of partial frames.
+     * @param consumer Receives complete frames.
+     */
+    public FrameDecoder(int maxFrameSize, @NotNull BufferPool pool, @NotNull FrameConsumer consumer) {
+        if (maxFrameSize < 1)
+            throw new IllegalArgumentException("maxFrameSize must be positive");
+        this.maxFrameSize = maxFrameSize;
+        this.pool         = pool;
+        this.consumer     = consumer;
+    }
+
+    /**
+     * Decodes all frames in {@code in} and passes them to the consumer. Trailing bytes of an incomplete frame are kept
+     * until the next call. {@code in} is consumed completely.
+     * @throws ProtocolException if a frame is empty or longer than the maximum frame size.
+     * @throws Exception if thrown by the consumer.
+     */
+    public void decode(@NotNull ByteBuffer in) throws Exception {
+        if (isPartial() && !continuePartial(in)) return;
+
+        while (in.hasRemaining()) {
+            int start  = in.position();
+            int prefix = VarInts.varIntLength(in, start);
+            if (prefix == 0) break;
+
+            int frameLength = checkLength(VarInts.getVarInt(in));
+            if (in.remaining() < frameLength) {
+                // only a part of the body has been received
+                this.length      = frameLength;
+                this.lengthShift = -1;
+                break;
+            }
+
+            int end   = in.position() + frameLength;
+            int limit = in.limit();
+            in.limit(end);
+            try {
+                consumer.onFrame(in);
+            } finally {
+                in.limit(limit).position(end);
+            }
+        }
+
+        if (in.hasRemaining() || lengthShift == -1)
+            continuePartial(in);
+    }
+
+    /** Returns {@code true} if a part of a frame has been received and is waiting for the rest. */
+    public boolean isPartial() {
+        return lengthShift != 0 || partial != null;
+    }
+
+    /** Returns the amount of bytes that are buffered for a partial frame. */
+    public int getBufferedBytes() {
+        return partial != null ? partial.buffer().position() : 0;
+    }
+
+    /** Discards a partial frame and releases its buffer. */
+    public void release() {
+        length      = 0;
+        lengthShift = 0;
+        if (partial != null) {
+            partial.release();
+            partial = null;
+        }
+    }
+
+    /* - - - */
+
+    /**
+     * Continues a partial frame with the bytes of {@code in}, decoding the length prefix byte by byte and copying the
+     * body into {@link #partial}.
+     * @return {@code true} if the frame is complete and has been passed to the consumer.
+     */
+    private boolean continuePartial(@NotNull ByteBuffer in) throws Exception {
+        while (lengthShift >= 0) {
+            if (!in.hasRemaining()) return false;
+
+            int b = in.get();
+            length |= (b & 0x7F) << lengthShift;
+            if (b >= 0) {
+                checkLength(length);
+                lengthShift = -1;
+            } else if ((lengthShift += 7) >= 35) {
+                throw new ProtocolException("Frame length prefix too long");
+            }
+        }
+
+        int missing = length - getBufferedBytes();
+        int copy    = Math.min(missing, in.remaining());
+        ensureCapacity(copy);
+
+        int limit = in.limit();
+        in.limit(in.position() + copy);
+        partial.buffer().put(in);
+        in.limit(limit);
+
+        if (copy < missing) return false;
+
+        ByteBuffer body = partial.buffer().flip();
+        try {
+            consumer.onFrame(body);
+        } finally {
+            release();
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int additional) {
+        int required = getBufferedBytes() + additional;
+        if (partial != null && partial.capacity() >= required) return;
+
+        // grow with the received data, not with the announced length
+        int capacity = partial == null ? INITIAL_BUFFER_SIZE : partial.capacity() * 2;
+        capacity = Math.min(length, Math.max(capacity, required));
+
+        PooledBuffer buffer = pool.allocate(capacity);
+        if (partial != null) {
+            buffer.buffer().put(partial.buffer().flip());
+            partial.release();
+        }
+        partial = buffer;
+    }
+
+    private int checkLength(int length) throws ProtocolException {
+        if (length <= 0)
+            throw new ProtocolException("Invalid frame length: " + (length & 0xFFFFFFFFL));
+        if (length > maxFrameSize)
+            throw new ProtocolException("Frame too large: " + length + " bytes (max " + maxFrameSize + ")");
+        return length;
+    }
+}
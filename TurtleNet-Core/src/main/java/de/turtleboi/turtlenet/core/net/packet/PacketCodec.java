@@ -0,0 +1,30 @@
+package de.turtleboi.turtlenet.core.net.packet;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes and decodes the payload of one packet type. Codecs are shared by all connections and must be stateless.
+ * @param <P> The packet type.
+ * @see PacketRegistry
+ */
+public interface PacketCodec<P> {
+    /**
+     * Writes the payload of a packet to a buffer, starting at its position.
+     * @throws java.nio.BufferOverflowException if the buffer is too small. The packet is then encoded again into a larger
+     *                                          buffer, so this must not have any side effects.
+     */
+    void encode(@NotNull P packet, @NotNull ByteBuffer out) throws Exception;
+
+    /**
+     * Reads a packet from a buffer. The position of {@code in} is at the start of the payload and its limit at the end;
+     * the limit must not be changed. The buffer is re-used afterwards, so the packet must not keep a reference to it.
+     */
+    @NotNull P decode(@NotNull ByteBuffer in) throws Exception;
+
+    /** Returns an estimate of the encoded payload size of a packet, to avoid re-encoding it into a larger buffer. */
+    default int sizeHint(@NotNull P packet) {
+        return 256;
+    }
+}
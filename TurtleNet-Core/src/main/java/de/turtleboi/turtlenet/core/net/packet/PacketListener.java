@@ -0,0 +1,23 @@
+package de.turtleboi.turtlenet.core.net.packet;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Receives the events of {@link PacketSession PacketSessions}. Like {@link de.turtleboi.turtlenet.core.net.ConnectionHandler}
+ * all methods are called by the selector thread of the connection and must never block. If a method throws an
+ * exception, the connection is closed with that exception as the cause.
+ */
+public interface PacketListener {
+    /** Called once the connection has been established. */
+    default void onOpen(@NotNull PacketSession session) throws Exception { }
+
+    /** Called for each packet that has been received, in the order they have been received. */
+    void onPacket(@NotNull PacketSession session, @NotNull Object packet) throws Exception;
+
+    /** @see de.turtleboi.turtlenet.core.net.ConnectionHandler#onWritabilityChanged(de.turtleboi.turtlenet.core.net.Connection, boolean) */
+    default void onWritabilityChanged(@NotNull PacketSession session, boolean writable) throws Exception { }
+
+    /** @see de.turtleboi.turtlenet.core.net.ConnectionHandler#onClose(de.turtleboi.turtlenet.core.net.Connection, Throwable) */
+    default void onClose(@NotNull PacketSession session, @Nullable Throwable cause) { }
+}
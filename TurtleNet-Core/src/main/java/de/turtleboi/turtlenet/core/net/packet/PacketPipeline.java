@@ -0,0 +1,112 @@
+package de.turtleboi.turtlenet.core.net.packet;
+
+import de.turtleboi.turtlenet.core.net.Connection;
+import de.turtleboi.turtlenet.core.net.ConnectionHandler;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link ConnectionHandler} that exchanges packets. Each packet is sent as a frame:
+ * <pre> {@code
+ * [varint length][varint data length][varint packet id][payload]
+ * } </pre>
+ * where {@code length} is the size of the rest of the frame. A {@code data length} of 0 means the packet id and payload
+ * follow uncompressed, any other value is the size of the packet id and payload, which follow DEFLATE-compressed
+ * (see {@link FrameCompression}).
+ * <p> The first frame of each side is a handshake instead, which announces the protocol version and whether and with
+ * which dictionary the side can decompress frames. Each side sends its handshake as soon as the connection is open and
+ * only compresses frames once the handshake of the other side has been received, so no round trip is spent waiting for
+ * it. Connections that send an invalid handshake or a different protocol version are closed. Received frames are
+ * decoded straight from the read buffer of the selector thread by the {@link PacketCodec} that has been registered for
+ * their id; only frames that are split across reads are copied (see {@link FrameDecoder}). Outbound frames are encoded
+ * into buffers of the {@link de.turtleboi.lib.buffer.BufferPool BufferPool} of the transport.
+ * <p> The pipeline uses the attachment of each {@link Connection} for its {@link PacketSession}; use
+ * {@link PacketSession#setAttachment(Object)} instead.
+ */
+public final class PacketPipeline implements ConnectionHandler {
+    /** Default maximum size of a frame (packet id and payload). */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 2 * 1024 * 1024;
+
+    private final PacketRegistry registry;
+    private final PacketListener listener;
+    private final int maxFrameSize;
+    private final FrameCompression compression;
+
+    public PacketPipeline(@NotNull PacketRegistry registry, @NotNull PacketListener listener) {
+        this(registry, listener, DEFAULT_MAX_FRAME_SIZE, null);
+    }
+
+    public PacketPipeline(@NotNull PacketRegistry registry, @NotNull PacketListener listener, int maxFrameSize) {
+        this(registry, listener, maxFrameSize, null);
+    }
+
+    /**
+     * @param registry The packet types that may be sent and received.
+     * @param listener Receives the packets of all connections.
+     * @param maxFrameSize Maximum size of a frame. Connections that announce a larger frame are closed immediately.
+     *                     Also limits the decompressed size of compressed frames.
+     * @param compression Compression settings, or {@code null} to neither compress nor accept compressed frames.
+     */
+    public PacketPipeline(@NotNull PacketRegistry registry, @NotNull PacketListener listener, int maxFrameSize, @Nullable FrameCompression compression) {
+        if (maxFrameSize < 1)
+            throw new IllegalArgumentException("maxFrameSize must be positive");
+        this.registry     = registry;
+        this.listener     = listener;
+        this.maxFrameSize = maxFrameSize;
+        this.compression  = compression;
+    }
+
+    /** Returns the session of a connection that is handled by a pipeline, or {@code null} if it has not been opened. */
+    public static @Nullable PacketSession getSession(@NotNull Connection connection) {
+        return connection.getAttachment() instanceof PacketSession session ? session : null;
+    }
+
+    /* - - - */
+
+    @Override
+    public void onOpen(@NotNull Connection connection) throws Exception {
+        PacketSession session = new PacketSession(connection, this);
+        connection.setAttachment(session);
+        session.sendHandshake();
+        listener.onOpen(session);
+    }
+
+    @Override
+    public void onRead(@NotNull Connection connection, @NotNull ByteBuffer buffer) throws Exception {
+        ((PacketSession) connection.getAttachment()).decoder.decode(buffer);
+    }
+
+    @Override
+    public void onWritabilityChanged(@NotNull Connection connection, boolean writable) throws Exception {
+        listener.onWritabilityChanged((PacketSession) connection.getAttachment(), writable);
+    }
+
+    @Override
+    public void onClose(@NotNull Connection connection, @Nullable Throwable cause) {
+        PacketSession session = getSession(connection);
+        if (session == null) return;
+
+        session.decoder.release();
+        listener.onClose(session, cause);
+    }
+
+    /* - - - */
+
+    public @NotNull PacketRegistry getRegistry() {
+        return registry;
+    }
+
+    public @NotNull PacketListener getListener() {
+        return listener;
+    }
+
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public @Nullable FrameCompression getCompression() {
+        return compression;
+    }
+}
@@ -0,0 +1,63 @@
+package de.turtleboi.turtlenet.core.net.packet;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps packet ids to packet types and their {@link PacketCodec codecs}.
+ * <p> Lookups by id are a single array access and lookups by type a single map access; neither takes a lock.
+ * Registering is synchronized and copies the id table, as it is expected to only happen during startup.
+ */
+public final class PacketRegistry {
+    /** Highest packet id that may be registered. Ids are encoded as varints, so ids below 128 take a single byte. */
+    public static final int MAX_ID = 0xFFFF;
+
+    /** A registered packet type. */
+    public record Entry<P>(int id, @NotNull Class<P> type, @NotNull PacketCodec<P> codec) { }
+
+    private volatile Entry<?>[] byId = new Entry<?>[0];
+    private final ConcurrentHashMap<Class<?>, Entry<?>> byType = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a packet type.
+     * @param id The id of the packet type. Both sides of a connection must use the same ids.
+     * @param type The packet class. Subclasses of it are not matched.
+     * @param codec The codec of the packet type.
+     * @throws IllegalArgumentException if the id is out of range or the id or type have already been registered.
+     */
+    public synchronized <P> @NotNull PacketRegistry register(int id, @NotNull Class<P> type, @NotNull PacketCodec<P> codec) {
+        if (id < 0 || id > MAX_ID)
+            throw new IllegalArgumentException("Packet id out of range: " + id);
+        if (getEntry(id) != null)
+            throw new IllegalArgumentException("Packet id already registered: " + id);
+        if (byType.containsKey(type))
+            throw new IllegalArgumentException("Packet type already registered: " + type.getName());
+
+        Entry<P> entry = new Entry<>(id, type, codec);
+        Entry<?>[] table = byId.length > id ? byId.clone() : Arrays.copyOf(byId, id + 1);
+        table[id] = entry;
+
+        byType.put(type, entry);
+        byId = table;
+        return this;
+    }
+
+    /** Returns the registered packet type with the provided id, or {@code null} if there is none. */
+    public @Nullable Entry<?> getEntry(int id) {
+        Entry<?>[] table = byId;
+        return id >= 0 && id < table.length ? table[id] : null;
+    }
+
+    /** Returns the registered packet type of the provided class, or {@code null} if there is none. */
+    @SuppressWarnings("unchecked")
+    public <P> @Nullable Entry<P> getEntry(@NotNull Class<P> type) {
+        return (Entry<P>) byType.get(type);
+    }
+
+    public int size() {
+        return byType.size();
+    }
+}
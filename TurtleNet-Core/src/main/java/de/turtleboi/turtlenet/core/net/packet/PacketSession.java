@@ -0,0 +1,264 @@
+package de.turtleboi.turtlenet.core.net.packet;
+
+import de.turtleboi.lib.VarInts;
+import de.turtleboi.lib.buffer.BufferPool;
+import de.turtleboi.lib.buffer.PooledBuffer;
+import de.turtleboi.turtlenet.core.net.Connection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.ProtocolException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link Connection} that exchanges packets (see {@link PacketPipeline}).
+ * <p> {@link #send(Object)} may be called from any thread. The packet is encoded (and compressed) on the calling
+ * thread, so encoding does not take time from the selector thread.
+ */
+public final class PacketSession {
+    /** Identifies a TurtleNet handshake ("TNET"). */
+    private static final int HANDSHAKE_MAGIC  = 0x544E4554;
+    /** Version of the frame format. Peers with a different version are rejected. */
+    private static final int PROTOCOL_VERSION = 1;
+    /** Handshake flag: The side can decompress frames. */
+    private static final int FLAG_COMPRESSION = 1;
+
+    /** Bytes reserved in front of an encoded packet for the length and data length prefixes (two 32-bit varints). */
+    private static final int HEADER_SIZE = 10;
+
+    private final Connection connection;
+    private final PacketPipeline pipeline;
+    final FrameDecoder decoder;
+
+    /** Only accessed by the selector thread. */
+    private boolean handshakeReceived = false;
+    /** Set once the handshake of the remote side has been received. */
+    private volatile boolean compress      = false;
+    private volatile boolean useDictionary = false;
+
+    private volatile Object attachment;
+
+    PacketSession(@NotNull Connection connection, @NotNull PacketPipeline pipeline) {
+        this.connection = connection;
+        this.pipeline   = pipeline;
+        this.decoder    = new FrameDecoder(pipeline.getMaxFrameSize(), connection.getTransport().getBufferPool(), this::onFrame);
+    }
+
+    private void onFrame(@NotNull ByteBuffer body) throws Exception {
+        if (!handshakeReceived) {
+            onHandshake(body);
+            handshakeReceived = true;
+            return;
+        }
+
+        int dataLength = VarInts.getVarInt(body);
+        if (dataLength == 0) {
+            onPacket(body);
+            return;
+        }
+
+        FrameCompression compression = pipeline.getCompression();
+        if (compression == null)
+            throw new ProtocolException("Received a compressed frame, but compression is disabled");
+        // checked before allocating, so a tiny frame cannot make us inflate an arbitrary amount of data
+        if (dataLength < 0 || dataLength > pipeline.getMaxFrameSize())
+            throw new ProtocolException("Decompressed frame size " + (dataLength & 0xFFFFFFFFL) + " exceeds the maximum of " + pipeline.getMaxFrameSize() + " bytes");
+
+        PooledBuffer pooled = connection.getTransport().getBufferPool().allocate(dataLength);
+        try {
+            ByteBuffer data = pooled.buffer();
+            data.limit(dataLength);
+            compression.decompress(body, data);
+            data.flip();
+            onPacket(data);
+        } finally {
+            pooled.release();
+        }
+    }
+
+    private void onHandshake(@NotNull ByteBuffer body) throws ProtocolException {
+        if (body.remaining() < 4 || body.getInt() != HANDSHAKE_MAGIC)
+            throw new ProtocolException("Invalid handshake");
+
+        int version = VarInts.getVarInt(body);
+        if (version != PROTOCOL_VERSION)
+            throw new ProtocolException("Unsupported protocol version " + version + " (expected " + PROTOCOL_VERSION + ")");
+
+        int flags        = VarInts.getVarInt(body);
+        int dictionaryId = body.getInt();
+        // newer versions may append fields
+        body.position(body.limit());
+
+        FrameCompression compression = pipeline.getCompression();
+        if (compression != null && (flags & FLAG_COMPRESSION) != 0) {
+            useDictionary = compression.hasDictionary() && dictionaryId == compression.getDictionaryId();
+            compress      = true;
+        }
+    }
+
+    private void onPacket(@NotNull ByteBuffer body) throws Exception {
+        int id = VarInts.getVarInt(body);
+        PacketRegistry.Entry<?> entry = pipeline.getRegistry().getEntry(id);
+        if (entry == null)
+            throw new ProtocolException("Unknown packet id: " + id);
+
+        Object packet = entry.codec().decode(body);
+        if (body.hasRemaining())
+            throw new ProtocolException("Packet " + entry.type().getSimpleName() + " has " + body.remaining() + " trailing bytes");
+
+        pipeline.getListener().onPacket(this, packet);
+    }
+
+    /* - - - */
+
+    /** Sends the handshake. Called by the pipeline before anything else is sent. */
+    void sendHandshake() {
+        FrameCompression compression = pipeline.getCompression();
+
+        PooledBuffer pooled = connection.getTransport().getBufferPool().allocate(HEADER_SIZE + 16);
+        ByteBuffer buffer = pooled.buffer();
+        buffer.position(HEADER_SIZE);
+        buffer.putInt(HANDSHAKE_MAGIC);
+        VarInts.putVarInt(PROTOCOL_VERSION, buffer);
+        VarInts.putVarInt(compression != null ? FLAG_COMPRESSION : 0, buffer);
+        buffer.putInt(compression != null ? compression.getDictionaryId() : 0);
+
+        int length = buffer.position() - HEADER_SIZE;
+        int start  = HEADER_SIZE - VarInts.varIntSize(length);
+        VarInts.putVarInt(length, buffer, start);
+        buffer.limit(buffer.position()).position(start);
+        connection.write(pooled);
+    }
+
+    /**
+     * Encodes a packet and queues it to be written.
+     * @return {@code false} if the connection has already been closed, in which case the packet is discarded.
+     * @throws IllegalArgumentException if the packet type has not been registered.
+     * @throws ProtocolException if the encoded packet is larger than the maximum frame size.
+     * @throws Exception if thrown by the codec.
+     */
+    public boolean send(@NotNull Object packet) throws Exception {
+        if (!connection.isOpen()) return false;
+        return connection.write(encode(packet));
+    }
+
+    /** Encodes a packet into a pooled buffer, including its prefixes, and compresses it if worthwhile. */
+    @SuppressWarnings("unchecked")
+    private <P> @NotNull PooledBuffer encode(@NotNull P packet) throws Exception {
+        PacketRegistry.Entry<P> entry = (PacketRegistry.Entry<P>) pipeline.getRegistry().getEntry(packet.getClass());
+        if (entry == null)
+            throw new IllegalArgumentException("Packet type not registered: " + packet.getClass().getName());
+
+        BufferPool pool = connection.getTransport().getBufferPool();
+        // an uncompressed frame takes one byte for the data length
+        int maxDataSize = pipeline.getMaxFrameSize() - 1;
+        int capacity    = Math.min(maxDataSize, VarInts.varIntSize(entry.id()) + entry.codec().sizeHint(packet));
+        while (true) {
+            // the body is encoded first, so the prefixes are written in front of it once the length is known
+            PooledBuffer pooled = pool.allocate(HEADER_SIZE + capacity);
+            ByteBuffer buffer = pooled.buffer();
+            // the pool rounds up, but the frame must not exceed the limit
+            buffer.limit(HEADER_SIZE + Math.min(maxDataSize, buffer.capacity() - HEADER_SIZE));
+            buffer.position(HEADER_SIZE);
+            try {
+                VarInts.putVarInt(entry.id(), buffer);
+                entry.codec().encode(packet, buffer);
+            } catch (BufferOverflowException e) {
+                pooled.release();
+                if (capacity >= maxDataSize)
+                    throw new ProtocolException("Packet " + entry.type().getSimpleName() + " exceeds the maximum frame size of " + pipeline.getMaxFrameSize() + " bytes");
+                capacity = (int) Math.min(maxDataSize, Math.max(capacity * 2L, buffer.capacity()));
+                continue;
+            } catch (Throwable t) {
+                pooled.release();
+                throw t;
+            }
+
+            int length = buffer.position() - HEADER_SIZE;
+            FrameCompression compression = pipeline.getCompression();
+            if (compress && compression != null && length >= compression.getThreshold()) {
+                PooledBuffer compressed = compress(compression, buffer, length);
+                if (compressed != null) {
+                    pooled.release();
+                    return compressed;
+                }
+            }
+
+            buffer.put(HEADER_SIZE - 1, (byte) 0);
+            int start = HEADER_SIZE - 1 - VarInts.varIntSize(length + 1);
+            VarInts.putVarInt(length + 1, buffer, start);
+            buffer.limit(HEADER_SIZE + length).position(start);
+            return pooled;
+        }
+    }
+
+    /** Compresses an encoded packet into a new frame, or returns {@code null} if it would not get smaller. */
+    private @Nullable PooledBuffer compress(@NotNull FrameCompression compression, @NotNull ByteBuffer data, int length) {
+        int lengthSize = VarInts.varIntSize(length);
+        // the compressed frame must be smaller than the uncompressed one, which takes 1 + length bytes
+        int maxSize = length - lengthSize;
+        if (maxSize <= 0) return null;
+
+        PooledBuffer pooled = connection.getTransport().getBufferPool().allocate(HEADER_SIZE + maxSize);
+        ByteBuffer buffer = pooled.buffer();
+        buffer.limit(HEADER_SIZE + maxSize).position(HEADER_SIZE);
+
+        int size;
+        try {
+            size = compression.compress(data.duplicate().limit(HEADER_SIZE + length).position(HEADER_SIZE), buffer, useDictionary);
+        } catch (Throwable t) {
+            pooled.release();
+            throw t;
+        }
+        if (size < 0) {
+            pooled.release();
+            return null;
+        }
+
+        int start = HEADER_SIZE - lengthSize;
+        VarInts.putVarInt(length, buffer, start);
+        start -= VarInts.varIntSize(lengthSize + size);
+        VarInts.putVarInt(lengthSize + size, buffer, start);
+        buffer.limit(HEADER_SIZE + size).position(start);
+        return pooled;
+    }
+
+    /* - - - */
+
+    public @NotNull Connection getConnection() {
+        return connection;
+    }
+
+    /** @see Connection#isWritable() */
+    public boolean isWritable() {
+        return connection.isWritable();
+    }
+
+    public boolean isOpen() {
+        return connection.isOpen();
+    }
+
+    /** Returns whether packets are compressed, which is the case once both sides have agreed on compression. */
+    public boolean isCompressionEnabled() {
+        return compress;
+    }
+
+    /** Flushes all queued packets, then closes the connection. */
+    public void close() {
+        connection.close();
+    }
+
+    public @Nullable Object getAttachment() {
+        return attachment;
+    }
+
+    public void setAttachment(@Nullable Object attachment) {
+        this.attachment = attachment;
+    }
+
+    @Override
+    public String toString() {
+        return "PacketSession{" + connection.getRemoteAddress() + "}";
+    }
+}
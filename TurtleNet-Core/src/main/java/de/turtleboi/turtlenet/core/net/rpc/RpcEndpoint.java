@@ -0,0 +1,219 @@
+package de.turtleboi.turtlenet.core.net.rpc;
+
+import de.turtleboi.lib.thread.TimerWheel;
+import de.turtleboi.turtlenet.core.net.packet.PacketSession;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The RPC state of one {@link PacketSession}.
+ * <p> Each call is tagged with a correlation id and many calls may be in flight over the same connection at once.
+ * Responses complete their futures in the order they arrive, so a slow request does not delay the responses of other
+ * requests. Each call has a deadline, after which its future fails with a {@link TimeoutException}; a response that
+ * arrives later is discarded. The amount of calls in flight is limited: Calls beyond the limit fail immediately with a
+ * {@link RejectedExecutionException} instead of queueing up.
+ * @see RpcListener
+ */
+public final class RpcEndpoint {
+    private final PacketSession session;
+    private final RpcListener listener;
+
+    private final ConcurrentHashMap<Integer, Call> calls = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId   = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile Throwable closeCause = null;
+    private volatile boolean closed = false;
+
+    RpcEndpoint(@NotNull PacketSession session, @NotNull RpcListener listener) {
+        this.session  = session;
+        this.listener = listener;
+    }
+
+    /** A pending call. Completed by a response, a failure, its deadline or the connection being closed. */
+    private final class Call extends CompletableFuture<Object> {
+        private final int id;
+        private volatile TimerWheel.Timeout timeout;
+
+        Call(int id) {
+            this.id = id;
+        }
+
+        /** Removes this call, so it is completed exactly once. */
+        boolean finish() {
+            if (!calls.remove(id, this)) return false;
+            inFlight.decrementAndGet();
+
+            TimerWheel.Timeout timeout = this.timeout;
+            if (timeout != null)
+                timeout.cancel();
+            return true;
+        }
+
+        void expire() {
+            if (finish())
+                completeExceptionally(new TimeoutException("No response within the deadline"));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return finish() && super.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    /* - - - */
+
+    /**
+     * Sends a request with the default deadline of the {@link RpcListener}.
+     * @see #call(Object, long, TimeUnit)
+     */
+    public @NotNull CompletableFuture<Object> call(@NotNull Object request) {
+        return call(request, listener.getDefaultTimeoutNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sends a request.
+     * @param request The request body. Must be a registered packet.
+     * @param timeout The deadline, relative to now.
+     * @return A future that is completed with the response body, or exceptionally with a {@link TimeoutException} if
+     *         the deadline has passed, an {@link RpcException} if the remote side could not handle the request, a
+     *         {@link RejectedExecutionException} if too many calls are in flight, or a {@link ClosedChannelException}
+     *         if the connection has been closed.
+     */
+    public @NotNull CompletableFuture<Object> call(@NotNull Object request, long timeout, @NotNull TimeUnit unit) {
+        if (closed)
+            return CompletableFuture.failedFuture(closedException());
+
+        if (inFlight.incrementAndGet() > listener.getMaxInFlight()) {
+            inFlight.decrementAndGet();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Too many calls in flight (max " + listener.getMaxInFlight() + ")"));
+        }
+
+        Call call = new Call(nextId.getAndIncrement());
+        calls.put(call.id, call);
+        try {
+            // the deadline is set before sending, so a call can never be pending without one
+            call.timeout = listener.getTimer().schedule(call::expire, timeout, unit);
+            if (!session.send(new RpcProtocol.Request(call.id, request)) && call.finish())
+                call.completeExceptionally(closedException());
+        } catch (Throwable t) {
+            if (call.finish())
+                call.completeExceptionally(t);
+        }
+
+        // closed concurrently, after the pending calls have been failed
+        if (closed && call.finish())
+            call.completeExceptionally(closedException());
+        return call;
+    }
+
+    /**
+     * Sends a request and casts the response body.
+     * @see #call(Object, long, TimeUnit)
+     */
+    public <R> @NotNull CompletableFuture<R> call(@NotNull Object request, @NotNull Class<R> responseType, long timeout, @NotNull TimeUnit unit) {
+        return call(request, timeout, unit).thenApply(responseType::cast);
+    }
+
+    /* - - - */
+
+    void handleRequest(@NotNull RpcProtocol.Request request) {
+        Executor executor = listener.getExecutor();
+        if (executor == null) {
+            invokeHandler(request);
+            return;
+        }
+
+        try {
+            executor.execute(() -> invokeHandler(request));
+        } catch (RejectedExecutionException e) {
+            sendFailure(request.correlationId(), e);
+        }
+    }
+
+    private void invokeHandler(@NotNull RpcProtocol.Request request) {
+        CompletionStage<?> stage;
+        try {
+            stage = listener.getHandler().handle(session, request.body());
+        } catch (Throwable t) {
+            sendFailure(request.correlationId(), t);
+            return;
+        }
+
+        stage.whenComplete((response, t) -> {
+            if (t != null) {
+                sendFailure(request.correlationId(), t);
+                return;
+            }
+            try {
+                session.send(new RpcProtocol.Response(request.correlationId(), response));
+            } catch (Throwable e) {
+                sendFailure(request.correlationId(), e);
+            }
+        });
+    }
+
+    private void sendFailure(int correlationId, @NotNull Throwable t) {
+        if (t instanceof CompletionException && t.getCause() != null)
+            t = t.getCause();
+        try {
+            session.send(new RpcProtocol.Failure(correlationId, t.getMessage() != null ? t.getMessage() : t.toString()));
+        } catch (Throwable ignored) {
+            // nothing left to tell the caller, the call will time out
+        }
+    }
+
+    void handleResponse(@NotNull RpcProtocol.Response response) {
+        Call call = calls.get(response.correlationId());
+        if (call != null && call.finish())
+            call.complete(response.body());
+    }
+
+    void handleFailure(@NotNull RpcProtocol.Failure failure) {
+        Call call = calls.get(failure.correlationId());
+        if (call != null && call.finish())
+            call.completeExceptionally(new RpcException(failure.message()));
+    }
+
+    /** Fails all pending calls. Called once the connection has been closed. */
+    void close(@Nullable Throwable cause) {
+        closeCause = cause;
+        closed     = true;
+        for (Call call : calls.values())
+            if (call.finish())
+                call.completeExceptionally(closedException());
+    }
+
+    private @NotNull Throwable closedException() {
+        ClosedChannelException e = new ClosedChannelException();
+        Throwable cause = closeCause;
+        if (cause != null)
+            e.initCause(cause);
+        return e;
+    }
+
+    /* - - - */
+
+    public @NotNull PacketSession getSession() {
+        return session;
+    }
+
+    /** Returns the amount of calls that are waiting for a response. */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,10 @@
+package de.turtleboi.turtlenet.core.net.rpc;
+
+/** Thrown if the remote side could not handle a request. */
+public class RpcException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public RpcException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,25 @@
+package de.turtleboi.turtlenet.core.net.rpc;
+
+import de.turtleboi.turtlenet.core.net.packet.PacketSession;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Handles incoming requests. Unless the {@link RpcListener} has an executor for requests, this is called by the
+ * selector thread of the connection and must not block: Blocking work should then be done asynchronously (e.g. with
+ * {@link java.util.concurrent.CompletableFuture#supplyAsync(java.util.function.Supplier, java.util.concurrent.Executor)
+ * CompletableFuture.supplyAsync} and {@link de.turtleboi.turtlenet.core.TurtleCore#getBlockingExecutor()}). If the
+ * handler is called by an executor, it may block and return a completed stage. Responses are sent as soon as their
+ * stage completes, independent of other requests.
+ */
+@FunctionalInterface
+public interface RpcHandler {
+    /**
+     * @param request The body of the request.
+     * @return A stage that completes with the response body, which must be a registered packet. If it completes
+     *         exceptionally (or this method throws), the caller receives an {@link RpcException} with the message of
+     *         the exception.
+     */
+    @NotNull CompletionStage<?> handle(@NotNull PacketSession session, @NotNull Object request) throws Exception;
+}
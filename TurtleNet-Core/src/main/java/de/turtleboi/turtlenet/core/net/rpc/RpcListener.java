@@ -0,0 +1,156 @@
+package de.turtleboi.turtlenet.core.net.rpc;
+
+import de.turtleboi.lib.thread.TimerWheel;
+import de.turtleboi.turtlenet.core.net.packet.PacketListener;
+import de.turtleboi.turtlenet.core.net.packet.PacketSession;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link PacketListener} that adds request/response calls to each session (see {@link RpcEndpoint}). Requests are
+ * passed to an {@link RpcHandler}, responses complete the pending calls, and all other packets are passed on to a
+ * delegate listener.
+ * <p> By default the handler is called by the selector thread and must not block. If an executor for requests is
+ * provided (e.g. {@link de.turtleboi.turtlenet.core.TurtleCore#getBlockingExecutor()}, which uses virtual threads on
+ * Java 21 or newer), the handler is called by that executor instead and may block.
+ * <p> The RPC packets must be registered with {@link RpcProtocol#register(de.turtleboi.turtlenet.core.net.packet.PacketRegistry, int)}
+ * on both sides.
+ */
+public final class RpcListener implements PacketListener {
+    /** Default maximum amount of calls in flight per connection. */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+    /** Default deadline of calls, in milliseconds. */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+    private static final RpcHandler NO_HANDLER = (session, request) ->
+            CompletableFuture.failedFuture(new UnsupportedOperationException("Requests are not supported"));
+
+    private final TimerWheel timer;
+    private final RpcHandler handler;
+    private final PacketListener delegate;
+    private final Executor executor;
+    private final int maxInFlight;
+    private final long defaultTimeoutNanos;
+
+    private final ConcurrentHashMap<PacketSession, RpcEndpoint> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new listener with the default limits.
+     * @param timer Timer for the deadlines of calls.
+     * @param handler Handles incoming requests. If {@code null}, all requests fail.
+     * @param delegate Receives all packets that are not part of the RPC protocol.
+     */
+    public RpcListener(@NotNull TimerWheel timer, @Nullable RpcHandler handler, @NotNull PacketListener delegate) {
+        this(timer, handler, delegate, DEFAULT_MAX_IN_FLIGHT, DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new listener with the default limits that calls the handler on an executor.
+     * @param timer Timer for the deadlines of calls.
+     * @param handler Handles incoming requests. If {@code null}, all requests fail.
+     * @param delegate Receives all packets that are not part of the RPC protocol.
+     * @param executor Calls the handler for each request. If {@code null}, the handler is called by the selector
+     *                 thread.
+     */
+    public RpcListener(@NotNull TimerWheel timer, @Nullable RpcHandler handler, @NotNull PacketListener delegate, @Nullable Executor executor) {
+        this(timer, handler, delegate, executor, DEFAULT_MAX_IN_FLIGHT, DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param timer Timer for the deadlines of calls.
+     * @param handler Handles incoming requests. If {@code null}, all requests fail.
+     * @param delegate Receives all packets that are not part of the RPC protocol.
+     * @param maxInFlight Maximum amount of calls in flight per connection.
+     * @param defaultTimeout Deadline of calls that do not specify one.
+     */
+    public RpcListener(@NotNull TimerWheel timer, @Nullable RpcHandler handler, @NotNull PacketListener delegate, int maxInFlight, long defaultTimeout, @NotNull TimeUnit unit) {
+        this(timer, handler, delegate, null, maxInFlight, defaultTimeout, unit);
+    }
+
+    /**
+     * @param timer Timer for the deadlines of calls.
+     * @param handler Handles incoming requests. If {@code null}, all requests fail.
+     * @param delegate Receives all packets that are not part of the RPC protocol.
+     * @param executor Calls the handler for each request. If {@code null}, the handler is called by the selector
+     *                 thread.
+     * @param maxInFlight Maximum amount of calls in flight per connection.
+     * @param defaultTimeout Deadline of calls that do not specify one.
+     */
+    public RpcListener(@NotNull TimerWheel timer, @Nullable RpcHandler handler, @NotNull PacketListener delegate, @Nullable Executor executor, int maxInFlight, long defaultTimeout, @NotNull TimeUnit unit) {
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("maxInFlight must be positive");
+
+        this.timer               = timer;
+        this.handler             = handler != null ? handler : NO_HANDLER;
+        this.delegate            = delegate;
+        this.executor            = executor;
+        this.maxInFlight         = maxInFlight;
+        this.defaultTimeoutNanos = unit.toNanos(defaultTimeout);
+    }
+
+    /** Returns the endpoint of a session, or {@code null} if it has not been opened by this listener or is closed. */
+    public @Nullable RpcEndpoint getEndpoint(@NotNull PacketSession session) {
+        return endpoints.get(session);
+    }
+
+    /* - - - */
+
+    @Override
+    public void onOpen(@NotNull PacketSession session) throws Exception {
+        endpoints.put(session, new RpcEndpoint(session, this));
+        delegate.onOpen(session);
+    }
+
+    @Override
+    public void onPacket(@NotNull PacketSession session, @NotNull Object packet) throws Exception {
+        if (packet instanceof RpcProtocol.Response response)
+            endpoints.get(session).handleResponse(response);
+        else if (packet instanceof RpcProtocol.Request request)
+            endpoints.get(session).handleRequest(request);
+        else if (packet instanceof RpcProtocol.Failure failure)
+            endpoints.get(session).handleFailure(failure);
+        else
+            delegate.onPacket(session, packet);
+    }
+
+    @Override
+    public void onWritabilityChanged(@NotNull PacketSession session, boolean writable) throws Exception {
+        delegate.onWritabilityChanged(session, writable);
+    }
+
+    @Override
+    public void onClose(@NotNull PacketSession session, @Nullable Throwable cause) {
+        RpcEndpoint endpoint = endpoints.remove(session);
+        if (endpoint != null)
+            endpoint.close(cause);
+        delegate.onClose(session, cause);
+    }
+
+    /* - - - */
+
+    public @NotNull TimerWheel getTimer() {
+        return timer;
+    }
+
+    public @NotNull RpcHandler getHandler() {
+        return handler;
+    }
+
+    /** Returns the executor that calls the handler, or {@code null} if it is called by the selector thread. */
+    public @Nullable Executor getExecutor() {
+        return executor;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public long getDefaultTimeoutNanos() {
+        return defaultTimeoutNanos;
+    }
+}
@@ -0,0 +1,157 @@
+package de.turtleboi.turtlenet.core.net.rpc;
+
+import de.turtleboi.lib.VarInts;
+import de.turtleboi.turtlenet.core.net.packet.PacketCodec;
+import de.turtleboi.turtlenet.core.net.packet.PacketRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The packets of the RPC layer. Requests and responses wrap another registered packet and tag it with a correlation
+ * id, so responses can be matched to their requests regardless of the order in which they arrive:
+ * <pre> {@code
+ * Request / Response: [varint correlation id][varint packet id][payload]
+ * Failure:            [varint correlation id][varint length][UTF-8 message]
+ * } </pre>
+ */
+public final class RpcProtocol {
+    /** Utility class */
+    private RpcProtocol() { }
+
+    /** Amount of packet ids that are used by {@link #register(PacketRegistry, int)}. */
+    public static final int PACKET_COUNT = 3;
+
+    /** Maximum length of the message of a {@link Failure}, in bytes. Longer messages are truncated. */
+    private static final int MAX_MESSAGE_LENGTH = 1024;
+
+    public record Request(int correlationId, @NotNull Object body) { }
+
+    public record Response(int correlationId, @NotNull Object body) { }
+
+    /** Sent instead of a {@link Response} if the request could not be handled. */
+    public record Failure(int correlationId, @NotNull String message) { }
+
+    /**
+     * Registers the RPC packets with {@link #PACKET_COUNT} consecutive ids, starting with {@code firstId}. Packets that
+     * are sent as the body of a request or response must be registered with the same registry.
+     */
+    public static void register(@NotNull PacketRegistry registry, int firstId) {
+        registry.register(firstId, Request.class, new EnvelopeCodec<>(registry) {
+            @Override
+            @NotNull Request create(int correlationId, @NotNull Object body) {
+                return new Request(correlationId, body);
+            }
+
+            @Override
+            int correlationId(@NotNull Request packet) {
+                return packet.correlationId();
+            }
+
+            @Override
+            @NotNull Object body(@NotNull Request packet) {
+                return packet.body();
+            }
+        });
+        registry.register(firstId + 1, Response.class, new EnvelopeCodec<>(registry) {
+            @Override
+            @NotNull Response create(int correlationId, @NotNull Object body) {
+                return new Response(correlationId, body);
+            }
+
+            @Override
+            int correlationId(@NotNull Response packet) {
+                return packet.correlationId();
+            }
+
+            @Override
+            @NotNull Object body(@NotNull Response packet) {
+                return packet.body();
+            }
+        });
+        registry.register(firstId + 2, Failure.class, new FailureCodec());
+    }
+
+    /* - - - */
+
+    /** Encodes the wrapped packet with the codec that has been registered for it. */
+    private static abstract class EnvelopeCodec<P> implements PacketCodec<P> {
+        private final PacketRegistry registry;
+
+        EnvelopeCodec(@NotNull PacketRegistry registry) {
+            this.registry = registry;
+        }
+
+        abstract @NotNull P create(int correlationId, @NotNull Object body);
+
+        abstract int correlationId(@NotNull P packet);
+
+        abstract @NotNull Object body(@NotNull P packet);
+
+        @Override
+        public void encode(@NotNull P packet, @NotNull ByteBuffer out) throws Exception {
+            Object body = body(packet);
+            PacketRegistry.Entry<Object> entry = getEntry(body);
+
+            VarInts.putVarInt(correlationId(packet), out);
+            VarInts.putVarInt(entry.id(), out);
+            entry.codec().encode(body, out);
+        }
+
+        @Override
+        public @NotNull P decode(@NotNull ByteBuffer in) throws Exception {
+            int correlationId = VarInts.getVarInt(in);
+            int id            = VarInts.getVarInt(in);
+
+            PacketRegistry.Entry<?> entry = registry.getEntry(id);
+            if (entry == null)
+                throw new ProtocolException("Unknown packet id: " + id);
+            return create(correlationId, entry.codec().decode(in));
+        }
+
+        @Override
+        public int sizeHint(@NotNull P packet) {
+            Object body = body(packet);
+            return 10 + getEntry(body).codec().sizeHint(body);
+        }
+
+        @SuppressWarnings("unchecked")
+        private @NotNull PacketRegistry.Entry<Object> getEntry(@NotNull Object body) {
+            PacketRegistry.Entry<Object> entry = (PacketRegistry.Entry<Object>) registry.getEntry(body.getClass());
+            if (entry == null)
+                throw new IllegalArgumentException("Packet type not registered: " + body.getClass().getName());
+            return entry;
+        }
+    }
+
+    private static final class FailureCodec implements PacketCodec<Failure> {
+        @Override
+        public void encode(@NotNull Failure packet, @NotNull ByteBuffer out) {
+            byte[] message = packet.message().getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(message.length, MAX_MESSAGE_LENGTH);
+
+            VarInts.putVarInt(packet.correlationId(), out);
+            VarInts.putVarInt(length, out);
+            out.put(message, 0, length);
+        }
+
+        @Override
+        public @NotNull Failure decode(@NotNull ByteBuffer in) throws ProtocolException {
+            int correlationId = VarInts.getVarInt(in);
+            int length        = VarInts.getVarInt(in);
+            if (length < 0 || length > in.remaining())
+                throw new ProtocolException("Invalid message length: " + length);
+
+            byte[] message = new byte[length];
+            in.get(message);
+            return new Failure(correlationId, new String(message, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int sizeHint(@NotNull Failure packet) {
+            return 10 + Math.min(packet.message().length() * 3, MAX_MESSAGE_LENGTH);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package de.turtleboi.turtlenet.core.net.stream;
+
+import de.turtleboi.turtlenet.core.net.packet.PacketSession;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.ProtocolException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A logical stream of packets within a {@link PacketSession}, with credit-based flow control.
+ * <p> Each side may send as many data packets on a stream as the other side has granted credits for; initially, both
+ * sides have a {@link StreamListener#getWindow() window} of credits. The receiver grants new credits once it has
+ * consumed packets, so a stream whose receiver falls behind stops the sender instead of filling up queues, while other
+ * streams of the same connection keep going. A side that sends more packets than it has credits for is disconnected,
+ * so the amount of packets buffered per stream is bounded by the window.
+ * <p> A stream that is no longer needed should be {@link #close() closed}, which removes it on both sides. Once both
+ * sides have exchanged close packets, its id may be used for a new stream.
+ * @see StreamListener
+ */
+public final class PacketStream {
+    private final PacketSession session;
+    private final StreamListener listener;
+    private final int id;
+
+    /** Packets that may be sent before the remote side grants new credits. */
+    private final AtomicInteger sendCredits;
+    /** Packets that the remote side may send before it needs new credits. */
+    private final AtomicInteger receiveCredits;
+    /** Consumed packets whose credits have not been granted to the remote side yet. */
+    private final AtomicInteger consumed = new AtomicInteger();
+    /** Whether this stream has been closed by either side. */
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    /** The writability that has last been passed to the handler. Only accessed by the selector thread. */
+    private boolean notifiedWritable = true;
+
+    PacketStream(@NotNull PacketSession session, @NotNull StreamListener listener, int id) {
+        this.session        = session;
+        this.listener       = listener;
+        this.id             = id;
+        this.sendCredits    = new AtomicInteger(listener.getWindow());
+        this.receiveCredits = new AtomicInteger(listener.getWindow());
+    }
+
+    /* - - - */
+
+    /**
+     * Sends a packet on this stream if there is a credit left. May be called from any thread.
+     * @param body The packet. Must be a registered packet.
+     * @return {@code false} if there are no credits left or the stream or connection has been closed, in which case the
+     *         packet is discarded. Wait for {@link StreamHandler#onWritabilityChanged(PacketStream, boolean)} before
+     *         retrying.
+     * @throws Exception if thrown by {@link PacketSession#send(Object)}.
+     */
+    public boolean send(@NotNull Object body) throws Exception {
+        if (closed.get()) return false;
+
+        int credits;
+        do {
+            credits = sendCredits.get();
+            if (credits <= 0) return false;
+        } while (!sendCredits.compareAndSet(credits, credits - 1));
+
+        // the last credit has been used
+        if (credits == 1)
+            scheduleWritabilityCheck();
+
+        try {
+            return session.send(new StreamProtocol.Data(id, body));
+        } catch (Throwable t) {
+            sendCredits.incrementAndGet();
+            scheduleWritabilityCheck();
+            throw t;
+        }
+    }
+
+    /**
+     * Marks received packets as processed, so the remote side may send that many more. Credits are granted in batches
+     * of half the window, so not every packet causes a window update. May be called from any thread, but must not be
+     * called for more packets than have been received.
+     */
+    public void consume(int packets) {
+        if (packets < 1)
+            throw new IllegalArgumentException("packets must be positive");
+        if (consumed.addAndGet(packets) < listener.getWindowUpdateThreshold() || closed.get()) return;
+
+        int credits = consumed.getAndSet(0);
+        if (credits <= 0) return;
+        // granted before sending, so data sent in response to the update always finds room
+        receiveCredits.addAndGet(credits);
+        try {
+            session.send(new StreamProtocol.WindowUpdate(id, credits));
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not send window update", e);
+        }
+    }
+
+    /**
+     * Closes this stream. No more packets can be sent on it, and packets that the remote side has sent before it
+     * received the close packet are discarded. The stream is removed from its {@link StreamListener} once the remote side
+     * has answered with a close packet, and {@link StreamHandler#onClose(PacketStream)} is called. May be called from
+     * any thread; calling it again has no effect.
+     * @throws Exception if thrown by {@link PacketSession#send(Object)}.
+     */
+    public void close() throws Exception {
+        if (closed.compareAndSet(false, true))
+            session.send(new StreamProtocol.Close(id));
+    }
+
+    /* - - - */
+
+    /** Handles a data packet. Called by the selector thread. */
+    void handleData(@NotNull Object body) throws Exception {
+        if (receiveCredits.decrementAndGet() < 0)
+            throw new ProtocolException("Stream " + id + " exceeded its window of " + listener.getWindow() + " packets");
+        // sent before the remote side knew that the stream has been closed
+        if (closed.get()) return;
+
+        listener.getHandler().onData(this, body);
+        if (listener.isAutoConsume())
+            consume(1);
+    }
+
+    /** Handles a window update. Called by the selector thread. */
+    void handleWindowUpdate(int credits) throws Exception {
+        if (credits < 1 || sendCredits.addAndGet(credits) > listener.getWindow())
+            throw new ProtocolException("Stream " + id + " received invalid credits: " + credits);
+        fireWritabilityChanged();
+    }
+
+    /**
+     * Handles a close packet, which either closes this stream or answers {@link #close()}. Called by the selector
+     * thread.
+     */
+    void handleClose() throws Exception {
+        if (closed.compareAndSet(false, true))
+            session.send(new StreamProtocol.Close(id));
+        listener.remove(this);
+        listener.getHandler().onClose(this);
+    }
+
+    /** Notifies the handler if the writability has changed since it has last been notified. Called by the selector thread. */
+    void fireWritabilityChanged() throws Exception {
+        boolean current = isWritable();
+        if (current == notifiedWritable || !session.isOpen()) return;
+        notifiedWritable = current;
+        listener.getHandler().onWritabilityChanged(this, current);
+    }
+
+    private void scheduleWritabilityCheck() {
+        session.getConnection().execute(() -> {
+            try {
+                fireWritabilityChanged();
+            } catch (Throwable t) {
+                session.close();
+                Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), t);
+            }
+        });
+    }
+
+    /* - - - */
+
+    public int getId() {
+        return id;
+    }
+
+    public @NotNull PacketSession getSession() {
+        return session;
+    }
+
+    /** Returns {@code true} if this stream has been closed by either side. */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /** Returns {@code true} if there are credits left and the connection is writable. */
+    public boolean isWritable() {
+        return sendCredits.get() > 0 && !closed.get() && session.isWritable();
+    }
+
+    /** Returns the amount of packets that may be sent before the remote side grants new credits. */
+    public int getSendCredits() {
+        return Math.max(0, sendCredits.get());
+    }
+
+    /** Returns the amount of packets that have been received, but not {@link #consume(int) consumed} yet. */
+    public int getUnconsumed() {
+        return listener.getWindow() - Math.max(0, receiveCredits.get()) - consumed.get();
+    }
+
+    @Override
+    public String toString() {
+        return "PacketStream{" + id + ", " + session + "}";
+    }
+}
@@ -0,0 +1,31 @@
+package de.turtleboi.turtlenet.core.net.stream;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives the events of {@link PacketStream PacketStreams}. Like {@link de.turtleboi.turtlenet.core.net.packet.PacketListener}
+ * all methods are called by the selector thread of the connection and must never block. If a method throws an
+ * exception, the connection is closed.
+ */
+public interface StreamHandler {
+    /**
+     * Called for each packet that has been received on a stream, in the order they have been received. Unless the
+     * {@link StreamListener} consumes packets automatically, each packet must eventually be passed to
+     * {@link PacketStream#consume(int)}, or the remote side runs out of credits.
+     */
+    void onData(@NotNull PacketStream stream, @NotNull Object body) throws Exception;
+
+    /**
+     * Called when the stream becomes writable or not writable, i.e. when it runs out of credits or gets new ones, or
+     * when the connection changes its writability.
+     * @see PacketStream#isWritable()
+     */
+    default void onWritabilityChanged(@NotNull PacketStream stream, boolean writable) throws Exception { }
+
+    /**
+     * Called when a stream has been closed by either side, after all packets that have been received on it. It is not
+     * called for the streams of a session that is closed.
+     * @see PacketStream#close()
+     */
+    default void onClose(@NotNull PacketStream stream) throws Exception { }
+}
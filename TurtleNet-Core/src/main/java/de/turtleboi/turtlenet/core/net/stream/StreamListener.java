@@ -0,0 +1,190 @@
+package de.turtleboi.turtlenet.core.net.stream;
+
+import de.turtleboi.turtlenet.core.net.packet.PacketListener;
+import de.turtleboi.turtlenet.core.net.packet.PacketSession;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.ProtocolException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link PacketListener} that multiplexes logical {@link PacketStream streams} with credit-based flow control over
+ * each session. Data packets are passed to a {@link StreamHandler}, window updates replenish the credits of their
+ * stream, and all other packets are passed on to a delegate listener.
+ * <p> Streams are identified by an id that both sides agree on (e.g. one per kind of data) and are created on first
+ * use by either side. Both sides must use the same window. The amount of streams per session is limited, so the
+ * memory a session can use is bounded by the maximum amount of streams times the window. Streams that are no longer
+ * needed must be {@link PacketStream#close() closed}, or they count towards that limit until the session is closed.
+ * <p> The stream packets must be registered with {@link StreamProtocol#register(de.turtleboi.turtlenet.core.net.packet.PacketRegistry, int)}
+ * on both sides.
+ */
+public final class StreamListener implements PacketListener {
+    /** Default amount of packets that may be in flight per stream. */
+    public static final int DEFAULT_WINDOW = 64;
+    /** Default maximum amount of streams per session. */
+    public static final int DEFAULT_MAX_STREAMS = 256;
+
+    private final StreamHandler handler;
+    private final PacketListener delegate;
+    private final int window;
+    private final int maxStreams;
+    private final boolean autoConsume;
+
+    private final ConcurrentHashMap<PacketSession, ConcurrentHashMap<Integer, PacketStream>> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new listener with the default limits that consumes packets automatically.
+     * @param handler Handles the packets of all streams.
+     * @param delegate Receives all packets that are not part of the stream protocol.
+     */
+    public StreamListener(@NotNull StreamHandler handler, @NotNull PacketListener delegate) {
+        this(handler, delegate, DEFAULT_WINDOW, DEFAULT_MAX_STREAMS, true);
+    }
+
+    /**
+     * @param handler Handles the packets of all streams.
+     * @param delegate Receives all packets that are not part of the stream protocol.
+     * @param window Amount of packets that may be in flight per stream. Must be the same on both sides.
+     * @param maxStreams Maximum amount of streams per session. Sessions that open more are closed.
+     * @param autoConsume Whether packets are {@link PacketStream#consume(int) consumed} as soon as the handler returns.
+     *                    If {@code false}, the handler must consume them, e.g. once they have been processed
+     *                    asynchronously or forwarded.
+     */
+    public StreamListener(@NotNull StreamHandler handler, @NotNull PacketListener delegate, int window, int maxStreams, boolean autoConsume) {
+        if (window < 1 || maxStreams < 1)
+            throw new IllegalArgumentException("window and maxStreams must be positive");
+
+        this.handler     = handler;
+        this.delegate    = delegate;
+        this.window      = window;
+        this.maxStreams  = maxStreams;
+        this.autoConsume = autoConsume;
+    }
+
+    /**
+     * Returns a stream of a session, creating it if necessary. A stream that is being {@link PacketStream#close() closed}
+     * is returned until the remote side has answered the close.
+     * @throws IllegalStateException if the session has not been opened by this listener or is closed, or if the
+     *                               maximum amount of streams has been reached.
+     */
+    public @NotNull PacketStream getStream(@NotNull PacketSession session, int streamId) {
+        try {
+            return getStream(session, streamId, false);
+        } catch (ProtocolException e) {
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+
+    /** Returns the streams of a session, or an empty collection if it has not been opened by this listener or is closed. */
+    public @NotNull Collection<PacketStream> getStreams(@NotNull PacketSession session) {
+        ConcurrentHashMap<Integer, PacketStream> streams = sessions.get(session);
+        return streams != null ? Collections.unmodifiableCollection(streams.values()) : Collections.emptyList();
+    }
+
+    private @NotNull PacketStream getStream(@NotNull PacketSession session, int streamId, boolean remote) throws ProtocolException {
+        ConcurrentHashMap<Integer, PacketStream> streams = sessions.get(session);
+        if (streams == null)
+            throw new IllegalStateException("Session is not open: " + session);
+        if (streamId < 0 && remote)
+            throw new ProtocolException("Invalid stream id: " + streamId);
+        if (streamId < 0)
+            throw new IllegalArgumentException("Invalid stream id: " + streamId);
+
+        PacketStream stream = streams.get(streamId);
+        if (stream != null) return stream;
+
+        // the check is racy, so the limit may be exceeded by concurrently created streams
+        if (streams.size() >= maxStreams)
+            throw new ProtocolException("Too many streams (max " + maxStreams + ")");
+        return streams.computeIfAbsent(streamId, id -> new PacketStream(session, this, id));
+    }
+
+    /** Removes a closed stream. */
+    void remove(@NotNull PacketStream stream) {
+        ConcurrentHashMap<Integer, PacketStream> streams = sessions.get(stream.getSession());
+        if (streams != null)
+            streams.remove(stream.getId(), stream);
+    }
+
+    private void handleWindowUpdate(@NotNull PacketSession session, int streamId, int credits) throws Exception {
+        ConcurrentHashMap<Integer, PacketStream> streams = sessions.get(session);
+        if (streams == null) return;
+
+        // credits are only granted for data that has been sent, so an unknown stream has been closed in the meantime
+        PacketStream stream = streams.get(streamId);
+        if (stream != null)
+            stream.handleWindowUpdate(credits);
+    }
+
+    private void handleClose(@NotNull PacketSession session, int streamId) throws Exception {
+        ConcurrentHashMap<Integer, PacketStream> streams = sessions.get(session);
+        if (streams == null) return;
+        if (streamId < 0)
+            throw new ProtocolException("Invalid stream id: " + streamId);
+
+        PacketStream stream = streams.get(streamId);
+        if (stream != null)
+            stream.handleClose();
+        else // never used on this side, but the remote side waits for the answer
+            session.send(new StreamProtocol.Close(streamId));
+    }
+
+    /* - - - */
+
+    @Override
+    public void onOpen(@NotNull PacketSession session) throws Exception {
+        sessions.put(session, new ConcurrentHashMap<>());
+        delegate.onOpen(session);
+    }
+
+    @Override
+    public void onPacket(@NotNull PacketSession session, @NotNull Object packet) throws Exception {
+        if (packet instanceof StreamProtocol.Data data)
+            getStream(session, data.streamId(), true).handleData(data.body());
+        else if (packet instanceof StreamProtocol.WindowUpdate update)
+            handleWindowUpdate(session, update.streamId(), update.credits());
+        else if (packet instanceof StreamProtocol.Close close)
+            handleClose(session, close.streamId());
+        else
+            delegate.onPacket(session, packet);
+    }
+
+    @Override
+    public void onWritabilityChanged(@NotNull PacketSession session, boolean writable) throws Exception {
+        for (PacketStream stream : getStreams(session))
+            stream.fireWritabilityChanged();
+        delegate.onWritabilityChanged(session, writable);
+    }
+
+    @Override
+    public void onClose(@NotNull PacketSession session, @Nullable Throwable cause) {
+        sessions.remove(session);
+        delegate.onClose(session, cause);
+    }
+
+    /* - - - */
+
+    public @NotNull StreamHandler getHandler() {
+        return handler;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    /** Returns the amount of consumed packets after which credits are granted to the remote side. */
+    int getWindowUpdateThreshold() {
+        return Math.max(1, window / 2);
+    }
+
+    public int getMaxStreams() {
+        return maxStreams;
+    }
+
+    public boolean isAutoConsume() {
+        return autoConsume;
+    }
+}
@@ -0,0 +1,126 @@
+package de.turtleboi.turtlenet.core.net.stream;
+
+import de.turtleboi.lib.VarInts;
+import de.turtleboi.turtlenet.core.net.packet.PacketCodec;
+import de.turtleboi.turtlenet.core.net.packet.PacketRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+/**
+ * The packets of the stream layer. Data packets wrap another registered packet and tag it with the id of the logical
+ * stream it belongs to; window updates grant the remote side credits to send more data packets on a stream, and close
+ * packets retire a stream:
+ * <pre> {@code
+ * Data:         [varint stream id][varint packet id][payload]
+ * WindowUpdate: [varint stream id][varint credits]
+ * Close:        [varint stream id]
+ * } </pre>
+ */
+public final class StreamProtocol {
+    /** Utility class */
+    private StreamProtocol() { }
+
+    /** Amount of packet ids that are used by {@link #register(PacketRegistry, int)}. */
+    public static final int PACKET_COUNT = 3;
+
+    public record Data(int streamId, @NotNull Object body) { }
+
+    /** Allows the remote side to send {@code credits} more data packets on a stream. */
+    public record WindowUpdate(int streamId, int credits) { }
+
+    /** Closes a stream. The side that did not close the stream answers with a close packet as well. */
+    public record Close(int streamId) { }
+
+    /**
+     * Registers the stream packets with {@link #PACKET_COUNT} consecutive ids, starting with {@code firstId}. Packets
+     * that are sent on a stream must be registered with the same registry.
+     */
+    public static void register(@NotNull PacketRegistry registry, int firstId) {
+        registry.register(firstId, Data.class, new DataCodec(registry));
+        registry.register(firstId + 1, WindowUpdate.class, new WindowUpdateCodec());
+        registry.register(firstId + 2, Close.class, new CloseCodec());
+    }
+
+    /* - - - */
+
+    /** Encodes the wrapped packet with the codec that has been registered for it. */
+    private static final class DataCodec implements PacketCodec<Data> {
+        private final PacketRegistry registry;
+
+        DataCodec(@NotNull PacketRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public void encode(@NotNull Data packet, @NotNull ByteBuffer out) throws Exception {
+            PacketRegistry.Entry<Object> entry = getEntry(packet.body());
+
+            VarInts.putVarInt(packet.streamId(), out);
+            VarInts.putVarInt(entry.id(), out);
+            entry.codec().encode(packet.body(), out);
+        }
+
+        @Override
+        public @NotNull Data decode(@NotNull ByteBuffer in) throws Exception {
+            int streamId = VarInts.getVarInt(in);
+            int id       = VarInts.getVarInt(in);
+
+            PacketRegistry.Entry<?> entry = registry.getEntry(id);
+            if (entry == null)
+                throw new ProtocolException("Unknown packet id: " + id);
+            return new Data(streamId, entry.codec().decode(in));
+        }
+
+        @Override
+        public int sizeHint(@NotNull Data packet) {
+            return 10 + getEntry(packet.body()).codec().sizeHint(packet.body());
+        }
+
+        @SuppressWarnings("unchecked")
+        private @NotNull PacketRegistry.Entry<Object> getEntry(@NotNull Object body) {
+            PacketRegistry.Entry<Object> entry = (PacketRegistry.Entry<Object>) registry.getEntry(body.getClass());
+            if (entry == null)
+                throw new IllegalArgumentException("Packet type not registered: " + body.getClass().getName());
+            return entry;
+        }
+    }
+
+    private static final class WindowUpdateCodec implements PacketCodec<WindowUpdate> {
+        @Override
+        public void encode(@NotNull WindowUpdate packet, @NotNull ByteBuffer out) {
+            VarInts.putVarInt(packet.streamId(), out);
+            VarInts.putVarInt(packet.credits(), out);
+        }
+
+        @Override
+        public @NotNull WindowUpdate decode(@NotNull ByteBuffer in) {
+            int streamId = VarInts.getVarInt(in);
+            int credits  = VarInts.getVarInt(in);
+            return new WindowUpdate(streamId, credits);
+        }
+
+        @Override
+        public int sizeHint(@NotNull WindowUpdate packet) {
+            return 10;
+        }
+    }
+
+    private static final class CloseCodec implements PacketCodec<Close> {
+        @Override
+        public void encode(@NotNull Close packet, @NotNull ByteBuffer out) {
+            VarInts.putVarInt(packet.streamId(), out);
+        }
+
+        @Override
+        public @NotNull Close decode(@NotNull ByteBuffer in) {
+            return new Close(VarInts.getVarInt(in));
+        }
+
+        @Override
+        public int sizeHint(@NotNull Close packet) {
+            return 5;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package de.turtleboi.turtlenet.core.exec;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Access to virtual threads. This version is only loaded on Java 21 or newer. */
+final class VirtualThreads {
+    /** Utility class */
+    private VirtualThreads() { }
+
+    static boolean isSupported() {
+        return true;
+    }
+
+    static @NotNull ExecutorService newExecutor(@NotNull String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+}
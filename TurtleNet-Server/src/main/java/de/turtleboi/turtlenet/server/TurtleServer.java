@@ -1,16 +1,114 @@
 package de.turtleboi.turtlenet.server;
 
 import de.turtleboi.turtlenet.core.TurtleCore;
+import de.turtleboi.turtlenet.core.net.Connection;
+import de.turtleboi.turtlenet.core.net.Listener;
+import de.turtleboi.turtlenet.core.net.packet.FrameCompression;
+import de.turtleboi.turtlenet.core.net.packet.PacketListener;
+import de.turtleboi.turtlenet.core.net.packet.PacketPipeline;
+import de.turtleboi.turtlenet.core.net.packet.PacketRegistry;
+import de.turtleboi.turtlenet.core.net.packet.PacketSession;
+import de.turtleboi.turtlenet.core.net.rpc.RpcListener;
+import de.turtleboi.turtlenet.core.net.rpc.RpcProtocol;
+import de.turtleboi.turtlenet.core.net.stream.PacketStream;
+import de.turtleboi.turtlenet.core.net.stream.StreamHandler;
+import de.turtleboi.turtlenet.core.net.stream.StreamListener;
+import de.turtleboi.turtlenet.core.net.stream.StreamProtocol;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 public class TurtleServer {
+    /** System property that overrides the port the server listens on. */
+    public static final String PORT_PROPERTY = "turtlenet.port";
+    public static final int DEFAULT_PORT = 25600;
+
+    /** First packet id of the RPC packets, which are followed by the stream packets. Clients must use the same ids. */
+    public static final int FIRST_PACKET_ID = 0;
+
     private final TurtleCore core;
+    private final RpcListener rpc;
+    private final StreamListener streams;
+    private final PacketPipeline pipeline;
 
     TurtleServer(@NotNull TurtleCore core) throws Exception {
         this.core = core;
+
+        // the server does not handle any requests or streams yet, so requests fail and stream data closes the connection.
+        // Requests are handled on the blocking executor, which uses virtual threads on Java 21 or newer.
+        this.rpc      = new RpcListener(core.getTimer(), null, new ClientListener(), core.getBlockingExecutor());
+        this.streams  = new StreamListener(new ClientStreamHandler(), rpc);
+        this.pipeline = new PacketPipeline(createRegistry(), streams, PacketPipeline.DEFAULT_MAX_FRAME_SIZE, FrameCompression.withDefaultDictionary());
+    }
+
+    /** Creates a registry with the packets of the server protocol. */
+    public static @NotNull PacketRegistry createRegistry() {
+        PacketRegistry registry = new PacketRegistry();
+        RpcProtocol.register(registry, FIRST_PACKET_ID);
+        StreamProtocol.register(registry, FIRST_PACKET_ID + RpcProtocol.PACKET_COUNT);
+        return registry;
     }
 
+    /** Starts listening for clients and blocks until the core has been shut down. */
     public void run() throws Exception {
-        // TODO
+        int port = Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT);
+        Listener listener = core.getTransport().bind(new InetSocketAddress(port), pipeline);
+        core.getLogger().info("Listening on " + listener.getLocalAddress() + ".");
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                core.shutdown(10, TimeUnit.SECONDS);
+            } catch (IOException e) {
+                core.getLogger().log(Level.WARNING, "Could not shut down", e);
+            }
+        }, "TurtleServer-Shutdown"));
+
+        core.onStatus(TurtleCore.Status.STOPPED).join();
+    }
+
+    /* - - - */
+
+    public @NotNull RpcListener getRpc() {
+        return rpc;
+    }
+
+    public @NotNull StreamListener getStreams() {
+        return streams;
+    }
+
+    private final class ClientListener implements PacketListener {
+        @Override
+        public void onOpen(@NotNull PacketSession session) {
+            Connection connection = session.getConnection();
+            // stop reading from clients that do not read what we send them
+            connection.addUpstream(connection);
+            core.getLogger().fine(() -> "Client connected: " + connection.getRemoteAddress());
+        }
+
+        @Override
+        public void onPacket(@NotNull PacketSession session, @NotNull Object packet) throws Exception {
+            throw new ProtocolException("Unexpected packet " + packet.getClass().getSimpleName());
+        }
+
+        @Override
+        public void onClose(@NotNull PacketSession session, @Nullable Throwable cause) {
+            Connection connection = session.getConnection();
+            if (cause != null)
+                core.getLogger().log(Level.FINE, "Client disconnected: " + connection.getRemoteAddress(), cause);
+            else
+                core.getLogger().fine(() -> "Client disconnected: " + connection.getRemoteAddress());
+        }
+    }
+
+    private static final class ClientStreamHandler implements StreamHandler {
+        @Override
+        public void onData(@NotNull PacketStream stream, @NotNull Object body) throws Exception {
+            throw new ProtocolException("Unexpected data on stream " + stream.getId());
+        }
     }
 }